@@ -0,0 +1,26 @@
+package com.tarssito.libraryapi.reactive;
+
+import com.tarssito.libraryapi.reactive.api.mapper.BookMapper;
+import com.tarssito.libraryapi.reactive.api.mapper.LoanMapper;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
+
+@SpringBootApplication
+public class LibraryApiReactiveApplication {
+
+	@Bean
+	public BookMapper bookMapper() {
+		return new BookMapper();
+	}
+
+	@Bean
+	public LoanMapper loanMapper() {
+		return new LoanMapper();
+	}
+
+	public static void main(String[] args) {
+		SpringApplication.run(LibraryApiReactiveApplication.class, args);
+	}
+
+}
@@ -0,0 +1,97 @@
+package com.tarssito.libraryapi.reactive.api.controller;
+
+import com.tarssito.libraryapi.reactive.api.dto.BookDTO;
+import com.tarssito.libraryapi.reactive.api.dto.LoanDTO;
+import com.tarssito.libraryapi.reactive.api.mapper.BookMapper;
+import com.tarssito.libraryapi.reactive.config.WebConfig;
+import com.tarssito.libraryapi.reactive.model.entity.Book;
+import com.tarssito.libraryapi.reactive.service.BookService;
+import com.tarssito.libraryapi.reactive.service.LoanService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+
+@RestController
+@RequestMapping("/api/books")
+@RequiredArgsConstructor
+@Slf4j
+public class BookController {
+
+    private final BookService bookService;
+    private final LoanService loanService;
+    private final BookMapper bookMapper;
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<BookDTO> create(@RequestBody @Valid BookDTO dto) {
+        log.info("create a book, {} ", dto);
+        return bookService.save(bookMapper.toEntity(dto)).map(bookMapper::toDTO);
+    }
+
+    @GetMapping("/{id}")
+    public Mono<BookDTO> get(@PathVariable Long id) {
+        log.info("get a book by id, {} ", id);
+        return getBook(id).map(bookMapper::toDTO);
+    }
+
+    @DeleteMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public Mono<Void> delete(@PathVariable Long id) {
+        log.info("delete a book by id, {} ", id);
+        return getBook(id).flatMap(bookService::delete);
+    }
+
+    @PutMapping("/{id}")
+    public Mono<BookDTO> update(@PathVariable Long id, @RequestBody @Valid BookDTO dto) {
+        log.info("update book, {} ", dto);
+        return getBook(id)
+                .flatMap(book -> {
+                    book.setAuthor(dto.getAuthor());
+                    book.setTitle(dto.getTitle());
+                    return bookService.update(book);
+                })
+                .map(bookMapper::toDTO);
+    }
+
+    @GetMapping
+    public Mono<Page<BookDTO>> find(BookDTO dto, Pageable pageRequest) {
+        log.info("find book (filter), {} ", dto);
+        return bookService.find(bookMapper.toEntity(dto), pageRequest)
+                .map(page -> page.map(bookMapper::toDTO));
+    }
+
+    @GetMapping(produces = WebConfig.NDJSON)
+    public Flux<BookDTO> findAll(BookDTO dto) {
+        log.info("stream books (filter), {} ", dto);
+        return bookService.stream(bookMapper.toEntity(dto)).map(bookMapper::toDTO);
+    }
+
+    @GetMapping("{id}/loans")
+    public Mono<Page<LoanDTO>> loansByBook(@PathVariable Long id, Pageable pageable) {
+        return getBook(id).flatMap(book -> {
+            log.info("loans by Book, {} ", book);
+            return loanService.getDTOByBook(book.getId(), pageable);
+        });
+    }
+
+    @GetMapping(value = "{id}/loans", produces = WebConfig.NDJSON)
+    public Flux<LoanDTO> allLoansByBook(@PathVariable Long id) {
+        return getBook(id).flatMapMany(book -> {
+            log.info("stream loans by Book, {} ", book);
+            return loanService.streamDTOByBook(book.getId());
+        });
+    }
+
+    private Mono<Book> getBook(Long id) {
+        return bookService.getByID(id)
+                .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)));
+    }
+}
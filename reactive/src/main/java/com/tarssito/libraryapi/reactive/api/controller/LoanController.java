@@ -0,0 +1,77 @@
+package com.tarssito.libraryapi.reactive.api.controller;
+
+import com.tarssito.libraryapi.reactive.api.dto.LoanDTO;
+import com.tarssito.libraryapi.reactive.api.dto.LoanFilterDTO;
+import com.tarssito.libraryapi.reactive.api.dto.ReturnedLoanDTO;
+import com.tarssito.libraryapi.reactive.config.WebConfig;
+import com.tarssito.libraryapi.reactive.model.entity.Customer;
+import com.tarssito.libraryapi.reactive.model.entity.Loan;
+import com.tarssito.libraryapi.reactive.service.BookService;
+import com.tarssito.libraryapi.reactive.service.LoanService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("api/loans")
+@RequiredArgsConstructor
+@Slf4j
+public class LoanController {
+
+    private final LoanService loanService;
+    private final BookService bookService;
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<Long> create(@RequestBody LoanDTO dto) {
+        log.info("create a loan, {} ", dto);
+        return bookService.getBookByIsbn(dto.getIsbn())
+                .switchIfEmpty(Mono.error(
+                        new ResponseStatusException(HttpStatus.BAD_REQUEST, "Book not found for passed isbn")))
+                .flatMap(book -> loanService.save(Loan.builder()
+                        .bookId(book.getId())
+                        .customer(Customer.builder().name(dto.getCostumer()).email(dto.getEmail()).build())
+                        .loanDate(LocalDate.now())
+                        .build()))
+                .map(Loan::getId);
+    }
+
+    @GetMapping("{id}")
+    public Mono<LoanDTO> get(@PathVariable Long id) {
+        log.info("get a loan by id, {} ", id);
+        return loanService.getDTOById(id)
+                .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)));
+    }
+
+    @PatchMapping("{id}")
+    public Mono<Void> returnBook(@PathVariable Long id, @RequestBody ReturnedLoanDTO dto) {
+        log.info("Update loan return status (dto), {} ", dto);
+        return loanService.getById(id)
+                .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)))
+                .flatMap(loan -> {
+                    loan.setReturned(dto.getReturned());
+                    return loanService.update(loan);
+                })
+                .then();
+    }
+
+    @GetMapping
+    public Mono<Page<LoanDTO>> find(LoanFilterDTO dto, Pageable pageRequest) {
+        log.info("find loan (filter), {} ", dto);
+        return loanService.findDTO(dto, pageRequest);
+    }
+
+    @GetMapping(produces = WebConfig.NDJSON)
+    public Flux<LoanDTO> findAll(LoanFilterDTO dto) {
+        log.info("stream loans (filter), {} ", dto);
+        return loanService.streamDTO(dto);
+    }
+}
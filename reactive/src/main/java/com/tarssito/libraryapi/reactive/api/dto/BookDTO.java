@@ -0,0 +1,31 @@
+package com.tarssito.libraryapi.reactive.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotEmpty;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BookDTO {
+    private Long id;
+
+    @NotEmpty
+    private String title;
+    @NotEmpty
+    private String author;
+    @NotEmpty
+    private String isbn;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean available;
+
+    public BookDTO(Long id, String title, String author, String isbn) {
+        this(id, title, author, isbn, null);
+    }
+}
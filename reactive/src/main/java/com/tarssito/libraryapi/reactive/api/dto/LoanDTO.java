@@ -0,0 +1,33 @@
+package com.tarssito.libraryapi.reactive.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotEmpty;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class LoanDTO {
+    private Long id;
+
+    @NotEmpty
+    private String costumer;
+
+    @NotEmpty
+    private String email;
+
+    @NotEmpty
+    private String isbn;
+
+    @NotEmpty
+    private BookDTO book;
+
+    public LoanDTO(Long id, String costumer, String email,
+                   Long bookId, String bookTitle, String bookAuthor, String isbn) {
+        this(id, costumer, email, isbn, new BookDTO(bookId, bookTitle, bookAuthor, isbn));
+    }
+}
@@ -0,0 +1,11 @@
+package com.tarssito.libraryapi.reactive.api.dto;
+
+import lombok.*;
+
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ReturnedLoanDTO {
+    private Boolean returned;
+}
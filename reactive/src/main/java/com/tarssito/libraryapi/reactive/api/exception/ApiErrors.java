@@ -0,0 +1,37 @@
+package com.tarssito.libraryapi.reactive.api.exception;
+
+import com.tarssito.libraryapi.reactive.exception.BusinessException;
+import org.springframework.validation.BindingResult;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ApiErrors {
+
+    private final List<String> errors;
+
+    public ApiErrors(BindingResult bindingResult) {
+        this.errors = new ArrayList<>();
+        bindingResult.getAllErrors().forEach(error ->
+                this.errors.add(error.getDefaultMessage()));
+    }
+
+    public ApiErrors(BusinessException ex) {
+        this.errors = Arrays.asList(ex.getMessage());
+    }
+
+    public ApiErrors(ResponseStatusException ex) {
+        this.errors = Collections.singletonList(ex.getReason());
+    }
+
+    public ApiErrors(List<String> errors) {
+        this.errors = errors;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+}
@@ -0,0 +1,27 @@
+package com.tarssito.libraryapi.reactive.api.mapper;
+
+import com.tarssito.libraryapi.reactive.api.dto.BookDTO;
+import com.tarssito.libraryapi.reactive.model.entity.Book;
+
+public class BookMapper {
+
+    public BookDTO toDTO(Book book) {
+        if (book == null) {
+            return null;
+        }
+        return new BookDTO(book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn(), book.getAvailable());
+    }
+
+    public Book toEntity(BookDTO dto) {
+        if (dto == null) {
+            return null;
+        }
+        Book book = new Book();
+        book.setId(dto.getId());
+        book.setTitle(dto.getTitle());
+        book.setAuthor(dto.getAuthor());
+        book.setIsbn(dto.getIsbn());
+        book.setAvailable(dto.getAvailable());
+        return book;
+    }
+}
@@ -0,0 +1,15 @@
+package com.tarssito.libraryapi.reactive.api.mapper;
+
+import com.tarssito.libraryapi.reactive.api.dto.LoanDTO;
+import com.tarssito.libraryapi.reactive.model.entity.LoanView;
+
+public class LoanMapper {
+
+    public LoanDTO toDTO(LoanView loan) {
+        if (loan == null) {
+            return null;
+        }
+        return new LoanDTO(loan.getId(), loan.getCostumer(), loan.getCostumerEmail(),
+                loan.getBookId(), loan.getBookTitle(), loan.getBookAuthor(), loan.getBookIsbn());
+    }
+}
@@ -0,0 +1,58 @@
+package com.tarssito.libraryapi.reactive.config;
+
+import com.tarssito.libraryapi.reactive.model.repository.PooledSequence;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.data.r2dbc.connectionfactory.init.ConnectionFactoryInitializer;
+import org.springframework.data.r2dbc.connectionfactory.init.ResourceDatabasePopulator;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+@Configuration
+public class DatabaseConfig {
+
+    static final String MIGRATIONS = "classpath:db/migration/V*__*.sql";
+
+    /**
+     * Runs the flyway migrations of the blocking application, in version
+     * order, on a new database; flyway itself only works over JDBC. Turn it
+     * off when the schema is already managed by the blocking application.
+     */
+    @Bean
+    @ConditionalOnProperty(value = "application.schema.initialize", havingValue = "true", matchIfMissing = true)
+    public ConnectionFactoryInitializer schemaInitializer(ConnectionFactory connectionFactory) throws IOException {
+        Resource[] scripts = new PathMatchingResourcePatternResolver().getResources(MIGRATIONS);
+        Arrays.sort(scripts, Comparator.comparingInt(DatabaseConfig::version));
+        ConnectionFactoryInitializer initializer = new ConnectionFactoryInitializer();
+        initializer.setConnectionFactory(connectionFactory);
+        initializer.setDatabasePopulator(new ResourceDatabasePopulator(scripts));
+        return initializer;
+    }
+
+    static int version(Resource script) {
+        String name = script.getFilename();
+        return Integer.parseInt(name.substring(1, name.indexOf("__")));
+    }
+
+    @Bean
+    public PooledSequence bookSequence(DatabaseClient databaseClient) {
+        return new PooledSequence(databaseClient, "book_seq", 50);
+    }
+
+    @Bean
+    public PooledSequence loanSequence(DatabaseClient databaseClient) {
+        return new PooledSequence(databaseClient, "loan_seq", 50);
+    }
+
+    @Bean
+    public PooledSequence customerSequence(DatabaseClient databaseClient) {
+        return new PooledSequence(databaseClient, "customer_seq", 50);
+    }
+}
@@ -0,0 +1,48 @@
+package com.tarssito.libraryapi.reactive.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.web.ReactivePageableHandlerMethodArgumentResolver;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.result.method.annotation.ArgumentResolverConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebFluxConfigurer {
+
+    /**
+     * Newline-delimited JSON, as served by the export endpoints of the
+     * blocking application. A {@code Flux} is written one line per element
+     * as the client reads, so a slow client holds back the database cursor
+     * instead of a buffer.
+     */
+    public static final String NDJSON = "application/x-ndjson";
+
+    @Override
+    public void configureArgumentResolvers(ArgumentResolverConfigurer configurer) {
+        configurer.addCustomResolver(new ReactivePageableHandlerMethodArgumentResolver());
+    }
+
+    @Bean
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public CodecCustomizer ndjsonCodecCustomizer(ObjectMapper objectMapper) {
+        MediaType ndjson = MediaType.parseMediaType(NDJSON);
+        Jackson2JsonEncoder encoder = new Jackson2JsonEncoder(objectMapper,
+                MediaType.APPLICATION_JSON, new MediaType("application", "*+json"), ndjson);
+        encoder.setStreamingMediaTypes(List.of(ndjson, MediaType.APPLICATION_STREAM_JSON));
+        Jackson2JsonDecoder decoder = new Jackson2JsonDecoder(objectMapper,
+                MediaType.APPLICATION_JSON, new MediaType("application", "*+json"), ndjson);
+        return configurer -> {
+            configurer.defaultCodecs().jackson2JsonEncoder(encoder);
+            configurer.defaultCodecs().jackson2JsonDecoder(decoder);
+        };
+    }
+}
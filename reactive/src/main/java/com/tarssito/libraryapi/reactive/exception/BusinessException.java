@@ -0,0 +1,7 @@
+package com.tarssito.libraryapi.reactive.exception;
+
+public class BusinessException extends RuntimeException {
+    public BusinessException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,41 @@
+package com.tarssito.libraryapi.reactive.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Table;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table("book")
+public class Book {
+    @Id
+    private Long id;
+
+    private String title;
+
+    private String author;
+
+    private String isbn;
+
+    @Version
+    private Long version;
+
+    /**
+     * Id of the open loan of the book, null while it is on the shelf;
+     * {@link #available} must be kept in step with it by whoever sets it.
+     */
+    private Long currentLoanId;
+
+    private Boolean available;
+
+    public void setCurrentLoanId(Long currentLoanId) {
+        this.currentLoanId = currentLoanId;
+        this.available = currentLoanId == null;
+    }
+}
@@ -0,0 +1,32 @@
+package com.tarssito.libraryapi.reactive.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * A costumer with its loan counters, which are only ever moved by the
+ * relative updates of {@link com.tarssito.libraryapi.reactive.model.repository.CustomerRepository}.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table("customer")
+public class Customer {
+    @Id
+    private Long id;
+
+    private String name;
+
+    private String email;
+
+    private Long activeLoans;
+
+    private Long lateLoans;
+
+    private Long totalLoans;
+}
@@ -0,0 +1,64 @@
+package com.tarssito.libraryapi.reactive.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table("loan")
+public class Loan {
+    @Id
+    private Long id;
+
+    @Column("id_customer")
+    private Long customerId;
+
+    /**
+     * Costumer named in the checkout request, resolved to
+     * {@link #customerId} when the loan is saved.
+     */
+    @Transient
+    private Customer customer;
+
+    @Column("id_book")
+    private Long bookId;
+
+    private LocalDate loanDate;
+
+    private LocalDate dueDate;
+
+    @Builder.Default
+    private Boolean returned = false;
+
+    /**
+     * Set by the late loans job of the blocking application once the due
+     * date has passed.
+     */
+    @Builder.Default
+    private Boolean late = false;
+
+    @Version
+    private Long version;
+
+    /**
+     * Id of the book while the loan is open, null once it is returned; the
+     * unique constraint on it keeps a book from having two open loans.
+     */
+    private Long openBookId;
+
+    public void setReturned(Boolean returned) {
+        this.returned = returned;
+        this.openBookId = Boolean.TRUE.equals(returned) ? null : bookId;
+    }
+}
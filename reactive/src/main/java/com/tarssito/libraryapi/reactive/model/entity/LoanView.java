@@ -0,0 +1,19 @@
+package com.tarssito.libraryapi.reactive.model.entity;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+
+/**
+ * A loan joined with its book, read in a single query for the loan listings.
+ */
+@Data
+public class LoanView {
+    @Id
+    private Long id;
+    private String costumer;
+    private String costumerEmail;
+    private Long bookId;
+    private String bookTitle;
+    private String bookAuthor;
+    private String bookIsbn;
+}
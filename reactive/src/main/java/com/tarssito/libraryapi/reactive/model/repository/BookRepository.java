@@ -0,0 +1,49 @@
+package com.tarssito.libraryapi.reactive.model.repository;
+
+import com.tarssito.libraryapi.reactive.model.entity.Book;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface BookRepository extends ReactiveCrudRepository<Book, Long> {
+
+    String FILTER = " where (:title is null or lower(title) like lower(concat('%', :title, '%'))) " +
+            " and (:author is null or lower(author) like lower(concat('%', :author, '%'))) " +
+            " and (:isbn is null or lower(isbn) like lower(concat('%', :isbn, '%'))) " +
+            " and (:available is null or available = :available) ";
+
+    @Query("select count(*) > 0 from book where isbn = :isbn")
+    Mono<Boolean> existsByIsbn(@Param("isbn") String isbn);
+
+    Mono<Book> findByIsbn(String isbn);
+
+    @Query("select * from book" + FILTER + " order by id limit :limit offset :offset")
+    Flux<Book> findByFilter(
+            @Param("title") String title,
+            @Param("author") String author,
+            @Param("isbn") String isbn,
+            @Param("available") Boolean available,
+            @Param("limit") long limit,
+            @Param("offset") long offset
+    );
+
+    @Query("select count(*) from book" + FILTER)
+    Mono<Long> countByFilter(
+            @Param("title") String title,
+            @Param("author") String author,
+            @Param("isbn") String isbn,
+            @Param("available") Boolean available
+    );
+
+    @Query("select * from book" + FILTER + " order by id")
+    Flux<Book> streamByFilter(
+            @Param("title") String title,
+            @Param("author") String author,
+            @Param("isbn") String isbn,
+            @Param("available") Boolean available
+    );
+}
@@ -0,0 +1,39 @@
+package com.tarssito.libraryapi.reactive.model.repository;
+
+import com.tarssito.libraryapi.reactive.model.entity.Customer;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface CustomerRepository extends ReactiveCrudRepository<Customer, Long> {
+
+    Mono<Customer> findByName(String name);
+
+    /**
+     * Inserts with an id from the customer sequence; {@code save} would take
+     * an entity with an id and no version for an update.
+     */
+    @Modifying
+    @Query("insert into customer (id, name, email) values (:id, :name, :email)")
+    Mono<Integer> insert(@Param("id") Long id, @Param("name") String name, @Param("email") String email);
+
+    /**
+     * Sets the email only while the costumer has none, so a concurrent
+     * checkout that filled it first keeps its value.
+     */
+    @Modifying
+    @Query("update customer set email = :email where id = :id and (email is null or email = '')")
+    Mono<Integer> fillEmail(@Param("id") Long id, @Param("email") String email);
+
+    @Modifying
+    @Query("update customer set active_loans = active_loans + 1, total_loans = total_loans + 1 where id = :id")
+    Mono<Integer> addLoan(@Param("id") Long id);
+
+    @Modifying
+    @Query("update customer set active_loans = active_loans - 1, late_loans = late_loans - :late where id = :id")
+    Mono<Integer> returnLoan(@Param("id") Long id, @Param("late") long late);
+}
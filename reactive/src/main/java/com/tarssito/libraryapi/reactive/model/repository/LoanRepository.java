@@ -0,0 +1,17 @@
+package com.tarssito.libraryapi.reactive.model.repository;
+
+import com.tarssito.libraryapi.reactive.model.entity.Loan;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface LoanRepository extends ReactiveCrudRepository<Loan, Long> {
+
+    @Modifying
+    @Query("update notification_outbox set status = 'CANCELLED' where loan_id = :loanId and status = 'PENDING'")
+    Mono<Integer> cancelPendingNotifications(@Param("loanId") Long loanId);
+}
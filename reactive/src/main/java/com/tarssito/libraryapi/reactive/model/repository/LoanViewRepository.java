@@ -0,0 +1,71 @@
+package com.tarssito.libraryapi.reactive.model.repository;
+
+import com.tarssito.libraryapi.reactive.model.entity.LoanView;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Read-only queries of loans joined with their books and costumers. They
+ * live apart from {@link LoanRepository} because rows are always mapped to
+ * the domain type of the repository declaring the query.
+ */
+@Repository
+public interface LoanViewRepository extends org.springframework.data.repository.Repository<LoanView, Long> {
+
+    String VIEW = "select l.id, c.name as costumer, c.email as costumer_email, " +
+            " b.id as book_id, b.title as book_title, b.author as book_author, b.isbn as book_isbn " +
+            " from loan l join book b on b.id = l.id_book left join customer c on c.id = l.id_customer ";
+
+    /**
+     * Loans of a book or of a costumer, as the union of two index range
+     * scans; an {@code or} across the two columns would defeat both indexes.
+     */
+    String BY_BOOK_OR_CUSTOMER = " (select id from loan where id_book = :bookId " +
+            " union select id from loan where id_customer = :customerId) ";
+
+    @Query(VIEW + " where l.id = :id")
+    Mono<LoanView> findViewById(@Param("id") Long id);
+
+    @Query(VIEW + " where l.id in" + BY_BOOK_OR_CUSTOMER + " order by l.id limit :limit offset :offset")
+    Flux<LoanView> findViewByBookOrCustomer(
+            @Param("bookId") Long bookId,
+            @Param("customerId") Long customerId,
+            @Param("limit") long limit,
+            @Param("offset") long offset
+    );
+
+    @Query("select count(*) from" + BY_BOOK_OR_CUSTOMER + " u")
+    Mono<Long> countByBookOrCustomer(@Param("bookId") Long bookId, @Param("customerId") Long customerId);
+
+    @Query(VIEW + " where l.id in" + BY_BOOK_OR_CUSTOMER + " order by l.id")
+    Flux<LoanView> streamViewByBookOrCustomer(@Param("bookId") Long bookId, @Param("customerId") Long customerId);
+
+    @Query(VIEW + " where l.id_customer = :customerId order by l.id limit :limit offset :offset")
+    Flux<LoanView> findViewByCustomer(
+            @Param("customerId") Long customerId,
+            @Param("limit") long limit,
+            @Param("offset") long offset
+    );
+
+    @Query("select count(*) from loan where id_customer = :customerId")
+    Mono<Long> countByCustomer(@Param("customerId") Long customerId);
+
+    @Query(VIEW + " where l.id_customer = :customerId order by l.id")
+    Flux<LoanView> streamViewByCustomer(@Param("customerId") Long customerId);
+
+    @Query(VIEW + " where l.id_book = :bookId order by l.id limit :limit offset :offset")
+    Flux<LoanView> findViewByBook(
+            @Param("bookId") Long bookId,
+            @Param("limit") long limit,
+            @Param("offset") long offset
+    );
+
+    @Query("select count(*) from loan where id_book = :bookId")
+    Mono<Long> countByBook(@Param("bookId") Long bookId);
+
+    @Query(VIEW + " where l.id_book = :bookId order by l.id")
+    Flux<LoanView> streamViewByBook(@Param("bookId") Long bookId);
+}
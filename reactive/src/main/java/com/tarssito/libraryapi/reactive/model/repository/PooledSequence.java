@@ -0,0 +1,53 @@
+package com.tarssito.libraryapi.reactive.model.repository;
+
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+
+/**
+ * Ids from a database sequence handed out like Hibernate's pooled optimizer
+ * does in the blocking application: each value of the sequence is the upper
+ * bound of a block of {@code allocationSize} ids, and the sequence is only
+ * read again once the block is used up. Both applications can therefore
+ * insert into the same tables without their ids ever colliding.
+ */
+public class PooledSequence {
+
+    private final DatabaseClient databaseClient;
+    private final String sequenceName;
+    private final int allocationSize;
+
+    private long next = 1;
+    private long hi = 0;
+
+    public PooledSequence(DatabaseClient databaseClient, String sequenceName, int allocationSize) {
+        this.databaseClient = databaseClient;
+        this.sequenceName = sequenceName;
+        this.allocationSize = allocationSize;
+    }
+
+    public Mono<Long> nextId() {
+        return Mono.defer(() -> {
+            Long id = takeFromBlock();
+            if (id != null) {
+                return Mono.just(id);
+            }
+            return databaseClient.execute("select next value for " + sequenceName)
+                    .map((row, metadata) -> row.get(0, Long.class))
+                    .one()
+                    .map(this::takeFromNewBlock);
+        });
+    }
+
+    private synchronized Long takeFromBlock() {
+        return next <= hi ? next++ : null;
+    }
+
+    private synchronized long takeFromNewBlock(long value) {
+        // a concurrent caller may have started a block meanwhile: use it up first, this one is skipped
+        if (next > hi) {
+            hi = value;
+            next = Math.max(value - allocationSize + 1, 1);
+        }
+        return next++;
+    }
+}
@@ -0,0 +1,27 @@
+package com.tarssito.libraryapi.reactive.service;
+
+import com.tarssito.libraryapi.reactive.model.entity.Book;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface BookService {
+    Mono<Book> save(Book book);
+
+    Mono<Book> getByID(Long id);
+
+    Mono<Void> delete(Book book);
+
+    Mono<Book> update(Book book);
+
+    Mono<Page<Book>> find(Book filter, Pageable pageRequest);
+
+    /**
+     * Every book matching the filter, in id order, read from the database
+     * only as fast as the subscriber requests them.
+     */
+    Flux<Book> stream(Book filter);
+
+    Mono<Book> getBookByIsbn(String isbn);
+}
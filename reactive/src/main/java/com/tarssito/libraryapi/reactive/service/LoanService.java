@@ -0,0 +1,27 @@
+package com.tarssito.libraryapi.reactive.service;
+
+import com.tarssito.libraryapi.reactive.api.dto.LoanDTO;
+import com.tarssito.libraryapi.reactive.api.dto.LoanFilterDTO;
+import com.tarssito.libraryapi.reactive.model.entity.Loan;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface LoanService {
+    Mono<Loan> save(Loan loan);
+
+    Mono<Loan> getById(Long id);
+
+    Mono<LoanDTO> getDTOById(Long id);
+
+    Mono<Loan> update(Loan loan);
+
+    Mono<Page<LoanDTO>> findDTO(LoanFilterDTO filterDTO, Pageable pageable);
+
+    Flux<LoanDTO> streamDTO(LoanFilterDTO filterDTO);
+
+    Mono<Page<LoanDTO>> getDTOByBook(Long bookId, Pageable pageable);
+
+    Flux<LoanDTO> streamDTOByBook(Long bookId);
+}
@@ -0,0 +1,78 @@
+package com.tarssito.libraryapi.reactive.service.impl;
+
+import com.tarssito.libraryapi.reactive.exception.BusinessException;
+import com.tarssito.libraryapi.reactive.model.entity.Book;
+import com.tarssito.libraryapi.reactive.model.repository.BookRepository;
+import com.tarssito.libraryapi.reactive.model.repository.PooledSequence;
+import com.tarssito.libraryapi.reactive.service.BookService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Service
+@RequiredArgsConstructor
+public class BookServiceImpl implements BookService {
+
+    private final BookRepository repository;
+    private final PooledSequence bookSequence;
+
+    @Override
+    public Mono<Book> save(Book book) {
+        return repository.existsByIsbn(book.getIsbn())
+                .flatMap(exists -> exists
+                        ? Mono.<Long>error(new BusinessException("Isbn já cadastrado."))
+                        : bookSequence.nextId())
+                .flatMap(id -> {
+                    book.setId(id);
+                    book.setCurrentLoanId(null);
+                    return repository.save(book);
+                })
+                .onErrorMap(DataIntegrityViolationException.class, e -> new BusinessException("Isbn já cadastrado."));
+    }
+
+    @Override
+    public Mono<Book> getByID(Long id) {
+        return repository.findById(id);
+    }
+
+    @Override
+    public Mono<Void> delete(Book book) {
+        if (book == null || book.getId() == null) {
+            return Mono.error(new IllegalArgumentException("Book id can't be null"));
+        }
+        return repository.delete(book);
+    }
+
+    @Override
+    public Mono<Book> update(Book book) {
+        if (book == null || book.getId() == null) {
+            return Mono.error(new IllegalArgumentException("Book id can't be null"));
+        }
+        return repository.save(book);
+    }
+
+    @Override
+    public Mono<Page<Book>> find(Book filter, Pageable pageRequest) {
+        return repository.findByFilter(filter.getTitle(), filter.getAuthor(), filter.getIsbn(), filter.getAvailable(),
+                        pageRequest.getPageSize(), pageRequest.getOffset())
+                .collectList()
+                .zipWith(repository.countByFilter(
+                        filter.getTitle(), filter.getAuthor(), filter.getIsbn(), filter.getAvailable()))
+                .map(result -> new PageImpl<>(result.getT1(), pageRequest, result.getT2()));
+    }
+
+    @Override
+    public Flux<Book> stream(Book filter) {
+        return repository.streamByFilter(filter.getTitle(), filter.getAuthor(), filter.getIsbn(), filter.getAvailable());
+    }
+
+    @Override
+    public Mono<Book> getBookByIsbn(String isbn) {
+        return repository.findByIsbn(isbn);
+    }
+}
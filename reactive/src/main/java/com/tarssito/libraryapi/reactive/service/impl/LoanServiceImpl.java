@@ -0,0 +1,230 @@
+package com.tarssito.libraryapi.reactive.service.impl;
+
+import com.tarssito.libraryapi.reactive.api.dto.LoanDTO;
+import com.tarssito.libraryapi.reactive.api.dto.LoanFilterDTO;
+import com.tarssito.libraryapi.reactive.api.mapper.LoanMapper;
+import com.tarssito.libraryapi.reactive.exception.BusinessException;
+import com.tarssito.libraryapi.reactive.model.entity.Book;
+import com.tarssito.libraryapi.reactive.model.entity.Customer;
+import com.tarssito.libraryapi.reactive.model.entity.Loan;
+import com.tarssito.libraryapi.reactive.model.entity.LoanView;
+import com.tarssito.libraryapi.reactive.model.repository.BookRepository;
+import com.tarssito.libraryapi.reactive.model.repository.CustomerRepository;
+import com.tarssito.libraryapi.reactive.model.repository.LoanRepository;
+import com.tarssito.libraryapi.reactive.model.repository.LoanViewRepository;
+import com.tarssito.libraryapi.reactive.model.repository.PooledSequence;
+import com.tarssito.libraryapi.reactive.service.LoanService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import java.util.Optional;
+
+@Service
+@RequiredArgsConstructor
+public class LoanServiceImpl implements LoanService {
+
+    private final LoanRepository loanRepository;
+    private final LoanViewRepository loanViewRepository;
+    private final BookRepository bookRepository;
+    private final CustomerRepository customerRepository;
+    private final PooledSequence loanSequence;
+    private final PooledSequence customerSequence;
+    private final LoanMapper loanMapper;
+
+    @Value("${application.loan.days:4}")
+    private int loanDays;
+
+    /**
+     * Inserts the loan, marks its book as loaned and counts it for its
+     * costumer in one transaction; the book version and the unique
+     * open_book_id turn a concurrent checkout of the same book into a
+     * business error.
+     */
+    @Override
+    @Transactional
+    public Mono<Loan> save(Loan loan) {
+        return bookRepository.findById(loan.getBookId())
+                .filter(book -> book.getCurrentLoanId() == null)
+                .switchIfEmpty(Mono.error(new BusinessException("Book already loaned")))
+                .flatMap(book -> resolveCustomer(loan.getCustomer())
+                        .doOnNext(customer -> {
+                            loan.setCustomer(customer);
+                            loan.setCustomerId(customer.getId());
+                        })
+                        .then(insert(loan, book)))
+                .flatMap(saved -> saved.getCustomerId() == null
+                        ? Mono.just(saved)
+                        : customerRepository.addLoan(saved.getCustomerId()).thenReturn(saved))
+                .onErrorMap(e -> e instanceof DataIntegrityViolationException
+                                || e instanceof OptimisticLockingFailureException,
+                        e -> new BusinessException("Book already loaned"));
+    }
+
+    /**
+     * The costumer with the requested name, created on its first loan. As in
+     * the blocking application the name is the identity, so a loan never
+     * changes the email already on record; it only fills one still missing.
+     */
+    private Mono<Customer> resolveCustomer(Customer requested) {
+        if (requested == null || requested.getName() == null) {
+            return Mono.empty();
+        }
+        String email = requested.getEmail();
+        return customerRepository.findByName(requested.getName())
+                .flatMap(customer -> hasEmail(customer.getEmail()) || !hasEmail(email)
+                        ? Mono.just(customer)
+                        : customerRepository.fillEmail(customer.getId(), email)
+                                .then(Mono.fromCallable(() -> {
+                                    customer.setEmail(email);
+                                    return customer;
+                                })))
+                .switchIfEmpty(Mono.defer(() -> customerSequence.nextId()
+                        .flatMap(id -> customerRepository.insert(id, requested.getName(), email)
+                                .thenReturn(Customer.builder().id(id).name(requested.getName()).email(email).build()))));
+    }
+
+    private boolean hasEmail(String email) {
+        return email != null && !email.isEmpty();
+    }
+
+    private Mono<Loan> insert(Loan loan, Book book) {
+        return loanSequence.nextId()
+                .flatMap(id -> {
+                    loan.setId(id);
+                    loan.setOpenBookId(book.getId());
+                    if (loan.getDueDate() == null && loan.getLoanDate() != null) {
+                        loan.setDueDate(loan.getLoanDate().plusDays(loanDays));
+                    }
+                    return loanRepository.save(loan);
+                })
+                .flatMap(saved -> {
+                    book.setCurrentLoanId(saved.getId());
+                    return bookRepository.save(book).thenReturn(saved);
+                });
+    }
+
+    @Override
+    public Mono<Loan> getById(Long id) {
+        return loanRepository.findById(id);
+    }
+
+    @Override
+    public Mono<LoanDTO> getDTOById(Long id) {
+        return loanViewRepository.findViewById(id).map(loanMapper::toDTO);
+    }
+
+    /**
+     * Saves the loan and, when it is being returned, frees its book and takes
+     * it off its costumer's counters. The state it is compared with is read
+     * in this transaction, and the version check on save rolls it back if it
+     * changed in the meantime.
+     */
+    @Override
+    @Transactional
+    public Mono<Loan> update(Loan loan) {
+        Mono<Loan> current = loan.getId() == null ? Mono.empty() : loanRepository.findById(loan.getId());
+        return current.map(Optional::of).defaultIfEmpty(Optional.empty())
+                .flatMap(before -> loanRepository.save(loan).flatMap(updated -> {
+                    boolean returning = Boolean.TRUE.equals(updated.getReturned())
+                            && before.map(stored -> !Boolean.TRUE.equals(stored.getReturned())).orElse(false);
+                    return returning ? returned(updated, before.get()) : Mono.just(updated);
+                }));
+    }
+
+    private Mono<Loan> returned(Loan updated, Loan before) {
+        Mono<Integer> uncount = updated.getCustomerId() == null
+                ? Mono.just(0)
+                : customerRepository.returnLoan(updated.getCustomerId(), Boolean.TRUE.equals(before.getLate()) ? 1 : 0);
+        return uncount.then(loanRepository.cancelPendingNotifications(updated.getId()))
+                .then(bookRepository.findById(updated.getBookId()))
+                .filter(book -> updated.getId().equals(book.getCurrentLoanId()))
+                .flatMap(book -> {
+                    book.setCurrentLoanId(null);
+                    return bookRepository.save(book);
+                })
+                .thenReturn(updated);
+    }
+
+    /**
+     * Pages through the loans of the filter with the index-friendly query
+     * for it: isbn and costumer name are both unique, so each resolves to a
+     * single row whose loans are one index range, and only a filter on both
+     * needs the union of the two.
+     */
+    @Override
+    public Mono<Page<LoanDTO>> findDTO(LoanFilterDTO filterDTO, Pageable pageable) {
+        long limit = pageable.getPageSize();
+        long offset = pageable.getOffset();
+        return resolveFilter(filterDTO).flatMap(ids -> {
+            Long bookId = ids.getT1().orElse(null);
+            Long customerId = ids.getT2().orElse(null);
+            if (bookId != null && customerId != null) {
+                return page(loanViewRepository.findViewByBookOrCustomer(bookId, customerId, limit, offset),
+                        loanViewRepository.countByBookOrCustomer(bookId, customerId), pageable);
+            } else if (bookId != null) {
+                return page(loanViewRepository.findViewByBook(bookId, limit, offset),
+                        loanViewRepository.countByBook(bookId), pageable);
+            } else if (customerId != null) {
+                return page(loanViewRepository.findViewByCustomer(customerId, limit, offset),
+                        loanViewRepository.countByCustomer(customerId), pageable);
+            }
+            return Mono.just(Page.<LoanDTO>empty(pageable));
+        });
+    }
+
+    @Override
+    public Flux<LoanDTO> streamDTO(LoanFilterDTO filterDTO) {
+        return resolveFilter(filterDTO).flatMapMany(ids -> {
+            Long bookId = ids.getT1().orElse(null);
+            Long customerId = ids.getT2().orElse(null);
+            if (bookId != null && customerId != null) {
+                return loanViewRepository.streamViewByBookOrCustomer(bookId, customerId);
+            } else if (bookId != null) {
+                return loanViewRepository.streamViewByBook(bookId);
+            } else if (customerId != null) {
+                return loanViewRepository.streamViewByCustomer(customerId);
+            }
+            return Flux.<LoanView>empty();
+        }).map(loanMapper::toDTO);
+    }
+
+    private Mono<Tuple2<Optional<Long>, Optional<Long>>> resolveFilter(LoanFilterDTO filterDTO) {
+        Mono<Optional<Long>> bookId = Mono.justOrEmpty(filterDTO.getIsbn())
+                .flatMap(bookRepository::findByIsbn)
+                .map(book -> Optional.of(book.getId()))
+                .defaultIfEmpty(Optional.empty());
+        Mono<Optional<Long>> customerId = Mono.justOrEmpty(filterDTO.getCostumer())
+                .flatMap(customerRepository::findByName)
+                .map(customer -> Optional.of(customer.getId()))
+                .defaultIfEmpty(Optional.empty());
+        return bookId.zipWith(customerId);
+    }
+
+    private Mono<Page<LoanDTO>> page(Flux<LoanView> views, Mono<Long> count, Pageable pageable) {
+        return views.map(loanMapper::toDTO)
+                .collectList()
+                .zipWith(count)
+                .map(result -> new PageImpl<>(result.getT1(), pageable, result.getT2()));
+    }
+
+    @Override
+    public Mono<Page<LoanDTO>> getDTOByBook(Long bookId, Pageable pageable) {
+        return page(loanViewRepository.findViewByBook(bookId, pageable.getPageSize(), pageable.getOffset()),
+                loanViewRepository.countByBook(bookId), pageable);
+    }
+
+    @Override
+    public Flux<LoanDTO> streamDTOByBook(Long bookId) {
+        return loanViewRepository.streamViewByBook(bookId).map(loanMapper::toDTO);
+    }
+}
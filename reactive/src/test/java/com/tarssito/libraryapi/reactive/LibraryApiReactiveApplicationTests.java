@@ -0,0 +1,132 @@
+package com.tarssito.libraryapi.reactive;
+
+import com.tarssito.libraryapi.reactive.api.dto.BookDTO;
+import com.tarssito.libraryapi.reactive.api.dto.LoanDTO;
+import com.tarssito.libraryapi.reactive.config.WebConfig;
+import com.tarssito.libraryapi.reactive.model.repository.CustomerRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.Map;
+
+@SpringBootTest
+@AutoConfigureWebTestClient
+@ActiveProfiles("test")
+class LibraryApiReactiveApplicationTests {
+
+	@Autowired
+	WebTestClient client;
+
+	@Autowired
+	CustomerRepository customerRepository;
+
+	@Test
+	void contextLoads() {
+	}
+
+	@Test
+	void bookAndLoanLifecycleTest() {
+		BookDTO book = client.post().uri("/api/books")
+				.bodyValue(new BookDTO(null, "Reativo", "Autor", "reactive-1"))
+				.exchange()
+				.expectStatus().isCreated()
+				.expectBody(BookDTO.class).returnResult().getResponseBody();
+
+		client.post().uri("/api/books")
+				.bodyValue(new BookDTO(null, "Outro", "Autor", "reactive-1"))
+				.exchange()
+				.expectStatus().isBadRequest()
+				.expectBody().jsonPath("errors[0]").isEqualTo("Isbn já cadastrado.");
+
+		Long loanId = client.post().uri("/api/loans")
+				.bodyValue(Map.of("isbn", "reactive-1", "costumer", "Fulano", "email", "fulano@email.com"))
+				.exchange()
+				.expectStatus().isCreated()
+				.expectBody(Long.class).returnResult().getResponseBody();
+
+		client.post().uri("/api/loans")
+				.bodyValue(Map.of("isbn", "reactive-1", "costumer", "Ciclano"))
+				.exchange()
+				.expectStatus().isBadRequest()
+				.expectBody().jsonPath("errors[0]").isEqualTo("Book already loaned");
+
+		client.get().uri("/api/books?isbn=reactive-1&available=false&page=0&size=10")
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("content[0].id").isEqualTo(book.getId())
+				.jsonPath("totalElements").isEqualTo(1);
+
+		client.get().uri("/api/books/" + book.getId() + "/loans?page=0&size=10")
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("content[0].id").isEqualTo(loanId)
+				.jsonPath("content[0].book.isbn").isEqualTo("reactive-1");
+
+		client.get().uri("/api/loans?costumer=Fulano&isbn=reactive-1&page=0&size=10")
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("totalElements").isEqualTo(1)
+				.jsonPath("content[0].costumer").isEqualTo("Fulano")
+				.jsonPath("content[0].email").isEqualTo("fulano@email.com");
+
+		client.patch().uri("/api/loans/" + loanId)
+				.bodyValue(Map.of("returned", true))
+				.exchange()
+				.expectStatus().isOk();
+
+		client.get().uri("/api/books/" + book.getId())
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody().jsonPath("available").isEqualTo(true);
+
+		StepVerifier.create(customerRepository.findByName("Fulano"))
+				.expectNextMatches(customer -> customer.getActiveLoans() == 0 && customer.getTotalLoans() == 1)
+				.verifyComplete();
+	}
+
+	@Test
+	void streamBooksTest() {
+		for (int i = 0; i < 5; i++) {
+			client.post().uri("/api/books")
+					.bodyValue(new BookDTO(null, "Fluxo " + i, "Autor", "stream-" + i))
+					.exchange()
+					.expectStatus().isCreated();
+		}
+
+		Flux<BookDTO> books = client.get().uri("/api/books?isbn=stream-")
+				.accept(MediaType.parseMediaType(WebConfig.NDJSON))
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().contentTypeCompatibleWith(MediaType.parseMediaType(WebConfig.NDJSON))
+				.returnResult(BookDTO.class)
+				.getResponseBody();
+
+		StepVerifier.create(books, 2)
+				.expectNextMatches(book -> book.getIsbn().equals("stream-0"))
+				.expectNextMatches(book -> book.getIsbn().equals("stream-1"))
+				.thenRequest(3)
+				.expectNextCount(3)
+				.verifyComplete();
+	}
+
+	@Test
+	void findBooksDefaultsToPageTest() {
+		client.get().uri("/api/books?page=0&size=1")
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON);
+	}
+}
@@ -0,0 +1,294 @@
+package com.tarssito.libraryapi.reactive.api.controller;
+
+import com.tarssito.libraryapi.reactive.api.dto.BookDTO;
+import com.tarssito.libraryapi.reactive.api.dto.LoanDTO;
+import com.tarssito.libraryapi.reactive.config.WebConfig;
+import com.tarssito.libraryapi.reactive.exception.BusinessException;
+import com.tarssito.libraryapi.reactive.model.entity.Book;
+import com.tarssito.libraryapi.reactive.service.BookService;
+import com.tarssito.libraryapi.reactive.service.LoanService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@WebFluxTest(controllers = BookController.class)
+public class BookControllerTest {
+
+    static final String BOOK_API = "/api/books";
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @MockBean
+    BookService bookService;
+
+    @MockBean
+    LoanService loanService;
+
+    @Test
+    @DisplayName("Deve criar um livro com sucesso")
+    public void createBookTest() {
+        BookDTO dto = createNewBook();
+        Book savedBook = Book.builder()
+                .id(10L)
+                .title("Meu Livro")
+                .author("Autor")
+                .isbn("123123")
+                .build();
+
+        BDDMockito.given(bookService.save(Mockito.any(Book.class))).willReturn(Mono.just(savedBook));
+
+        webTestClient.post().uri(BOOK_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(dto)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("id").isNotEmpty()
+                .jsonPath("title").isEqualTo(dto.getTitle())
+                .jsonPath("author").isEqualTo(dto.getAuthor())
+                .jsonPath("isbn").isEqualTo(dto.getIsbn());
+    }
+
+    @Test
+    @DisplayName("Deve lançar erro de exceção quando não houver dados suficientes para criação do livro")
+    public void createInvalidBookTest() {
+        webTestClient.post().uri(BOOK_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(new BookDTO())
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("errors.length()").isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Deve lançar erro ao tentar cadastrar livro com isbn já utilizado por outro")
+    public void createBookWithDuplicatedIsbn() {
+        String message = "Isbn já cadastrado.";
+        BDDMockito.given(bookService.save(Mockito.any(Book.class)))
+                .willReturn(Mono.error(new BusinessException(message)));
+
+        webTestClient.post().uri(BOOK_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(createNewBook())
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("errors.length()").isEqualTo(1)
+                .jsonPath("errors[0]").isEqualTo(message);
+    }
+
+    @Test
+    @DisplayName("Deve obter informações de um livro.")
+    public void getBookDetailsTest() {
+        Long id = 1L;
+        Book book = Book.builder()
+                .id(id)
+                .author(createNewBook().getAuthor())
+                .title(createNewBook().getTitle())
+                .isbn(createNewBook().getIsbn())
+                .build();
+
+        BDDMockito.given(bookService.getByID(id)).willReturn(Mono.just(book));
+
+        webTestClient.get().uri(BOOK_API.concat("/" + id))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("id").isEqualTo(id)
+                .jsonPath("title").isEqualTo(createNewBook().getTitle())
+                .jsonPath("author").isEqualTo(createNewBook().getAuthor())
+                .jsonPath("isbn").isEqualTo(createNewBook().getIsbn());
+    }
+
+    @Test
+    @DisplayName("Deve retornar resource not found quando o livro procurado não existir.")
+    public void bookNotFoundTest() {
+        BDDMockito.given(bookService.getByID(Mockito.anyLong())).willReturn(Mono.empty());
+
+        webTestClient.get().uri(BOOK_API.concat("/" + 1))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    @DisplayName("Deve deletar um livro.")
+    public void deleteBookTest() {
+        Book book = Book.builder().id(1L).build();
+        BDDMockito.given(bookService.getByID(Mockito.anyLong())).willReturn(Mono.just(book));
+        BDDMockito.given(bookService.delete(book)).willReturn(Mono.empty());
+
+        webTestClient.delete().uri(BOOK_API.concat("/" + 1))
+                .exchange()
+                .expectStatus().isNoContent();
+
+        Mockito.verify(bookService).delete(book);
+    }
+
+    @Test
+    @DisplayName("Deve retornar resource not found quando não encontrar o livro para deletar.")
+    public void deleteNotFoundBookTest() {
+        BDDMockito.given(bookService.getByID(Mockito.anyLong())).willReturn(Mono.empty());
+
+        webTestClient.delete().uri(BOOK_API.concat("/" + 1))
+                .exchange()
+                .expectStatus().isNotFound();
+
+        Mockito.verify(bookService, Mockito.never()).delete(Mockito.any());
+    }
+
+    @Test
+    @DisplayName("Deve atualizar um livro.")
+    public void updateBookTest() {
+        Long id = 1L;
+        Book updatingBook = Book.builder()
+                .id(id)
+                .title("some title")
+                .author("some author")
+                .isbn("321")
+                .build();
+        BDDMockito.given(bookService.getByID(id)).willReturn(Mono.just(updatingBook));
+
+        Book updatedBook = Book.builder()
+                .id(id)
+                .title("Meu Livro")
+                .author("Autor")
+                .isbn("321")
+                .build();
+        BDDMockito.given(bookService.update(updatingBook)).willReturn(Mono.just(updatedBook));
+
+        webTestClient.put().uri(BOOK_API.concat("/" + 1))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(createNewBook())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("id").isEqualTo(id)
+                .jsonPath("title").isEqualTo(createNewBook().getTitle())
+                .jsonPath("author").isEqualTo(createNewBook().getAuthor())
+                .jsonPath("isbn").isEqualTo("321");
+    }
+
+    @Test
+    @DisplayName("Deve retornar resource not found quando não encontrar o livro para atualizar.")
+    public void updateNotFoundBookTest() {
+        BDDMockito.given(bookService.getByID(Mockito.anyLong())).willReturn(Mono.empty());
+
+        webTestClient.put().uri(BOOK_API.concat("/" + 1))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(createNewBook())
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    @DisplayName("Deve filtrar livros")
+    public void findBookTest() {
+        Book book = Book.builder()
+                .id(1L)
+                .title(createNewBook().getTitle())
+                .author(createNewBook().getAuthor())
+                .isbn(createNewBook().getIsbn())
+                .build();
+
+        BDDMockito.given(bookService.find(Mockito.any(Book.class), Mockito.any(Pageable.class)))
+                .willReturn(Mono.just(new PageImpl<>(List.of(book), PageRequest.of(0, 100), 1)));
+
+        String queryString = String.format("?title=%s&author=%s&page=0&size=100",
+                book.getTitle(), book.getAuthor());
+
+        webTestClient.get().uri(BOOK_API.concat(queryString))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("content.length()").isEqualTo(1)
+                .jsonPath("totalElements").isEqualTo(1)
+                .jsonPath("pageable.pageSize").isEqualTo(100)
+                .jsonPath("pageable.pageNumber").isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("Deve transmitir os livros filtrados como JSON delimitado por linhas, sob demanda do cliente")
+    public void streamBooksTest() {
+        Flux<Book> books = Flux.range(1, 3)
+                .map(id -> Book.builder().id((long) id).title("Livro " + id).author("Autor").isbn("isbn-" + id).build());
+        BDDMockito.given(bookService.stream(Mockito.any(Book.class))).willReturn(books);
+
+        Flux<BookDTO> body = webTestClient.get().uri(BOOK_API.concat("?author=Autor"))
+                .accept(MediaType.parseMediaType(WebConfig.NDJSON))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.parseMediaType(WebConfig.NDJSON))
+                .returnResult(BookDTO.class)
+                .getResponseBody();
+
+        StepVerifier.create(body, 1)
+                .expectNextMatches(dto -> dto.getIsbn().equals("isbn-1"))
+                .thenRequest(2)
+                .expectNextCount(2)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Deve transmitir os empréstimos de um livro como JSON delimitado por linhas")
+    public void streamLoansByBookTest() {
+        BDDMockito.given(bookService.getByID(1L)).willReturn(Mono.just(Book.builder().id(1L).build()));
+        BDDMockito.given(loanService.streamDTOByBook(1L)).willReturn(Flux.just(
+                new LoanDTO(1L, "Fulano", "fulano@email.com", 1L, "Livro", "Autor", "123"),
+                new LoanDTO(2L, "Ciclano", "ciclano@email.com", 1L, "Livro", "Autor", "123")));
+
+        webTestClient.get().uri(BOOK_API.concat("/1/loans"))
+                .accept(MediaType.parseMediaType(WebConfig.NDJSON))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(LoanDTO.class)
+                .hasSize(2);
+    }
+
+    @Test
+    @DisplayName("Deve retornar resource not found ao buscar empréstimos de um livro inexistente")
+    public void loansByBookNotFoundTest() {
+        BDDMockito.given(bookService.getByID(Mockito.anyLong())).willReturn(Mono.empty());
+
+        webTestClient.get().uri(BOOK_API.concat("/1/loans?page=0&size=10"))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    private BookDTO createNewBook() {
+        return BookDTO.builder()
+                .title("Meu Livro")
+                .author("Autor")
+                .isbn("123123")
+                .build();
+    }
+}
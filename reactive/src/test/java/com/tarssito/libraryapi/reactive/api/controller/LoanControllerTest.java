@@ -0,0 +1,188 @@
+package com.tarssito.libraryapi.reactive.api.controller;
+
+import com.tarssito.libraryapi.reactive.api.dto.LoanDTO;
+import com.tarssito.libraryapi.reactive.api.dto.LoanFilterDTO;
+import com.tarssito.libraryapi.reactive.api.dto.ReturnedLoanDTO;
+import com.tarssito.libraryapi.reactive.config.WebConfig;
+import com.tarssito.libraryapi.reactive.exception.BusinessException;
+import com.tarssito.libraryapi.reactive.model.entity.Book;
+import com.tarssito.libraryapi.reactive.model.entity.Customer;
+import com.tarssito.libraryapi.reactive.model.entity.Loan;
+import com.tarssito.libraryapi.reactive.service.BookService;
+import com.tarssito.libraryapi.reactive.service.LoanService;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@WebFluxTest(controllers = LoanController.class)
+public class LoanControllerTest {
+
+    static final String LOAN_API = "/api/loans";
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @MockBean
+    private BookService bookService;
+    @MockBean
+    private LoanService loanService;
+
+    @Test
+    @DisplayName("Deve realizar um empréstimo")
+    public void createLoanTest() {
+        Book book = Book.builder().id(1L).isbn("123").build();
+        BDDMockito.given(bookService.getBookByIsbn("123")).willReturn(Mono.just(book));
+
+        Loan loan = Loan.builder()
+                .id(1L)
+                .customer(Customer.builder().name("Fulano").email("costumer@teste.com").build())
+                .bookId(book.getId())
+                .loanDate(LocalDate.now())
+                .build();
+        BDDMockito.given(loanService.save(Mockito.any(Loan.class))).willReturn(Mono.just(loan));
+
+        webTestClient.post().uri(LOAN_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(LoanDTO.builder().isbn("123").costumer("Fulano").build())
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(String.class).isEqualTo("1");
+    }
+
+    @Test
+    @DisplayName("Deve retornar erro ao tentar fazer empréstimo de um livro inexistente")
+    public void invalidIsbnCreateLoanTest() {
+        BDDMockito.given(bookService.getBookByIsbn("345")).willReturn(Mono.empty());
+
+        webTestClient.post().uri(LOAN_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(LoanDTO.builder().isbn("345").costumer("Fulano").build())
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("errors.length()").isEqualTo(1)
+                .jsonPath("errors[0]").isEqualTo("Book not found for passed isbn");
+    }
+
+    @Test
+    @DisplayName("Deve retornar erro ao tentar fazer empréstimo de um livro já emprestado")
+    public void loanedBookErrorOnCreateLoanTest() {
+        Book book = Book.builder().id(1L).isbn("123").build();
+        BDDMockito.given(bookService.getBookByIsbn("123")).willReturn(Mono.just(book));
+        BDDMockito.given(loanService.save(Mockito.any(Loan.class)))
+                .willReturn(Mono.error(new BusinessException("Book already loaned")));
+
+        webTestClient.post().uri(LOAN_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(LoanDTO.builder().isbn("123").costumer("Fulano").build())
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("errors[0]").isEqualTo("Book already loaned");
+    }
+
+    @Test
+    @DisplayName("Deve retornar um livro")
+    public void returnBookTest() {
+        Loan loan = Loan.builder().id(1L).bookId(1L).build();
+        BDDMockito.given(loanService.getById(Mockito.anyLong())).willReturn(Mono.just(loan));
+        BDDMockito.given(loanService.update(loan)).willReturn(Mono.just(loan));
+
+        webTestClient.patch().uri(LOAN_API.concat("/1"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(ReturnedLoanDTO.builder().returned(true).build())
+                .exchange()
+                .expectStatus().isOk();
+
+        Mockito.verify(loanService, Mockito.times(1)).update(loan);
+        Assertions.assertThat(loan.getReturned()).isTrue();
+        Assertions.assertThat(loan.getOpenBookId()).isNull();
+    }
+
+    @Test
+    @DisplayName("Deve retornar 404 quando tentar devolver um livro inexistente")
+    public void returnInexistentBookTest() {
+        BDDMockito.given(loanService.getById(Mockito.anyLong())).willReturn(Mono.empty());
+
+        webTestClient.patch().uri(LOAN_API.concat("/1"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(ReturnedLoanDTO.builder().returned(true).build())
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    @DisplayName("Deve obter um empréstimo com seu livro")
+    public void getLoanTest() {
+        BDDMockito.given(loanService.getDTOById(1L)).willReturn(
+                Mono.just(new LoanDTO(1L, "Fulano", "fulano@email.com", 1L, "Livro", "Autor", "321")));
+
+        webTestClient.get().uri(LOAN_API.concat("/1"))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("id").isEqualTo(1)
+                .jsonPath("book.isbn").isEqualTo("321");
+    }
+
+    @Test
+    @DisplayName("Deve filtrar empréstimos")
+    public void findLoansTest() {
+        LoanDTO loanDTO = new LoanDTO(1L, "Fulano", "fulano@email.com", 1L, null, null, "321");
+
+        BDDMockito.given(loanService.findDTO(Mockito.any(LoanFilterDTO.class), Mockito.any(Pageable.class)))
+                .willReturn(Mono.just(new PageImpl<>(List.of(loanDTO), PageRequest.of(0, 10), 1)));
+
+        webTestClient.get().uri(LOAN_API.concat("?isbn=321&costumer=Fulano&page=0&size=10"))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("content.length()").isEqualTo(1)
+                .jsonPath("content[0].book.isbn").isEqualTo("321")
+                .jsonPath("totalElements").isEqualTo(1)
+                .jsonPath("pageable.pageSize").isEqualTo(10)
+                .jsonPath("pageable.pageNumber").isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("Deve transmitir os empréstimos filtrados como JSON delimitado por linhas")
+    public void streamLoansTest() {
+        BDDMockito.given(loanService.streamDTO(Mockito.any(LoanFilterDTO.class))).willReturn(Flux.just(
+                new LoanDTO(1L, "Fulano", "fulano@email.com", 1L, null, null, "321"),
+                new LoanDTO(2L, "Fulano", "fulano@email.com", 2L, null, null, "654")));
+
+        webTestClient.get().uri(LOAN_API.concat("?costumer=Fulano"))
+                .accept(MediaType.parseMediaType(WebConfig.NDJSON))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(LoanDTO.class)
+                .hasSize(2);
+    }
+}
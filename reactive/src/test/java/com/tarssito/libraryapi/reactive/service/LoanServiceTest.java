@@ -0,0 +1,62 @@
+package com.tarssito.libraryapi.reactive.service;
+
+import com.tarssito.libraryapi.reactive.model.entity.Book;
+import com.tarssito.libraryapi.reactive.model.entity.Customer;
+import com.tarssito.libraryapi.reactive.model.entity.Loan;
+import com.tarssito.libraryapi.reactive.model.repository.CustomerRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDate;
+
+/**
+ * Runs on a database of its own, as the migrations only apply to a new one.
+ */
+@SpringBootTest(properties = "spring.r2dbc.url=r2dbc:h2:mem:///loan-service?options=DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE")
+@ActiveProfiles("test")
+public class LoanServiceTest {
+
+    @Autowired
+    LoanService loanService;
+
+    @Autowired
+    BookService bookService;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Test
+    @DisplayName("Não deve substituir o email já cadastrado de um costumer com o mesmo nome")
+    public void saveLoanKeepsCustomerEmailTest() {
+        StepVerifier.create(checkout("email-1", "Beltrano", "beltrano@email.com")
+                .then(checkout("email-2", "Beltrano", "outro@email.com"))
+                .then(customerRepository.findByName("Beltrano")))
+                .expectNextMatches(customer -> customer.getEmail().equals("beltrano@email.com")
+                        && customer.getTotalLoans() == 2)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Deve preencher o email de um costumer cadastrado sem email")
+    public void saveLoanFillsMissingCustomerEmailTest() {
+        StepVerifier.create(checkout("email-3", "Deltrano", null)
+                .then(checkout("email-4", "Deltrano", "deltrano@email.com"))
+                .then(customerRepository.findByName("Deltrano")))
+                .expectNextMatches(customer -> customer.getEmail().equals("deltrano@email.com"))
+                .verifyComplete();
+    }
+
+    private Mono<Loan> checkout(String isbn, String costumer, String email) {
+        return bookService.save(Book.builder().title("Livro " + isbn).author("Autor").isbn(isbn).build())
+                .flatMap(book -> loanService.save(Loan.builder()
+                        .bookId(book.getId())
+                        .customer(Customer.builder().name(costumer).email(email).build())
+                        .loanDate(LocalDate.now())
+                        .build()));
+    }
+}
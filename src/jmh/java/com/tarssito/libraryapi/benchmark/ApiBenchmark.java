@@ -0,0 +1,58 @@
+package com.tarssito.libraryapi.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Full MockMvc round trips: argument binding, service, repository, mapping
+ * and JSON serialization.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ApiBenchmark {
+
+    @Benchmark
+    public MvcResult findBooks(SeededApplication application) throws Exception {
+        return application.mockMvc.perform(get("/api/books")
+                .param("author", "Autor " + application.randomBookId() % 5000)
+                .param("page", "0")
+                .param("size", "20")
+                .accept(MediaType.APPLICATION_JSON))
+                .andReturn();
+    }
+
+    @Benchmark
+    public MvcResult getBook(SeededApplication application) throws Exception {
+        return application.mockMvc.perform(get("/api/books/" + application.randomBookId())
+                .accept(MediaType.APPLICATION_JSON))
+                .andReturn();
+    }
+
+    @Benchmark
+    public MvcResult loansByBook(SeededApplication application) throws Exception {
+        return application.mockMvc.perform(get("/api/books/" + application.randomBookId() + "/loans")
+                .param("page", "0")
+                .param("size", "10")
+                .accept(MediaType.APPLICATION_JSON))
+                .andReturn();
+    }
+
+    @Benchmark
+    public MvcResult findLoans(SeededApplication application) throws Exception {
+        return application.mockMvc.perform(get("/api/loans")
+                .param("isbn", application.randomIsbn())
+                .param("costumer", application.randomCostumer())
+                .param("page", "0")
+                .param("size", "10")
+                .accept(MediaType.APPLICATION_JSON))
+                .andReturn();
+    }
+}
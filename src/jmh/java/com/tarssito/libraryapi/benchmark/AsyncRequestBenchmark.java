@@ -0,0 +1,59 @@
+package com.tarssito.libraryapi.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test over real HTTP: many concurrent clients hitting the embedded
+ * Tomcat with and without the {@code Prefer: respond-async} header. Compare
+ * the p99 of both modes at the same thread count, then raise {@code -t}
+ * until the async mode reaches the sync p99.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(256)
+@Fork(1)
+public class AsyncRequestBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Client {
+        HttpClient http;
+        String baseUrl;
+
+        @Setup(Level.Trial)
+        public void start(SeededApplication application) {
+            http = HttpClient.newBuilder()
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            baseUrl = "http://localhost:" + application.port() + "/api/books/";
+        }
+
+        int send(long bookId, boolean async) throws IOException, InterruptedException {
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + bookId + "/loans?page=0&size=10"))
+                    .header("Accept", "application/json");
+            if (async) {
+                request.header("Prefer", "respond-async");
+            }
+            return http.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+        }
+    }
+
+    @Benchmark
+    public int loansByBookSync(SeededApplication application, Client client) throws Exception {
+        return client.send(application.randomBookId(), false);
+    }
+
+    @Benchmark
+    public int loansByBookAsync(SeededApplication application, Client client) throws Exception {
+        return client.send(application.randomBookId(), true);
+    }
+}
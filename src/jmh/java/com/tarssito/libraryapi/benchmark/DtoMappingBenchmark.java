@@ -0,0 +1,88 @@
+package com.tarssito.libraryapi.benchmark;
+
+import com.tarssito.libraryapi.api.dto.BookDTO;
+import com.tarssito.libraryapi.api.dto.LoanDTO;
+import com.tarssito.libraryapi.api.mapper.BookMapper;
+import com.tarssito.libraryapi.api.mapper.LoanMapper;
+import com.tarssito.libraryapi.model.entity.Book;
+import com.tarssito.libraryapi.model.entity.Customer;
+import com.tarssito.libraryapi.model.entity.Loan;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the reflective ModelMapper path previously used by the controllers
+ * with the hand-written mappers, over a page of loans as built by
+ * {@code BookController.loansByBook} and {@code LoanController.find}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DtoMappingBenchmark {
+
+    @Param({"20", "100"})
+    private int pageSize;
+
+    private List<Loan> loans;
+    private ModelMapper modelMapper;
+    private BookMapper bookMapper;
+    private LoanMapper loanMapper;
+
+    @Setup
+    public void setUp() {
+        modelMapper = new ModelMapper();
+        bookMapper = new BookMapper();
+        loanMapper = new LoanMapper(bookMapper);
+
+        loans = new ArrayList<>(pageSize);
+        for (long i = 0; i < pageSize; i++) {
+            Book book = Book.builder().id(i).title("Titulo " + i).author("Autor").isbn("isbn-" + i).build();
+            loans.add(Loan.builder()
+                    .id(i)
+                    .customer(Customer.builder().id(1L).name("Fulano").email("fulano@email.com").build())
+                    .book(book)
+                    .loanDate(LocalDate.now())
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public void modelMapperLoanPage(Blackhole blackhole) {
+        for (Loan loan : loans) {
+            BookDTO bookDTO = modelMapper.map(loan.getBook(), BookDTO.class);
+            LoanDTO loanDTO = modelMapper.map(loan, LoanDTO.class);
+            loanDTO.setBook(bookDTO);
+            blackhole.consume(loanDTO);
+        }
+    }
+
+    @Benchmark
+    public void loanMapperLoanPage(Blackhole blackhole) {
+        for (Loan loan : loans) {
+            blackhole.consume(loanMapper.toDTO(loan));
+        }
+    }
+
+    @Benchmark
+    public void modelMapperBookPage(Blackhole blackhole) {
+        for (Loan loan : loans) {
+            blackhole.consume(modelMapper.map(loan.getBook(), BookDTO.class));
+        }
+    }
+
+    @Benchmark
+    public void bookMapperBookPage(Blackhole blackhole) {
+        for (Loan loan : loans) {
+            blackhole.consume(bookMapper.toDTO(loan.getBook()));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.tarssito.libraryapi.benchmark;
+
+import ch.qos.logback.classic.Logger;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetup;
+import com.tarssito.libraryapi.service.impl.EmailServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Send throughput against an in-process GreenMail server: the delivery
+ * engine versus the previous path, one {@code JavaMailSender.send} and one
+ * SMTP session per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MailDeliveryBenchmark {
+
+    private static final int SMTP_PORT = 3125;
+
+    @Param({"1", "4"})
+    private int senders;
+
+    @Param({"50"})
+    private int recipients;
+
+    private GreenMail greenMail;
+    private JavaMailSenderImpl mailSender;
+    private EmailServiceImpl emailService;
+    private List<String> emails;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(ch.qos.logback.classic.Level.WARN);
+        greenMail = new GreenMail(new ServerSetup(SMTP_PORT, "localhost", ServerSetup.PROTOCOL_SMTP));
+        greenMail.start();
+        mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(SMTP_PORT);
+        // skip the local host name lookups done for every EHLO and Message-ID
+        mailSender.getJavaMailProperties().setProperty("mail.smtp.localhost", "localhost");
+        mailSender.getJavaMailProperties().setProperty("mail.host", "localhost");
+
+        emailService = new EmailServiceImpl(mailSender, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(emailService, "sender", "mail@library-api.com");
+        ReflectionTestUtils.setField(emailService, "queueCapacity", 10000);
+        ReflectionTestUtils.setField(emailService, "senders", senders);
+        ReflectionTestUtils.setField(emailService, "offerTimeoutMillis", 5000L);
+        ReflectionTestUtils.setField(emailService, "idleTimeoutMillis", 10000L);
+        emailService.start();
+
+        emails = IntStream.range(0, recipients)
+                .mapToObj(i -> "cliente-" + i + "@email.com")
+                .collect(Collectors.toList());
+    }
+
+    @TearDown(Level.Iteration)
+    public void purge() throws Exception {
+        greenMail.purgeEmailFromAllMailboxes();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        emailService.stop();
+        greenMail.stop();
+    }
+
+    @Benchmark
+    public void deliveryEngine() {
+        emailService.sendMails("Atenção!", emails).join();
+    }
+
+    @Benchmark
+    public void sessionPerMessage() {
+        for (String email : emails) {
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setFrom("mail@library-api.com");
+            message.setSubject("Livro com empréstimo atrasado.");
+            message.setText("Atenção!");
+            message.setTo(email);
+            mailSender.send(message);
+        }
+    }
+}
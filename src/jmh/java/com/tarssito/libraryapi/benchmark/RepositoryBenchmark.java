@@ -0,0 +1,50 @@
+package com.tarssito.libraryapi.benchmark;
+
+import com.tarssito.libraryapi.model.entity.Customer;
+import com.tarssito.libraryapi.model.entity.Loan;
+import com.tarssito.libraryapi.model.repository.CustomerRepository;
+import com.tarssito.libraryapi.model.repository.LoanRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    @Benchmark
+    public List<Loan> findByBookOrCustomerFirstPage(SeededApplication application) {
+        return findByBookOrCustomer(application, 0);
+    }
+
+    @Benchmark
+    public List<Loan> findByBookOrCustomerDeepPage(SeededApplication application) {
+        return findByBookOrCustomer(application, 20);
+    }
+
+    @Benchmark
+    public Page<Loan> findByCustomerFirstPage(SeededApplication application) {
+        Customer customer = application.getBean(CustomerRepository.class)
+                .findByName(application.randomCostumer()).orElseThrow();
+        return application.getBean(LoanRepository.class).findByCustomer(customer, PageRequest.of(0, 10));
+    }
+
+    // book x has isbn-x, so the random book id stands for the isbn lookup
+    private List<Loan> findByBookOrCustomer(SeededApplication application, int page) {
+        Customer customer = application.getBean(CustomerRepository.class)
+                .findByName(application.randomCostumer()).orElseThrow();
+        LoanRepository repository = application.getBean(LoanRepository.class);
+        List<Long> ids = repository.findIdsByBookOrCustomer(
+                application.randomBookId(), customer.getId(), PageRequest.of(page, 10)).getContent().stream()
+                .map(Number::longValue)
+                .collect(Collectors.toList());
+        return repository.findAllWithBookByIdIn(ids);
+    }
+}
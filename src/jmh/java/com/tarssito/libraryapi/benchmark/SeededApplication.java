@@ -0,0 +1,97 @@
+package com.tarssito.libraryapi.benchmark;
+
+import com.tarssito.libraryapi.LibraryApiApplication;
+import com.tarssito.libraryapi.service.BookSearchIndex;
+import com.tarssito.libraryapi.service.LoanedBookIndex;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Boots the whole application against an in-memory H2 database seeded with
+ * {@code rows} books. Half of the books get a loan, every other one of them
+ * still open, spread over 1000 costumers and the last 30 days.
+ */
+@State(Scope.Benchmark)
+public class SeededApplication {
+
+    static final int COSTUMERS = 1000;
+
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    ConfigurableApplicationContext context;
+    MockMvc mockMvc;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(LibraryApiApplication.class)
+                .web(WebApplicationType.SERVLET)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                        "spring.main.banner-mode=off",
+                        "server.port=0",
+                        "logging.level.root=WARN",
+                        "logging.file.name=")
+                .run();
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+        seed(context.getBean(JdbcTemplate.class));
+        context.getBean(LoanedBookIndex.class).warmUp();
+        context.getBean(BookSearchIndex.class).warmUp();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    int port() {
+        return Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+    }
+
+    <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    long randomBookId() {
+        return ThreadLocalRandom.current().nextLong(1, rows + 1);
+    }
+
+    String randomIsbn() {
+        return "isbn-" + randomBookId();
+    }
+
+    String randomCostumer() {
+        return "cliente-" + ThreadLocalRandom.current().nextInt(COSTUMERS);
+    }
+
+    private void seed(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.update("insert into book (id, title, author, isbn, version) " +
+                "select x, 'Livro ' || x, 'Autor ' || mod(x, 5000), 'isbn-' || x, 0 " +
+                "from system_range(1, ?)", rows);
+        jdbcTemplate.update("insert into customer (id, name, email) " +
+                "select x + 1, 'cliente-' || x, 'cliente-' || x || '@email.com' from system_range(0, ?)", COSTUMERS - 1);
+        jdbcTemplate.update("insert into loan (id, id_book, id_customer, loan_date, due_date, returned, open_book_id, version) " +
+                "select x, x, mod(x, " + COSTUMERS + ") + 1, " +
+                "dateadd('DAY', -mod(x, 30), current_date), dateadd('DAY', 4 - mod(x, 30), current_date), " +
+                "mod(x, 2) = 0, case when mod(x, 2) = 0 then null else x end, 0 " +
+                "from system_range(1, ?)", rows / 2);
+        // loan x is the open loan of book x for every odd x
+        jdbcTemplate.update("update book set current_loan_id = id, available = false " +
+                "where id <= ? and mod(id, 2) = 1", rows / 2);
+        jdbcTemplate.update("update customer c set " +
+                "total_loans = (select count(*) from loan l where l.id_customer = c.id), " +
+                "active_loans = (select count(*) from loan l where l.id_customer = c.id and l.returned = false)");
+        // book, loan and customer ids come from pooled sequences: each value is the upper bound of a block of 50
+        jdbcTemplate.execute("alter sequence book_seq restart with " + (rows + 50));
+        jdbcTemplate.execute("alter sequence loan_seq restart with " + (rows / 2 + 50));
+        jdbcTemplate.execute("alter sequence customer_seq restart with " + (COSTUMERS + 50));
+    }
+}
@@ -0,0 +1,65 @@
+package com.tarssito.libraryapi.benchmark;
+
+import com.tarssito.libraryapi.model.entity.Book;
+import com.tarssito.libraryapi.model.entity.Customer;
+import com.tarssito.libraryapi.model.entity.Loan;
+import com.tarssito.libraryapi.service.BookService;
+import com.tarssito.libraryapi.service.LoanService;
+import com.tarssito.libraryapi.service.LoanedBookIndex;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceBenchmark {
+
+    /**
+     * Hands out books that were seeded without a loan. When all of them
+     * have been loaned the benchmark's own loans are marked as returned,
+     * so the availability check keeps passing.
+     */
+    @State(Scope.Benchmark)
+    public static class FreeBooks {
+        private long next;
+
+        synchronized Book next(SeededApplication application) {
+            long first = application.rows / 2 + 1;
+            if (next < first || next > application.rows) {
+                application.getBean(JdbcTemplate.class)
+                        .update("update loan set returned = true, open_book_id = null where id > ?", application.rows / 2);
+                application.getBean(JdbcTemplate.class)
+                        .update("update book set current_loan_id = null, available = true where id >= ?", first);
+                for (long id = first; id <= application.rows; id++) {
+                    application.getBean(LoanedBookIndex.class).release(id);
+                }
+                next = first;
+            }
+            // a versioned entity without a version would be taken for a transient one
+            return Book.builder().id(next++).version(0L).build();
+        }
+    }
+
+    @Benchmark
+    public Page<Book> bookServiceFind(SeededApplication application) {
+        Book filter = Book.builder().title("Livro " + application.randomBookId()).build();
+        return application.getBean(BookService.class).find(filter, PageRequest.of(0, 20));
+    }
+
+    @Benchmark
+    public Loan loanServiceSave(SeededApplication application, FreeBooks freeBooks) {
+        Loan loan = Loan.builder()
+                .book(freeBooks.next(application))
+                .customer(Customer.builder().name(application.randomCostumer()).build())
+                .loanDate(LocalDate.now())
+                .build();
+        return application.getBean(LoanService.class).save(loan);
+    }
+}
@@ -1,18 +1,37 @@
 package com.tarssito.libraryapi;
 
-import org.modelmapper.ModelMapper;
+import com.tarssito.libraryapi.api.mapper.BookMapper;
+import com.tarssito.libraryapi.api.mapper.LoanMapper;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
+import java.time.Clock;
+
 @SpringBootApplication
 @EnableScheduling
+@EnableCaching
 public class LibraryApiApplication {
 
 	@Bean
-	public ModelMapper modelMapper() {
-		return new ModelMapper();
+	public BookMapper bookMapper() {
+		return new BookMapper();
+	}
+
+	/**
+	 * Maps its books with a mapper of its own rather than the bean, which is
+	 * proxied for metrics, to keep a proxy call out of every row.
+	 */
+	@Bean
+	public LoanMapper loanMapper() {
+		return new LoanMapper(new BookMapper());
+	}
+
+	@Bean
+	public Clock clock() {
+		return Clock.systemDefaultZone();
 	}
 
 
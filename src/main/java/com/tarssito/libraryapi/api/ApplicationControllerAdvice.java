@@ -2,6 +2,9 @@ package com.tarssito.libraryapi.api;
 
 import com.tarssito.libraryapi.api.exception.ApiErrors;
 import com.tarssito.libraryapi.exception.BusinessException;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
@@ -11,12 +14,15 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.List;
+
 @RestControllerAdvice
 public class ApplicationControllerAdvice {
 
     @ExceptionHandler(MethodArgumentNotValidException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ApiErrors handleValidationExceptions(MethodArgumentNotValidException ex) {
+        countError(ex, HttpStatus.BAD_REQUEST);
         BindingResult bindingResult = ex.getBindingResult();
         return new ApiErrors(bindingResult);
     }
@@ -24,11 +30,33 @@ public class ApplicationControllerAdvice {
     @ExceptionHandler(BusinessException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ApiErrors handleBusinessException(BusinessException ex) {
+        countError(ex, HttpStatus.BAD_REQUEST);
         return new ApiErrors(ex);
     }
 
     @ExceptionHandler(ResponseStatusException.class)
     public ResponseEntity handleResponseStatusException(ResponseStatusException ex) {
+        countError(ex, ex.getStatus());
         return new ResponseEntity(new ApiErrors(ex), ex.getStatus());
     }
+
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity handleTaskRejectedException(TaskRejectedException ex) {
+        countError(ex, HttpStatus.SERVICE_UNAVAILABLE);
+        return new ResponseEntity(new ApiErrors(List.of("Server busy, retry later")), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity handleOptimisticLockingFailureException(OptimisticLockingFailureException ex) {
+        countError(ex, HttpStatus.PRECONDITION_FAILED);
+        return new ResponseEntity(new ApiErrors(List.of("Resource was modified, reload and retry")),
+                HttpStatus.PRECONDITION_FAILED);
+    }
+
+    private void countError(Exception ex, HttpStatus status) {
+        Metrics.counter("library.api.errors",
+                "exception", ex.getClass().getSimpleName(),
+                "status", String.valueOf(status.value()))
+                .increment();
+    }
 }
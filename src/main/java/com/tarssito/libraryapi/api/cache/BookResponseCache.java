@@ -0,0 +1,113 @@
+package com.tarssito.libraryapi.api.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tarssito.libraryapi.service.BookChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import javax.servlet.http.HttpServletRequest;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serialized bodies of the book responses, bounded by their size in bytes.
+ * <p>
+ * Entries are dropped once a change of the books they show is committed: any
+ * catalogue change drops them all, a checkout or a return only the ones
+ * showing one of its books or filtered on availability. A response read
+ * while a change was being committed is never stored.
+ */
+@Component
+public class BookResponseCache {
+
+    static final String NAME = "bookResponses";
+
+    static final String BOOK_IDS = BookResponseCache.class.getName() + ".BOOK_IDS";
+
+    private final Cache<String, Entry> cache;
+    private final AtomicLong generation = new AtomicLong();
+
+    public BookResponseCache(MeterRegistry meterRegistry,
+                             @Value("${application.web.book-response-cache.max-size:64MB}") DataSize maxSize,
+                             @Value("${application.web.book-response-cache.ttl:10m}") Duration ttl) {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String key, Entry entry) -> key.length() + entry.getBody().length)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        // same tag keys as the meters of the spring caches, as prometheus requires
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, NAME, Tags.of("cacheManager", NAME, "name", NAME));
+    }
+
+    /**
+     * Records the ids of the books shown in the response, so that it is only
+     * dropped on checkouts and returns of those books. A response without
+     * them is taken to show every book.
+     */
+    public static void setBookIds(WebRequest request, Set<Long> bookIds) {
+        // on the native request, as the async variants get here once the request is no longer active
+        HttpServletRequest servletRequest = ((NativeWebRequest) request).getNativeRequest(HttpServletRequest.class);
+        if (servletRequest != null) {
+            servletRequest.setAttribute(BOOK_IDS, bookIds);
+        }
+    }
+
+    public Entry get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    /**
+     * Marks the start of a read whose response may be stored with
+     * {@link #put}.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Stores the response unless a change was committed since its read
+     * started at {@code generation}.
+     */
+    public void put(String key, Entry entry, long generation) {
+        cache.put(key, entry);
+        if (this.generation.get() != generation) {
+            cache.invalidate(key);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        generation.incrementAndGet();
+        if (event.isAvailabilityOnly()) {
+            cache.asMap().values().removeIf(entry -> entry.showsAvailabilityOf(event.getBookIds()));
+        } else {
+            cache.invalidateAll();
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Entry {
+        private final String contentType;
+        private final String eTag;
+        private final byte[] body;
+        private final Set<Long> bookIds;
+        private final boolean filteredOnAvailability;
+
+        boolean showsAvailabilityOf(Set<Long> changedBookIds) {
+            return bookIds == null || filteredOnAvailability || changedBookIds.stream().anyMatch(bookIds::contains);
+        }
+    }
+}
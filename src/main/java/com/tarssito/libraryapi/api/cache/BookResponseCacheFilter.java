@@ -0,0 +1,116 @@
+package com.tarssito.libraryapi.api.cache;
+
+import org.springframework.boot.autoconfigure.data.web.SpringDataWebProperties;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Answers {@code GET /api/books} and {@code GET /api/books/{id}} from the
+ * {@link BookResponseCache}: a hit is written straight to the servlet output
+ * stream, or answered with 304 when {@code If-None-Match} holds its ETag,
+ * without reaching the controller. A miss goes through and its JSON body is
+ * stored on the way out.
+ * <p>
+ * Requests are keyed by path and query parameters sorted by name, with the
+ * page and size defaults filled in, so equivalent query strings share an
+ * entry.
+ */
+public class BookResponseCacheFilter extends OncePerRequestFilter {
+
+    private static final Pattern BOOK_PATH = Pattern.compile("/api/books(/\\d+)?");
+    private static final String AVAILABLE = "available";
+    private static final String PREFER = "Prefer";
+
+    private final BookResponseCache cache;
+    private final SpringDataWebProperties.Pageable pageable;
+
+    public BookResponseCacheFilter(BookResponseCache cache, SpringDataWebProperties properties) {
+        this.cache = cache;
+        this.pageable = properties.getPageable();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.GET.matches(request.getMethod())
+                || !BOOK_PATH.matcher(request.getRequestURI().substring(request.getContextPath().length())).matches();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String key = key(request);
+        BookResponseCache.Entry entry = cache.get(key);
+        if (entry != null) {
+            write(entry, request, response);
+            return;
+        }
+        if (request.getHeader(PREFER) != null) {
+            // the async variants write their body after this filter returns
+            chain.doFilter(request, response);
+            return;
+        }
+        long generation = cache.generation();
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        chain.doFilter(request, wrapper);
+        if (wrapper.getStatus() == HttpStatus.OK.value() && isJson(wrapper.getContentType())
+                && !request.isAsyncStarted()) {
+            @SuppressWarnings("unchecked")
+            Set<Long> bookIds = (Set<Long>) request.getAttribute(BookResponseCache.BOOK_IDS);
+            cache.put(key, new BookResponseCache.Entry(wrapper.getContentType(), wrapper.getHeader(HttpHeaders.ETAG),
+                    wrapper.getContentAsByteArray(), bookIds, request.getParameter(AVAILABLE) != null), generation);
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    private void write(BookResponseCache.Entry entry, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        if (entry.getETag() != null) {
+            if (new ServletWebRequest(request, response).checkNotModified(entry.getETag())) {
+                return;
+            }
+            response.setHeader(HttpHeaders.ETAG, entry.getETag());
+        }
+        response.setContentType(entry.getContentType());
+        response.setContentLength(entry.getBody().length);
+        response.getOutputStream().write(entry.getBody());
+    }
+
+    String key(HttpServletRequest request) {
+        Map<String, String[]> parameters = new TreeMap<>(request.getParameterMap());
+        int firstPage = pageable.isOneIndexedParameters() ? 1 : 0;
+        parameters.putIfAbsent(pageable.getPageParameter(), new String[]{String.valueOf(firstPage)});
+        parameters.putIfAbsent(pageable.getSizeParameter(), new String[]{String.valueOf(pageable.getDefaultPageSize())});
+        StringBuilder key = new StringBuilder(request.getRequestURI()).append('?');
+        parameters.forEach((name, values) -> {
+            for (String value : values) {
+                key.append(encode(name)).append('=').append(encode(value)).append('&');
+            }
+        });
+        return key.toString();
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isJson(String contentType) {
+        return contentType != null && MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(contentType));
+    }
+}
@@ -1,7 +1,21 @@
 package com.tarssito.libraryapi.api.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tarssito.libraryapi.api.cache.BookResponseCache;
 import com.tarssito.libraryapi.api.dto.BookDTO;
+import com.tarssito.libraryapi.api.dto.BookImportResultDTO;
+import com.tarssito.libraryapi.api.dto.CursorPageDTO;
 import com.tarssito.libraryapi.api.dto.LoanDTO;
+import com.tarssito.libraryapi.api.etag.VersionETag;
+import com.tarssito.libraryapi.api.exception.ApiRowErrors;
+import com.tarssito.libraryapi.api.export.NdjsonWriter;
+import com.tarssito.libraryapi.api.importer.BookCsvReader;
+import com.tarssito.libraryapi.api.importer.BookJsonReader;
+import com.tarssito.libraryapi.api.mapper.BookMapper;
+import com.tarssito.libraryapi.api.mapper.LoanMapper;
+import com.tarssito.libraryapi.api.pagination.KeysetCursor;
+import com.tarssito.libraryapi.config.PreferAsync;
+import com.tarssito.libraryapi.exception.BusinessException;
 import com.tarssito.libraryapi.model.entity.Book;
 import com.tarssito.libraryapi.model.entity.Loan;
 import com.tarssito.libraryapi.service.BookService;
@@ -12,16 +26,28 @@ import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.ConstraintViolation;
 import javax.validation.Valid;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 
 
@@ -32,27 +58,102 @@ import java.util.stream.Collectors;
 @Slf4j
 public class BookController {
 
+    private static final int IMPORT_CHUNK_SIZE = 500;
+
     private final BookService bookService;
-    private final ModelMapper modelMapper;
     private final LoanService loanService;
+    private final BookMapper bookMapper;
+    private final LoanMapper loanMapper;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     @ApiOperation("Creates a Book")
     public BookDTO create(@RequestBody @Valid BookDTO dto) {
         log.info("create a book, {} ", dto);
-        Book entity = modelMapper.map(dto, Book.class);
+        Book entity = bookMapper.toEntity(dto);
         entity = bookService.save(entity);
-        return modelMapper.map(entity, BookDTO.class);
+        return bookMapper.toDTO(entity);
+    }
+
+    @PostMapping
+    @PreferAsync
+    @ResponseStatus(HttpStatus.CREATED)
+    @ApiOperation("Creates a Book on the async request pool")
+    public Callable<BookDTO> createAsync(@RequestBody @Valid BookDTO dto) {
+        return () -> create(dto);
+    }
+
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_JSON_VALUE, BookCsvReader.MEDIA_TYPE})
+    @ApiOperation("Imports books from a JSON array or a CSV file, skipping invalid rows and known isbns")
+    public BookImportResultDTO importBooks(HttpServletRequest request) throws IOException {
+        log.info("import books, {} ", request.getContentType());
+        Iterator<BookDTO> rows = request.getContentType().startsWith(BookCsvReader.MEDIA_TYPE)
+                ? new BookCsvReader(request.getInputStream())
+                : new BookJsonReader(objectMapper, request.getInputStream());
+
+        BookImportResultDTO result = new BookImportResultDTO();
+        List<Book> chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+        List<Long> chunkRows = new ArrayList<>(IMPORT_CHUNK_SIZE);
+        long row = 0;
+        try {
+            while (rows.hasNext()) {
+                BookDTO dto = rows.next();
+                row++;
+                Set<ConstraintViolation<BookDTO>> violations = validator.validate(dto);
+                if (!violations.isEmpty()) {
+                    List<String> errors = new ArrayList<>();
+                    violations.forEach(violation -> errors.add(violation.getPropertyPath() + " " + violation.getMessage()));
+                    result.addError(new ApiRowErrors(row, errors));
+                    continue;
+                }
+                chunk.add(bookMapper.toEntity(dto));
+                chunkRows.add(row);
+                if (chunk.size() == IMPORT_CHUNK_SIZE) {
+                    importChunk(chunk, chunkRows, result);
+                }
+            }
+        } catch (BusinessException e) {
+            // earlier chunks are already committed: report them and stop at the unreadable row
+            result.addError(new ApiRowErrors(row + 1, List.of(e.getMessage())));
+        }
+        importChunk(chunk, chunkRows, result);
+        return result;
+    }
+
+    private void importChunk(List<Book> chunk, List<Long> chunkRows, BookImportResultDTO result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        result.addImported(bookService.saveAll(chunk).size());
+        for (int i = 0; i < chunk.size(); i++) {
+            if (chunk.get(i).getId() == null) {
+                result.addError(new ApiRowErrors(chunkRows.get(i), List.of("Isbn já cadastrado.")));
+            }
+        }
+        chunk.clear();
+        chunkRows.clear();
     }
 
     @GetMapping("/{id}")
-    @ApiOperation("Obtains a Book details by id")
-    public BookDTO get(@PathVariable Long id) {
+    @ApiOperation("Obtains a Book details by id, 304 when If-None-Match holds its current ETag")
+    public BookDTO get(@PathVariable Long id, WebRequest request) {
         log.info("get a book by id, {} ", id);
-        return bookService.getByID(id)
-                .map(book -> modelMapper.map(book, BookDTO.class))
+        Book book = bookService.getByID(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        BookResponseCache.setBookIds(request, Set.of(book.getId()));
+        if (request.checkNotModified(VersionETag.of(book.getVersion()))) {
+            return null;
+        }
+        return bookMapper.toDTO(book);
+    }
+
+    @GetMapping("/{id}")
+    @PreferAsync
+    @ApiOperation("Obtains a Book details by id on the async request pool")
+    public Callable<BookDTO> getAsync(@PathVariable Long id, WebRequest request) {
+        return () -> get(id, request);
     }
 
     @DeleteMapping("/{id}")
@@ -68,30 +169,84 @@ public class BookController {
         bookService.delete(book);
     }
 
+    @DeleteMapping("/{id}")
+    @PreferAsync
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @ApiOperation("Deletes a Book by id on the async request pool")
+    public Callable<Void> deleteAsync(@PathVariable Long id) {
+        return () -> {
+            delete(id);
+            return null;
+        };
+    }
+
     @PutMapping("/{id}")
     @ResponseStatus(HttpStatus.OK)
-    @ApiOperation("Updates a Book")
-    public BookDTO update(@PathVariable Long id, @RequestBody @Valid BookDTO dto) {
+    @ApiOperation("Updates a Book, 412 when If-Match does not hold its current ETag")
+    public BookDTO update(@PathVariable Long id, @RequestBody @Valid BookDTO dto,
+                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                          HttpServletResponse response) {
         log.info("update book, {} ", dto);
         return bookService.getByID(id).map(book -> {
+            VersionETag.checkIfMatch(ifMatch, book.getVersion());
             book.setAuthor(dto.getAuthor());
             book.setTitle(dto.getTitle());
             book = bookService.update(book);
-            return modelMapper.map(book, BookDTO.class);
+            VersionETag.setHeader(response, book.getVersion());
+            return bookMapper.toDTO(book);
         }).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
     }
 
+    @PutMapping("/{id}")
+    @PreferAsync
+    @ResponseStatus(HttpStatus.OK)
+    @ApiOperation("Updates a Book on the async request pool")
+    public Callable<BookDTO> updateAsync(@PathVariable Long id, @RequestBody @Valid BookDTO dto,
+                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                         HttpServletResponse response) {
+        return () -> update(id, dto, ifMatch, response);
+    }
+
     @GetMapping
-    @ApiOperation("Find Books by params")
-    public Page<BookDTO> find(BookDTO dto, Pageable pageRequest) {
+    @ApiOperation("Find Books by params, 304 when If-None-Match holds the ETag of the same page")
+    public Page<BookDTO> find(BookDTO dto, Pageable pageRequest, WebRequest request) {
         log.info("find book (filter), {} ", dto);
-        Book filter = modelMapper.map(dto, Book.class);
+        Book filter = bookMapper.toEntity(dto);
         Page<Book> result = bookService.find(filter, pageRequest);
-        List<BookDTO> list = result.getContent()
-                .stream()
-                .map(entity -> modelMapper.map(entity, BookDTO.class))
-                .collect(Collectors.toList());
-        return new PageImpl<BookDTO>(list, pageRequest, result.getTotalElements());
+        BookResponseCache.setBookIds(request, result.stream().map(Book::getId).collect(Collectors.toSet()));
+        if (request.checkNotModified(VersionETag.of(result, Book::getId, Book::getVersion))) {
+            return null;
+        }
+        return new PageImpl<BookDTO>(bookMapper.toDTOs(result.getContent()), pageRequest, result.getTotalElements());
+    }
+
+    @GetMapping
+    @PreferAsync
+    @ApiOperation("Find Books by params on the async request pool")
+    public Callable<Page<BookDTO>> findAsync(BookDTO dto, Pageable pageRequest, WebRequest request) {
+        return () -> find(dto, pageRequest, request);
+    }
+
+    @GetMapping(params = "cursor")
+    @ApiOperation("Find Books by params, walking the catalogue by cursor (no total count)")
+    public CursorPageDTO<BookDTO> findByCursor(BookDTO dto,
+                                               @RequestParam String cursor,
+                                               @RequestParam(defaultValue = "20") int size) {
+        log.info("find book by cursor (filter), {} ", dto);
+        KeysetCursor keysetCursor = KeysetCursor.decode(cursor);
+        Slice<Book> result = bookService.findAfter(
+                bookMapper.toEntity(dto), keysetCursor.getId(), KeysetCursor.pageSize(size));
+        return CursorPageDTO.of(result, bookMapper::toDTOs, book -> KeysetCursor.encode(book.getId()));
+    }
+
+    @GetMapping(value = "/export", produces = NdjsonWriter.MEDIA_TYPE)
+    @ApiOperation("Exports the whole catalogue as newline-delimited JSON")
+    public void export(HttpServletResponse response) throws IOException {
+        log.info("export books");
+        response.setContentType(NdjsonWriter.MEDIA_TYPE);
+        NdjsonWriter<BookDTO> writer = new NdjsonWriter<>(objectMapper, BookDTO.class, response.getOutputStream());
+        bookService.export(book -> writer.write(bookMapper.toDTO(book)));
+        writer.flush();
     }
 
     @GetMapping("{id}/loans")
@@ -100,17 +255,29 @@ public class BookController {
         Book book = bookService.getByID(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
         log.info("loans by Book, {} ", book);
-        Page<Loan> result = loanService.getByBook(book, pageable);
-        List<LoanDTO> loans = result.getContent()
-                .stream()
-                .map(loan -> {
-                    Book loanBook = loan.getBook();
-                    BookDTO bookDTO = modelMapper.map(loanBook, BookDTO.class);
-                    LoanDTO loanDTO = modelMapper.map(loan, LoanDTO.class);
-                    loanDTO.setBook(bookDTO);
-                    return loanDTO;
-                }).collect(Collectors.toList());
-        return new PageImpl<LoanDTO>(loans, pageable, result.getTotalElements());
+        return loanService.getDTOByBook(book, pageable);
+    }
+
+    @GetMapping("{id}/loans")
+    @PreferAsync
+    @ApiOperation("Find loans by book id on the async request pool")
+    public Callable<Page<LoanDTO>> loansByBookAsync(@PathVariable Long id, Pageable pageable) {
+        return () -> loansByBook(id, pageable);
+    }
+
+    @GetMapping(value = "{id}/loans", params = "cursor")
+    @ApiOperation("Find loans by book id, walking the history by cursor (no total count)")
+    public CursorPageDTO<LoanDTO> loansByBookByCursor(@PathVariable Long id,
+                                                      @RequestParam String cursor,
+                                                      @RequestParam(defaultValue = "20") int size) {
+        Book book = bookService.getByID(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        log.info("loans by Book by cursor, {} ", book);
+        KeysetCursor keysetCursor = KeysetCursor.decode(cursor);
+        Slice<Loan> result = loanService.getByBookAfter(
+                book, keysetCursor.getDate(), keysetCursor.getId(), KeysetCursor.pageSize(size));
+        return CursorPageDTO.of(result, loanMapper::toDTOs,
+                loan -> KeysetCursor.encode(loan.getLoanDate(), loan.getId()));
     }
 
 }
@@ -0,0 +1,33 @@
+package com.tarssito.libraryapi.api.controller;
+
+import com.tarssito.libraryapi.api.dto.CustomerSummaryDTO;
+import com.tarssito.libraryapi.service.CustomerService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+@RequestMapping("/api/customers")
+@RequiredArgsConstructor
+@Api("Customer API")
+@Slf4j
+public class CustomerController {
+
+    private final CustomerService customerService;
+
+    @GetMapping("{id}/summary")
+    @ApiOperation("Obtains the loan counters of a Customer")
+    public CustomerSummaryDTO summary(@PathVariable Long id) {
+        log.info("get a customer summary by id, {} ", id);
+        return customerService.getById(id)
+                .map(CustomerSummaryDTO::of)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    }
+}
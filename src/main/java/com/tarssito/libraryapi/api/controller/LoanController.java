@@ -1,10 +1,18 @@
 package com.tarssito.libraryapi.api.controller;
 
-import com.tarssito.libraryapi.api.dto.BookDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tarssito.libraryapi.api.dto.CursorPageDTO;
+import com.tarssito.libraryapi.api.dto.LoanBatchResultDTO;
 import com.tarssito.libraryapi.api.dto.LoanDTO;
 import com.tarssito.libraryapi.api.dto.LoanFilterDTO;
 import com.tarssito.libraryapi.api.dto.ReturnedLoanDTO;
+import com.tarssito.libraryapi.api.etag.VersionETag;
+import com.tarssito.libraryapi.api.export.NdjsonWriter;
+import com.tarssito.libraryapi.api.mapper.LoanMapper;
+import com.tarssito.libraryapi.api.pagination.KeysetCursor;
+import com.tarssito.libraryapi.config.PreferAsync;
 import com.tarssito.libraryapi.model.entity.Book;
+import com.tarssito.libraryapi.model.entity.Customer;
 import com.tarssito.libraryapi.model.entity.Loan;
 import com.tarssito.libraryapi.service.BookService;
 import com.tarssito.libraryapi.service.LoanService;
@@ -12,16 +20,27 @@ import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.Valid;
+import java.io.IOException;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @RestController
@@ -33,7 +52,8 @@ public class LoanController {
 
     private final LoanService loanService;
     private final BookService bookService;
-    private final ModelMapper modelMapper;
+    private final LoanMapper loanMapper;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -45,37 +65,177 @@ public class LoanController {
                         new ResponseStatusException(HttpStatus.BAD_REQUEST, "Book not found for passed isbn"));
         Loan entity = Loan.builder()
                     .book(book)
-                    .costumer(dto.getCostumer())
+                    .customer(Customer.builder().name(dto.getCostumer()).email(dto.getEmail()).build())
                     .loanDate(LocalDate.now())
                     .build();
         Loan loan = loanService.save(entity);
         return loan.getId();
     }
 
+    @PostMapping
+    @PreferAsync
+    @ResponseStatus(HttpStatus.CREATED)
+    @ApiOperation("Creates a Loan on the async request pool")
+    public Callable<Long> createAsync(@RequestBody LoanDTO dto) {
+        return () -> create(dto);
+    }
+
+    @GetMapping("{id}")
+    @ApiOperation("Obtains a Loan by id, 304 when If-None-Match holds its current ETag")
+    public LoanDTO get(@PathVariable Long id, WebRequest request) {
+        log.info("get a loan by id, {} ", id);
+        Loan loan = loanService.getById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        if (request.checkNotModified(VersionETag.of(loan.getVersion()))) {
+            return null;
+        }
+        return loanMapper.toDTO(loan);
+    }
+
     @PatchMapping("{id}")
-    @ApiOperation("Update loan return status")
-    public void returnBook(@PathVariable Long id, @RequestBody ReturnedLoanDTO dto) {
+    @ApiOperation("Update loan return status, 412 when If-Match does not hold its current ETag")
+    public void returnBook(@PathVariable Long id, @RequestBody @Valid ReturnedLoanDTO dto,
+                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                           HttpServletResponse response) {
         log.info("Update loan return status (dto), {} ", dto);
         Loan loan = loanService.getById(id).
                 orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        VersionETag.checkIfMatch(ifMatch, loan.getVersion());
         loan.setReturned(dto.getReturned());
-        loanService.update(loan);
+        loan = loanService.update(loan);
+        VersionETag.setHeader(response, loan.getVersion());
+    }
+
+    @PatchMapping("{id}")
+    @PreferAsync
+    @ApiOperation("Update loan return status on the async request pool")
+    public Callable<Void> returnBookAsync(@PathVariable Long id, @RequestBody @Valid ReturnedLoanDTO dto,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                          HttpServletResponse response) {
+        return () -> {
+            returnBook(id, dto, ifMatch, response);
+            return null;
+        };
+    }
+
+    @PostMapping("/batch")
+    @ApiOperation("Creates a Loan per item in one transaction, rejected items are reported by row")
+    public LoanBatchResultDTO createBatch(@RequestBody List<LoanDTO> dtos) {
+        log.info("create loans in batch, {} items", dtos.size());
+        checkBatchSize(dtos);
+        Set<String> isbns = dtos.stream().map(LoanDTO::getIsbn).filter(Objects::nonNull).collect(Collectors.toSet());
+        Map<String, Book> books = bookService.getBooksByIsbn(isbns).stream()
+                .collect(Collectors.toMap(Book::getIsbn, Function.identity()));
+
+        LoanBatchResultDTO result = new LoanBatchResultDTO();
+        List<Long> rows = new ArrayList<>();
+        List<Loan> entities = new ArrayList<>();
+        Set<String> loanedIsbns = new HashSet<>();
+        for (int i = 0; i < dtos.size(); i++) {
+            LoanDTO dto = dtos.get(i);
+            long row = i + 1;
+            Book book = books.get(dto.getIsbn());
+            if (book == null) {
+                result.addError(row, "Book not found for passed isbn");
+            } else if (!Boolean.TRUE.equals(book.getAvailable()) || !loanedIsbns.add(book.getIsbn())) {
+                result.addError(row, "Book already loaned");
+            } else {
+                rows.add(row);
+                entities.add(Loan.builder()
+                        .book(book)
+                        .customer(Customer.builder().name(dto.getCostumer()).email(dto.getEmail()).build())
+                        .loanDate(LocalDate.now())
+                        .build());
+            }
+        }
+        if (!entities.isEmpty()) {
+            List<Loan> loans = loanService.saveAll(entities);
+            for (int i = 0; i < loans.size(); i++) {
+                result.addLoan(rows.get(i), loans.get(i).getId());
+            }
+        }
+        return result;
+    }
+
+    @PatchMapping("/batch")
+    @ApiOperation("Update the return status of a Loan per item in one transaction, rejected items are reported by row")
+    public LoanBatchResultDTO returnBooks(@RequestBody List<ReturnedLoanDTO> dtos) {
+        log.info("Update loan return status in batch, {} items", dtos.size());
+        checkBatchSize(dtos);
+        Set<Long> ids = dtos.stream().map(ReturnedLoanDTO::getId).filter(Objects::nonNull).collect(Collectors.toSet());
+        Map<Long, Loan> loans = loanService.getAllById(ids).stream()
+                .collect(Collectors.toMap(Loan::getId, Function.identity()));
+
+        LoanBatchResultDTO result = new LoanBatchResultDTO();
+        List<Long> rows = new ArrayList<>();
+        List<Loan> entities = new ArrayList<>();
+        Set<Long> updatedIds = new HashSet<>();
+        for (int i = 0; i < dtos.size(); i++) {
+            ReturnedLoanDTO dto = dtos.get(i);
+            long row = i + 1;
+            Loan loan = loans.get(dto.getId());
+            if (loan == null) {
+                result.addError(row, "Loan not found");
+            } else if (!updatedIds.add(loan.getId())) {
+                result.addError(row, "Loan repeated in batch");
+            } else if (dto.getReturned() == null) {
+                result.addError(row, "Returned status is required");
+            } else {
+                loan.setReturned(dto.getReturned());
+                rows.add(row);
+                entities.add(loan);
+            }
+        }
+        if (!entities.isEmpty()) {
+            List<Loan> updated = loanService.updateAll(entities);
+            for (int i = 0; i < updated.size(); i++) {
+                result.addLoan(rows.get(i), updated.get(i).getId());
+            }
+        }
+        return result;
+    }
+
+    private void checkBatchSize(List<?> dtos) {
+        if (dtos.size() > LoanBatchResultDTO.MAX_BATCH_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "A batch holds at most " + LoanBatchResultDTO.MAX_BATCH_SIZE + " items");
+        }
     }
 
     @GetMapping
     @ApiOperation("Find Loans by params")
     public Page<LoanDTO> find(LoanFilterDTO dto, Pageable pageRequest) {
         log.info("find loan (filter), {} ", dto);
-        Page<Loan> page = loanService.find(dto, pageRequest);
-        List<LoanDTO> loans = page.getContent()
-                .stream()
-                .map(entity -> {
-                    Book book = entity.getBook();
-                    BookDTO bookDTO = modelMapper.map(book, BookDTO.class);
-                    LoanDTO loanDTO = modelMapper.map(entity, LoanDTO.class);
-                    loanDTO.setBook(bookDTO);
-                    return loanDTO;
-                }).collect(Collectors.toList());
-        return new PageImpl<LoanDTO>(loans, pageRequest, page.getTotalElements());
+        return loanService.findDTO(dto, pageRequest);
+    }
+
+    @GetMapping
+    @PreferAsync
+    @ApiOperation("Find Loans by params on the async request pool")
+    public Callable<Page<LoanDTO>> findAsync(LoanFilterDTO dto, Pageable pageRequest) {
+        return () -> find(dto, pageRequest);
+    }
+
+    @GetMapping(params = "cursor")
+    @ApiOperation("Find Loans by params, walking the history by cursor (no total count)")
+    public CursorPageDTO<LoanDTO> findByCursor(LoanFilterDTO dto,
+                                               @RequestParam String cursor,
+                                               @RequestParam(defaultValue = "20") int size) {
+        log.info("find loan by cursor (filter), {} ", dto);
+        KeysetCursor keysetCursor = KeysetCursor.decode(cursor);
+        Slice<Loan> result = loanService.findAfter(
+                dto, keysetCursor.getDate(), keysetCursor.getId(), KeysetCursor.pageSize(size));
+        return CursorPageDTO.of(result, loanMapper::toDTOs,
+                loan -> KeysetCursor.encode(loan.getLoanDate(), loan.getId()));
+    }
+
+    @GetMapping(value = "/export", produces = NdjsonWriter.MEDIA_TYPE)
+    @ApiOperation("Exports the whole loan history as newline-delimited JSON")
+    public void export(HttpServletResponse response) throws IOException {
+        log.info("export loans");
+        response.setContentType(NdjsonWriter.MEDIA_TYPE);
+        NdjsonWriter<LoanDTO> writer = new NdjsonWriter<>(objectMapper, LoanDTO.class, response.getOutputStream());
+        loanService.export(loan -> writer.write(loanMapper.toDTO(loan)));
+        writer.flush();
     }
 }
@@ -1,5 +1,6 @@
 package com.tarssito.libraryapi.api.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -20,4 +21,11 @@ public class BookDTO {
     private String author;
     @NotEmpty
     private String isbn;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean available;
+
+    public BookDTO(Long id, String title, String author, String isbn) {
+        this(id, title, author, isbn, null);
+    }
 }
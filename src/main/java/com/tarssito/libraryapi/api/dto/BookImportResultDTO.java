@@ -0,0 +1,27 @@
+package com.tarssito.libraryapi.api.dto;
+
+import com.tarssito.libraryapi.api.exception.ApiRowErrors;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class BookImportResultDTO {
+    public static final int MAX_REPORTED_ERRORS = 1000;
+
+    private long imported;
+    private long rejected;
+    private List<ApiRowErrors> errors = new ArrayList<>();
+
+    public void addImported(int count) {
+        imported += count;
+    }
+
+    public void addError(ApiRowErrors error) {
+        rejected++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(error);
+        }
+    }
+}
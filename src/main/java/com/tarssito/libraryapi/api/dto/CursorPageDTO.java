@@ -0,0 +1,26 @@
+package com.tarssito.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+import java.util.function.Function;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CursorPageDTO<T> {
+    private List<T> content;
+    private int size;
+    private String nextCursor;
+    private boolean last;
+
+    public static <E, T> CursorPageDTO<T> of(Slice<E> slice, Function<List<E>, List<T>> mapper,
+                                             Function<E, String> cursor) {
+        List<T> content = mapper.apply(slice.getContent());
+        String next = slice.hasNext() ? cursor.apply(slice.getContent().get(slice.getNumberOfElements() - 1)) : null;
+        return new CursorPageDTO<>(content, slice.getSize(), next, !slice.hasNext());
+    }
+}
@@ -0,0 +1,25 @@
+package com.tarssito.libraryapi.api.dto;
+
+import com.tarssito.libraryapi.model.entity.Customer;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CustomerSummaryDTO {
+    private Long id;
+    private String name;
+    private String email;
+    private Long activeLoans;
+    private Long lateLoans;
+    private Long totalLoans;
+
+    public static CustomerSummaryDTO of(Customer customer) {
+        return new CustomerSummaryDTO(customer.getId(), customer.getName(), customer.getEmail(),
+                customer.getActiveLoans(), customer.getLateLoans(), customer.getTotalLoans());
+    }
+}
@@ -0,0 +1,33 @@
+package com.tarssito.libraryapi.api.dto;
+
+import com.tarssito.libraryapi.api.exception.ApiRowErrors;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class LoanBatchResultDTO {
+    public static final int MAX_BATCH_SIZE = 100;
+
+    private List<Item> loans = new ArrayList<>();
+    private List<ApiRowErrors> errors = new ArrayList<>();
+
+    public void addLoan(long row, Long id) {
+        loans.add(new Item(row, id));
+    }
+
+    public void addError(long row, String error) {
+        errors.add(new ApiRowErrors(row, List.of(error)));
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Item {
+        private long row;
+        private Long id;
+    }
+}
@@ -25,4 +25,9 @@ public class LoanDTO {
 
     @NotEmpty
     private BookDTO book;
+
+    public LoanDTO(Long id, String costumer, String email,
+                   Long bookId, String bookTitle, String bookAuthor, String isbn, Boolean bookAvailable) {
+        this(id, costumer, email, isbn, new BookDTO(bookId, bookTitle, bookAuthor, isbn, bookAvailable));
+    }
 }
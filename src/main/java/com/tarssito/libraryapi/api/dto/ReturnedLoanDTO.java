@@ -2,10 +2,15 @@ package com.tarssito.libraryapi.api.dto;
 
 import lombok.*;
 
+import javax.validation.constraints.NotNull;
+
 @Getter
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 public class ReturnedLoanDTO {
+    private Long id;
+
+    @NotNull(message = "Returned status is required")
     private Boolean returned;
 }
@@ -0,0 +1,67 @@
+package com.tarssito.libraryapi.api.etag;
+
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
+/**
+ * Strong entity tags built from the {@code @Version} of an entity, or from
+ * the ids and versions of a page of them, so a conditional request can be
+ * answered before anything is mapped or serialized.
+ */
+public final class VersionETag {
+
+    private static final String ANY = "*";
+
+    private VersionETag() {
+    }
+
+    public static String of(Long version) {
+        return version == null ? null : quote(version.toString());
+    }
+
+    public static <T> String of(Page<T> page, Function<T, Long> id, Function<T, Long> version) {
+        StringBuilder content = new StringBuilder()
+                .append(page.getNumber()).append('/')
+                .append(page.getSize()).append('/')
+                .append(page.getTotalElements());
+        for (T item : page.getContent()) {
+            content.append(';').append(id.apply(item)).append(':').append(version.apply(item));
+        }
+        return quote(DigestUtils.md5DigestAsHex(content.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public static void setHeader(HttpServletResponse response, Long version) {
+        if (version != null) {
+            response.setHeader(HttpHeaders.ETAG, of(version));
+        }
+    }
+
+    /**
+     * Enforces an {@code If-Match} header against the current version, using
+     * the strong comparison: weak tags never match. A missing header passes.
+     */
+    public static void checkIfMatch(String ifMatch, Long version) {
+        if (ifMatch == null) {
+            return;
+        }
+        String current = of(version);
+        for (String tag : ifMatch.split(",")) {
+            String candidate = tag.trim();
+            if (candidate.equals(ANY) || candidate.equals(current)) {
+                return;
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Resource was modified, reload and retry");
+    }
+
+    private static String quote(String value) {
+        return "\"" + value + "\"";
+    }
+}
@@ -27,6 +27,10 @@ public class ApiErrors {
         this.errors = Collections.singletonList(ex.getReason());
     }
 
+    public ApiErrors(List<String> errors) {
+        this.errors = errors;
+    }
+
     public List<String> getErrors() {
         return errors;
     }
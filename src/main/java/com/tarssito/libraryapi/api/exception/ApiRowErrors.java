@@ -0,0 +1,17 @@
+package com.tarssito.libraryapi.api.exception;
+
+import java.util.List;
+
+public class ApiRowErrors extends ApiErrors {
+
+    private final long row;
+
+    public ApiRowErrors(long row, List<String> errors) {
+        super(errors);
+        this.row = row;
+    }
+
+    public long getRow() {
+        return row;
+    }
+}
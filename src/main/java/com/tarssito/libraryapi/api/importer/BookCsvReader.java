@@ -0,0 +1,111 @@
+package com.tarssito.libraryapi.api.importer;
+
+import com.tarssito.libraryapi.api.dto.BookDTO;
+import com.tarssito.libraryapi.exception.BusinessException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads a CSV file of books line by line. The header names the columns
+ * ({@code title}, {@code author}, {@code isbn}, in any order); fields may be
+ * double-quoted, with {@code ""} as an escaped quote.
+ */
+public class BookCsvReader implements Iterator<BookDTO> {
+
+    public static final String MEDIA_TYPE = "text/csv";
+
+    private final BufferedReader reader;
+    private final int titleColumn;
+    private final int authorColumn;
+    private final int isbnColumn;
+    private String line;
+
+    public BookCsvReader(InputStream in) throws IOException {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String header = reader.readLine();
+        if (header == null) {
+            throw new BusinessException("CSV header is missing");
+        }
+        List<String> columns = Arrays.asList(header.trim().toLowerCase().split("\\s*,\\s*"));
+        this.titleColumn = columns.indexOf("title");
+        this.authorColumn = columns.indexOf("author");
+        this.isbnColumn = columns.indexOf("isbn");
+        if (titleColumn < 0 || authorColumn < 0 || isbnColumn < 0) {
+            throw new BusinessException("CSV header must have title, author and isbn columns");
+        }
+        this.line = readLine();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return line != null;
+    }
+
+    @Override
+    public BookDTO next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<String> fields = split(line);
+        line = readLine();
+        return BookDTO.builder()
+                .title(field(fields, titleColumn))
+                .author(field(fields, authorColumn))
+                .isbn(field(fields, isbnColumn))
+                .build();
+    }
+
+    private String readLine() {
+        try {
+            String next = reader.readLine();
+            while (next != null && next.trim().isEmpty()) {
+                next = reader.readLine();
+            }
+            return next;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String field(List<String> fields, int column) {
+        return column < fields.size() ? fields.get(column) : null;
+    }
+
+    static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+}
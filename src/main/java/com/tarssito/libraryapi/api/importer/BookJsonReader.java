@@ -0,0 +1,81 @@
+package com.tarssito.libraryapi.api.importer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tarssito.libraryapi.api.dto.BookDTO;
+import com.tarssito.libraryapi.exception.BusinessException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads a JSON array of books one element at a time. The array must hold
+ * only objects and be the whole input; anything else fails the read with a
+ * {@link BusinessException} at the element where it is found.
+ */
+public class BookJsonReader implements Iterator<BookDTO> {
+
+    private final ObjectMapper objectMapper;
+    private final JsonParser parser;
+    private JsonToken current;
+
+    public BookJsonReader(ObjectMapper objectMapper, InputStream in) throws IOException {
+        this.objectMapper = objectMapper;
+        this.parser = objectMapper.getFactory().createParser(in);
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new BusinessException("Expected a JSON array of books");
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (current == null) {
+            current = advance();
+        }
+        return current == JsonToken.START_OBJECT;
+    }
+
+    @Override
+    public BookDTO next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            BookDTO dto = objectMapper.readValue(parser, BookDTO.class);
+            current = null;
+            return dto;
+        } catch (JsonProcessingException e) {
+            throw new BusinessException("Invalid JSON: " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private JsonToken advance() {
+        try {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT) {
+                return token;
+            }
+            if (token == null) {
+                throw new BusinessException("Unexpected end of the JSON array of books");
+            }
+            if (token != JsonToken.END_ARRAY) {
+                throw new BusinessException("Expected a JSON object for each book");
+            }
+            if (parser.nextToken() != null) {
+                throw new BusinessException("Unexpected content after the JSON array of books");
+            }
+            return token;
+        } catch (JsonProcessingException e) {
+            throw new BusinessException("Invalid JSON: " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.tarssito.libraryapi.api.mapper;
+
+import com.tarssito.libraryapi.api.dto.BookDTO;
+import com.tarssito.libraryapi.model.entity.Book;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BookMapper {
+
+    public BookDTO toDTO(Book book) {
+        if (book == null) {
+            return null;
+        }
+        return new BookDTO(book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn(), book.getAvailable());
+    }
+
+    public List<BookDTO> toDTOs(List<Book> books) {
+        List<BookDTO> dtos = new ArrayList<>(books.size());
+        for (Book book : books) {
+            dtos.add(toDTO(book));
+        }
+        return dtos;
+    }
+
+    public Book toEntity(BookDTO dto) {
+        if (dto == null) {
+            return null;
+        }
+        Book book = new Book();
+        book.setId(dto.getId());
+        book.setTitle(dto.getTitle());
+        book.setAuthor(dto.getAuthor());
+        book.setIsbn(dto.getIsbn());
+        book.setAvailable(dto.getAvailable());
+        return book;
+    }
+}
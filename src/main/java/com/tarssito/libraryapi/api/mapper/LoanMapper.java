@@ -0,0 +1,38 @@
+package com.tarssito.libraryapi.api.mapper;
+
+import com.tarssito.libraryapi.api.dto.LoanDTO;
+import com.tarssito.libraryapi.model.entity.Book;
+import com.tarssito.libraryapi.model.entity.Customer;
+import com.tarssito.libraryapi.model.entity.Loan;
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class LoanMapper {
+
+    private final BookMapper bookMapper;
+
+    public LoanDTO toDTO(Loan loan) {
+        if (loan == null) {
+            return null;
+        }
+        Book book = loan.getBook();
+        Customer customer = loan.getCustomer();
+        return new LoanDTO(
+                loan.getId(),
+                customer == null ? null : customer.getName(),
+                customer == null ? null : customer.getEmail(),
+                book == null ? null : book.getIsbn(),
+                bookMapper.toDTO(book));
+    }
+
+    public List<LoanDTO> toDTOs(List<Loan> loans) {
+        List<LoanDTO> dtos = new ArrayList<>(loans.size());
+        for (Loan loan : loans) {
+            dtos.add(toDTO(loan));
+        }
+        return dtos;
+    }
+}
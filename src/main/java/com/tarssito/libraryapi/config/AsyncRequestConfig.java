@@ -0,0 +1,62 @@
+package com.tarssito.libraryapi.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcRegistrations;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.condition.RequestCondition;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import javax.annotation.PreDestroy;
+import java.lang.reflect.Method;
+
+/**
+ * Bounded pool running the {@link PreferAsync} variants of the controllers,
+ * selected by the {@code respond-async} preference of the request (see
+ * {@link PreferAsyncRequestCondition}). The servlet thread is released while the request waits on JDBC or SMTP; once the pool
+ * and its queue are full new async requests are refused with 503 instead of
+ * piling up.
+ */
+@Configuration
+public class AsyncRequestConfig implements WebMvcConfigurer, WebMvcRegistrations {
+
+    private final ThreadPoolTaskExecutor executor;
+    private final long timeoutMillis;
+
+    public AsyncRequestConfig(@Value("${application.web.async.pool-size:64}") int poolSize,
+                              @Value("${application.web.async.queue-capacity:1000}") int queueCapacity,
+                              @Value("${application.web.async.timeout-ms:30000}") long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("async-request-");
+        executor.initialize();
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(executor);
+        configurer.setDefaultTimeout(timeoutMillis);
+    }
+
+    @Override
+    public RequestMappingHandlerMapping getRequestMappingHandlerMapping() {
+        return new RequestMappingHandlerMapping() {
+            @Override
+            protected RequestCondition<?> getCustomMethodCondition(Method method) {
+                return AnnotatedElementUtils.hasAnnotation(method, PreferAsync.class)
+                        ? new PreferAsyncRequestCondition() : null;
+            }
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,25 @@
+package com.tarssito.libraryapi.config;
+
+import com.tarssito.libraryapi.api.cache.BookResponseCache;
+import com.tarssito.libraryapi.api.cache.BookResponseCacheFilter;
+import org.springframework.boot.autoconfigure.data.web.SpringDataWebProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Serves the book reads from the {@link BookResponseCache}, ahead of the
+ * dispatcher servlet.
+ */
+@Configuration
+public class BookResponseCacheConfig {
+
+    @Bean
+    public FilterRegistrationBean<BookResponseCacheFilter> bookResponseCacheFilter(
+            BookResponseCache cache, SpringDataWebProperties properties) {
+        FilterRegistrationBean<BookResponseCacheFilter> registration =
+                new FilterRegistrationBean<>(new BookResponseCacheFilter(cache, properties));
+        registration.addUrlPatterns("/api/books", "/api/books/*");
+        return registration;
+    }
+}
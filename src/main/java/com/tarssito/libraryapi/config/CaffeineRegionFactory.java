@@ -0,0 +1,58 @@
+package com.tarssito.libraryapi.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.springframework.boot.convert.DurationStyle;
+
+import javax.cache.Cache;
+import java.net.URI;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Hibernate second-level cache on Caffeine's JCache provider. Each region is
+ * bounded by {@code library.cache.<region>.max-size} and expires after
+ * {@code library.cache.<region>.ttl}, both read from the JPA properties; a
+ * region without settings, such as the update timestamps, is unbounded.
+ * Every session factory gets its own cache manager, so contexts sharing a
+ * JVM (tests, benchmarks) never see each other's entries.
+ */
+public class CaffeineRegionFactory extends JCacheRegionFactory {
+
+    static final String PREFIX = "library.cache.";
+
+    private Map<?, ?> properties = Map.of();
+
+    @Override
+    protected void prepareForUse(SessionFactoryOptions settings, Map configValues) {
+        properties = configValues;
+        super.prepareForUse(settings, configValues);
+    }
+
+    @Override
+    protected URI getUri(SessionFactoryOptions settings, Map properties) {
+        return URI.create("hibernate:" + UUID.randomUUID());
+    }
+
+    @Override
+    protected Cache<Object, Object> createCache(String regionName) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        // hibernate stores immutable disassembled state, no need to copy it on every read
+        configuration.setStoreByValue(false);
+        property(regionName, "max-size")
+                .map(Long::parseLong)
+                .ifPresent(maxSize -> configuration.setMaximumSize(OptionalLong.of(maxSize)));
+        property(regionName, "ttl")
+                .map(DurationStyle::detectAndParse)
+                .ifPresent(ttl -> configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos())));
+        return getCacheManager().createCache(regionName, configuration);
+    }
+
+    private Optional<String> property(String regionName, String name) {
+        return Optional.ofNullable(properties.get(PREFIX + regionName + "." + name))
+                .map(value -> value.toString().trim());
+    }
+}
@@ -0,0 +1,83 @@
+package com.tarssito.libraryapi.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Times services, mappers and repositories. Every timer is tagged with the
+ * class (repository interface for repositories), the method and the
+ * exception thrown, {@code none} on success. Mappers are only timed on whole
+ * pages ({@code toDTOs}): a single row maps faster than it can be timed.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class MetricsAspect {
+
+    private static final String APPLICATION_PACKAGE = "com.tarssito.libraryapi";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Class<?>, String> repositoryNames = new ConcurrentHashMap<>();
+    private final Map<List<String>, Timer> timers = new ConcurrentHashMap<>();
+
+    @Around("execution(* com.tarssito.libraryapi.service.BookService+.*(..))" +
+            " || execution(* com.tarssito.libraryapi.service.LoanService+.*(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("library.service", "class",
+                joinPoint.getSignature().getDeclaringType().getSimpleName(), joinPoint);
+    }
+
+    @Around("execution(* com.tarssito.libraryapi.api.mapper.*.toDTOs(..))")
+    public Object timeMapper(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("library.mapper", "class",
+                joinPoint.getSignature().getDeclaringType().getSimpleName(), joinPoint);
+    }
+
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..))")
+    public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("library.repository", "repository", repositoryName(joinPoint.getThis()), joinPoint);
+    }
+
+    private Object time(String name, String classTag, String className, ProceedingJoinPoint joinPoint)
+            throws Throwable {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String exception = "none";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(timer(name, classTag, className, joinPoint.getSignature().getName(), exception));
+        }
+    }
+
+    private Timer timer(String name, String classTag, String className, String method, String exception) {
+        return timers.computeIfAbsent(List.of(name, className, method, exception), key -> meterRegistry.timer(name,
+                classTag, className,
+                "method", method,
+                "exception", exception));
+    }
+
+    private String repositoryName(Object repository) {
+        return repositoryNames.computeIfAbsent(repository.getClass(), type -> {
+            for (Class<?> candidate : AopProxyUtils.proxiedUserInterfaces(repository)) {
+                if (candidate.getName().startsWith(APPLICATION_PACKAGE)) {
+                    return candidate.getSimpleName();
+                }
+            }
+            return AopUtils.getTargetClass(repository).getSimpleName();
+        });
+    }
+}
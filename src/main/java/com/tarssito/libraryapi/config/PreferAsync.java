@@ -0,0 +1,19 @@
+package com.tarssito.libraryapi.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the {@code Callable} variant of a handler, chosen over the plain one
+ * when the request carries the {@code respond-async} preference.
+ *
+ * @see PreferAsyncRequestCondition
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface PreferAsync {
+}
@@ -0,0 +1,44 @@
+package com.tarssito.libraryapi.config;
+
+import org.springframework.web.servlet.mvc.condition.RequestCondition;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Collections;
+
+/**
+ * Matches requests whose {@code Prefer} headers hold the
+ * {@value #RESPOND_ASYNC} preference, alone or among others
+ * ({@code Prefer: respond-async, wait=10}), as RFC 7240 allows.
+ */
+public class PreferAsyncRequestCondition implements RequestCondition<PreferAsyncRequestCondition> {
+
+    public static final String PREFER = "Prefer";
+    public static final String RESPOND_ASYNC = "respond-async";
+
+    @Override
+    public PreferAsyncRequestCondition combine(PreferAsyncRequestCondition other) {
+        return this;
+    }
+
+    @Override
+    public PreferAsyncRequestCondition getMatchingCondition(HttpServletRequest request) {
+        return prefersAsync(request) ? this : null;
+    }
+
+    @Override
+    public int compareTo(PreferAsyncRequestCondition other, HttpServletRequest request) {
+        return 0;
+    }
+
+    static boolean prefersAsync(HttpServletRequest request) {
+        for (String header : Collections.list(request.getHeaders(PREFER))) {
+            for (String preference : header.split(",")) {
+                String token = preference.split("[=;]", 2)[0].trim();
+                if (RESPOND_ASYNC.equalsIgnoreCase(token)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
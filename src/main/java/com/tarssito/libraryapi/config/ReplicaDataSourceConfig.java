@@ -0,0 +1,117 @@
+package com.tarssito.libraryapi.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas for the query endpoints, enabled by listing their urls in
+ * {@code application.datasource.replica.urls}. Read-only transactions run on
+ * a replica, everything else (and Flyway) on the primary built from
+ * {@code spring.datasource.*}. Every pool reports its {@code hikaricp.*}
+ * meters tagged with its own pool name.
+ */
+@Configuration
+@ConditionalOnProperty("application.datasource.replica.urls")
+public class ReplicaDataSourceConfig implements MeterBinder {
+
+    private final List<HikariDataSource> pools = new ArrayList<>();
+    private ReplicaRoutingDataSource routingDataSource;
+    private ThreadPoolTaskScheduler checkScheduler;
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties, Environment environment,
+                                 @Value("${application.datasource.replica.urls}") List<String> urls,
+                                 @Value("${application.datasource.replica.username:}") String username,
+                                 @Value("${application.datasource.replica.password:}") String password,
+                                 @Value("${application.datasource.replica.pool-size:10}") int poolSize,
+                                 @Value("${application.datasource.replica.lag-query:}") String lagQuery,
+                                 @Value("${application.datasource.replica.max-lag-ms:5000}") long maxLagMillis,
+                                 @Value("${application.datasource.replica.check-ms:1000}") long checkMillis) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName("primary");
+        pools.add(primary);
+
+        List<ReplicaRoutingDataSource.Replica> replicas = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + i);
+            replica.setJdbcUrl(urls.get(i).trim());
+            replica.setUsername(StringUtils.hasText(username) ? username : properties.determineUsername());
+            replica.setPassword(StringUtils.hasText(username) ? password : properties.determinePassword());
+            replica.setMaximumPoolSize(poolSize);
+            replica.setReadOnly(true);
+            pools.add(replica);
+            replicas.add(new ReplicaRoutingDataSource.Replica(replica.getPoolName(), replica));
+        }
+
+        routingDataSource = new ReplicaRoutingDataSource(primary, replicas,
+                StringUtils.hasText(lagQuery) ? lagQuery : null, maxLagMillis);
+        routingDataSource.checkReplicas();
+        scheduleChecks(checkMillis);
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    /**
+     * Bound once the registry exists, which is after the pools have served
+     * Flyway and Hibernate: the registry's own binders need the entity
+     * manager factory, so it can't be a dependency of the data source.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        pools.forEach(pool -> pool.setMetricRegistry(registry));
+        for (ReplicaRoutingDataSource.Replica replica : routingDataSource.getReplicas()) {
+            Gauge.builder("library.datasource.replica.lag", replica, ReplicaRoutingDataSource.Replica::getLagSeconds)
+                    .tag("pool", replica.getName())
+                    .baseUnit("seconds")
+                    .register(registry);
+            Gauge.builder("library.datasource.replica.usable", replica, r -> r.isUsable() ? 1 : 0)
+                    .tag("pool", replica.getName())
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Checks on a thread of their own: on the shared scheduler they would
+     * wait behind the notification dispatcher, which blocks until the outbox
+     * drains, and keep routing reads to a dead or lagging replica meanwhile.
+     */
+    private void scheduleChecks(long checkMillis) {
+        checkScheduler = new ThreadPoolTaskScheduler();
+        checkScheduler.setPoolSize(1);
+        checkScheduler.setThreadNamePrefix("replica-check-");
+        checkScheduler.initialize();
+        checkScheduler.scheduleWithFixedDelay(routingDataSource::checkReplicas,
+                Instant.now().plusMillis(checkMillis), Duration.ofMillis(checkMillis));
+    }
+
+    @PreDestroy
+    public void close() {
+        if (checkScheduler != null) {
+            checkScheduler.shutdown();
+        }
+        pools.forEach(HikariDataSource::close);
+    }
+}
@@ -0,0 +1,136 @@
+package com.tarssito.libraryapi.config;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Hands out replica connections to {@code @Transactional(readOnly = true)}
+ * work and primary connections to everything else. Replicas take turns and
+ * only while their last check found them reachable and within the allowed
+ * lag; with none left the reads go to the primary.
+ * <p>
+ * The read-only flag is only known once the transaction has begun, so this
+ * has to sit behind a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final String lagQuery;
+    private final long maxLagMillis;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * @param lagQuery query run on each replica returning how many seconds it
+     *                 is behind the primary, or {@code null} to only check
+     *                 that the replica answers
+     */
+    public ReplicaRoutingDataSource(DataSource primary, List<Replica> replicas, String lagQuery, long maxLagMillis) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.lagQuery = lagQuery;
+        this.maxLagMillis = maxLagMillis;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    public void checkReplicas() {
+        replicas.forEach(this::check);
+    }
+
+    private Connection getConnection(ConnectionSource source) throws SQLException {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            Connection connection = replicaConnection(source);
+            if (connection != null) {
+                return connection;
+            }
+        }
+        return source.getConnection(primary);
+    }
+
+    private Connection replicaConnection(ConnectionSource source) {
+        List<Replica> usable = replicas.stream().filter(Replica::isUsable).collect(Collectors.toList());
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(usable.size(), 1));
+        for (int i = 0; i < usable.size(); i++) {
+            Replica replica = usable.get((start + i) % usable.size());
+            try {
+                return source.getConnection(replica.getDataSource());
+            } catch (SQLException e) {
+                log.warn("Replica {} unavailable, skipping it until the next check: {}", replica.getName(), e.getMessage());
+                replica.usable = false;
+            }
+        }
+        return null;
+    }
+
+    private void check(Replica replica) {
+        boolean wasUsable = replica.usable;
+        try (Connection connection = replica.getDataSource().getConnection()) {
+            double lagSeconds = lagQuery == null ? 0 : lagSeconds(connection);
+            replica.lagSeconds = lagSeconds;
+            replica.usable = lagSeconds * 1000 <= maxLagMillis;
+        } catch (SQLException e) {
+            replica.lagSeconds = Double.NaN;
+            replica.usable = false;
+        }
+        if (wasUsable != replica.usable) {
+            log.info("Replica {} {} for reads, lag {}s", replica.getName(),
+                    replica.usable ? "used" : "not used", replica.lagSeconds);
+        }
+    }
+
+    private double lagSeconds(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(lagQuery)) {
+            if (!resultSet.next()) {
+                return Double.NaN;
+            }
+            double lag = resultSet.getDouble(1);
+            return resultSet.wasNull() ? Double.NaN : lag;
+        }
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+        Connection getConnection(DataSource dataSource) throws SQLException;
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean usable;
+        /**
+         * Seconds behind the primary at the last check, {@code NaN} when the
+         * replica could not tell.
+         */
+        private volatile double lagSeconds = Double.NaN;
+    }
+}
@@ -0,0 +1,48 @@
+package com.tarssito.libraryapi.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Hits, misses and puts of every second-level cache region, tagged with the
+ * region name. Hibernate's own meters only report the totals across regions.
+ */
+@Component
+@RequiredArgsConstructor
+public class SecondLevelCacheMetrics implements MeterBinder {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+            counter(registry, "library.cache.region.requests", region, "hit",
+                    regionStatistics, CacheRegionStatistics::getHitCount);
+            counter(registry, "library.cache.region.requests", region, "miss",
+                    regionStatistics, CacheRegionStatistics::getMissCount);
+            counter(registry, "library.cache.region.puts", region, null,
+                    regionStatistics, CacheRegionStatistics::getPutCount);
+        }
+    }
+
+    private void counter(MeterRegistry registry, String name, String region, String result,
+                         CacheRegionStatistics statistics, ToDoubleFunction<CacheRegionStatistics> count) {
+        FunctionCounter.Builder<CacheRegionStatistics> builder = FunctionCounter.builder(name, statistics, count)
+                .tag("region", region);
+        if (result != null) {
+            builder.tag("result", result);
+        }
+        builder.register(registry);
+    }
+}
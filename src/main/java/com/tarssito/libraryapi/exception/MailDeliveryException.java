@@ -0,0 +1,17 @@
+package com.tarssito.libraryapi.exception;
+
+import java.util.List;
+
+public class MailDeliveryException extends RuntimeException {
+
+    private final List<String> failedEmails;
+
+    public MailDeliveryException(String message, List<String> failedEmails) {
+        super(message);
+        this.failedEmails = failedEmails;
+    }
+
+    public List<String> getFailedEmails() {
+        return failedEmails;
+    }
+}
@@ -4,23 +4,67 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.util.List;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "book")
+@Table(indexes = {
+        @Index(name = "ux_book_isbn", columnList = "isbn", unique = true),
+        @Index(name = "ix_book_available", columnList = "available, id")
+})
 public class Book {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_seq")
+    @SequenceGenerator(name = "book_seq", sequenceName = "book_seq", allocationSize = 50)
     private Long id;
     private String title;
     private String author;
     private String isbn;
 
+    @Version
+    private Long version;
+
+    /**
+     * Id of the open loan of the book, null while it is on the shelf.
+     */
+    @Column(name = "current_loan_id")
+    private Long currentLoanId;
+
+    /**
+     * Whether the book has no open loan, kept in step with
+     * {@link #currentLoanId} so that the catalogue can be filtered on it.
+     */
+    private Boolean available;
+
+    @ToString.Exclude
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "book.loans")
     @OneToMany(mappedBy = "book", fetch = FetchType.LAZY)
     private List<Loan> loans;
+
+    public Book(Long id, String title, String author, String isbn) {
+        this(id, title, author, isbn, null, null, null, null);
+    }
+
+    /**
+     * Copy of the columns of the book, without its loans.
+     */
+    public Book copy() {
+        return toBuilder().loans(null).build();
+    }
+
+    @PrePersist
+    @PreUpdate
+    void updateAvailable() {
+        available = currentLoanId == null;
+    }
 }
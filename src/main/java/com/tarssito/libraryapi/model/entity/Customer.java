@@ -0,0 +1,44 @@
+package com.tarssito.libraryapi.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(indexes = @Index(name = "ux_customer_name", columnList = "name", unique = true))
+public class Customer {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customer_seq")
+    @SequenceGenerator(name = "customer_seq", sequenceName = "customer_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(length = 100, nullable = false)
+    private String name;
+
+    private String email;
+
+    /**
+     * Loan counters, moved only by relative updates in
+     * {@link com.tarssito.libraryapi.model.repository.CustomerRepository};
+     * the entity never writes them back, so a stale copy cannot undo a
+     * concurrent checkout or return.
+     */
+    @Builder.Default
+    @Column(name = "active_loans", nullable = false, updatable = false)
+    private Long activeLoans = 0L;
+
+    @Builder.Default
+    @Column(name = "late_loans", nullable = false, updatable = false)
+    private Long lateLoans = 0L;
+
+    @Builder.Default
+    @Column(name = "total_loans", nullable = false, updatable = false)
+    private Long totalLoans = 0L;
+}
@@ -4,6 +4,8 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.time.LocalDate;
@@ -13,21 +15,61 @@ import java.time.LocalDate;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "loan")
+@Table(uniqueConstraints = @UniqueConstraint(name = "ux_loan_open_book", columnNames = "open_book_id"),
+        indexes = {
+                @Index(name = "ix_loan_book_returned", columnList = "id_book, returned"),
+                @Index(name = "ix_loan_due_date", columnList = "dueDate, returned, id"),
+                @Index(name = "ix_loan_customer", columnList = "id_customer, loanDate, id")
+        })
 public class Loan {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "loan_seq")
+    @SequenceGenerator(name = "loan_seq", sequenceName = "loan_seq", allocationSize = 50)
     private Long id;
 
-    @Column(length = 100)
-    private String costumer;
-
-    @Column(name = "costumer_email")
-    private String costumerEmail;
+    @ManyToOne
+    @JoinColumn(name = "id_customer")
+    private Customer customer;
 
     @ManyToOne
     @JoinColumn(name = "id_book")
     private Book book;
 
     private LocalDate loanDate;
-    private Boolean returned;
+
+    /**
+     * Day the book must be back by, fixed at checkout from the loan period;
+     * the loan is late from that day on.
+     */
+    private LocalDate dueDate;
+
+    @Builder.Default
+    @Column(nullable = false)
+    private Boolean returned = false;
+
+    /**
+     * Set by the late loans job once the due date has passed, so the
+     * costumer's late loan counter is decremented only for loans it counted.
+     */
+    @Builder.Default
+    @Column(nullable = false)
+    private Boolean late = false;
+
+    @Version
+    private Long version;
+
+    /**
+     * Id of the book while the loan is open, null once it is returned; the
+     * unique constraint on it keeps a book from having two open loans.
+     */
+    @Column(name = "open_book_id")
+    private Long openBookId;
+
+    @PrePersist
+    @PreUpdate
+    void updateOpenBookId() {
+        openBookId = Boolean.TRUE.equals(returned) || book == null ? null : book.getId();
+    }
 }
@@ -0,0 +1,75 @@
+package com.tarssito.libraryapi.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Mail waiting to be sent. Rows are written in the same transaction as the
+ * loan change that caused them and claimed by the dispatcher, which holds a
+ * lease on them through {@code availableAt} while sending.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "notification_outbox",
+        uniqueConstraints = @UniqueConstraint(name = "ux_outbox_loan_type_date",
+                columnNames = {"loan_id", "type", "reference_date"}),
+        indexes = @Index(name = "ix_outbox_status_available", columnList = "status, available_at"))
+public class NotificationOutbox {
+
+    public enum Type { LATE_LOAN }
+
+    public enum Status { PENDING, SENT, FAILED, CANCELLED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notification_outbox_seq")
+    @SequenceGenerator(name = "notification_outbox_seq", sequenceName = "notification_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "loan_id", nullable = false)
+    private Long loanId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20, nullable = false)
+    private Type type;
+
+    /**
+     * Due date the late loan was found on, so that re-running the scan of
+     * that date, on the same day or a later one, does not queue the same mail
+     * twice.
+     */
+    @Column(name = "reference_date", nullable = false)
+    private LocalDate referenceDate;
+
+    @Column(nullable = false)
+    private String recipient;
+
+    @Column(length = 1000, nullable = false)
+    private String message;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20, nullable = false)
+    private Status status;
+
+    private int attempts;
+
+    @Column(name = "available_at", nullable = false)
+    private LocalDateTime availableAt;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+}
@@ -1,10 +1,64 @@
 package com.tarssito.libraryapi.model.repository;
 
 import com.tarssito.libraryapi.model.entity.Book;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_MODE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 @Repository
 public interface BookRepository extends JpaRepository<Book, Long> {
+    @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"), @QueryHint(name = HINT_CACHE_REGION, value = "book.isbn")})
     boolean existsByIsbn(String isbn);
+
+    Optional<Book> findByIsbn(String isbn);
+
+    List<Book> findByIsbnIn(Collection<String> isbns);
+
+    @Query("select b.isbn from Book b where b.isbn in :isbns")
+    Set<String> findExistingIsbns(@Param("isbns") Collection<String> isbns);
+
+    @Query("select b from Book b where b.id > :afterId " +
+            " and (:title is null or lower(b.title) like lower(concat('%', :title, '%'))) " +
+            " and (:author is null or lower(b.author) like lower(concat('%', :author, '%'))) " +
+            " and (:isbn is null or lower(b.isbn) like lower(concat('%', :isbn, '%'))) " +
+            " and (:available is null or b.available = :available) " +
+            " order by b.id")
+    Slice<Book> findNextPage(
+            @Param("title") String title,
+            @Param("author") String author,
+            @Param("isbn") String isbn,
+            @Param("available") Boolean available,
+            @Param("afterId") Long afterId,
+            Pageable pageable
+    );
+
+    /**
+     * Walks the whole catalogue without going through the second-level
+     * cache, so an export does not evict the books being read.
+     */
+    @Query("select b from Book b order by b.id")
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true"),
+            @QueryHint(name = HINT_CACHE_MODE, value = "IGNORE")})
+    Stream<Book> streamAll();
+
+    @Query("select new com.tarssito.libraryapi.model.entity.Book(b.id, b.title, b.author, b.isbn) from Book b")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    Stream<Book> streamForIndexing();
 }
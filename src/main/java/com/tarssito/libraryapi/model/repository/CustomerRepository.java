@@ -0,0 +1,33 @@
+package com.tarssito.libraryapi.model.repository;
+
+import com.tarssito.libraryapi.model.entity.Customer;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CustomerRepository extends JpaRepository<Customer, Long> {
+    Optional<Customer> findByName(String name);
+
+    List<Customer> findByNameIn(Collection<String> names);
+
+    @Modifying
+    @Query("update Customer c set c.activeLoans = c.activeLoans + :loans, c.totalLoans = c.totalLoans + :loans " +
+            " where c.id = :id")
+    int addLoans(@Param("id") Long id, @Param("loans") long loans);
+
+    @Modifying
+    @Query("update Customer c set c.activeLoans = c.activeLoans - :returned, c.lateLoans = c.lateLoans - :late " +
+            " where c.id = :id")
+    int returnLoans(@Param("id") Long id, @Param("returned") long returned, @Param("late") long late);
+
+    @Modifying
+    @Query("update Customer c set c.lateLoans = c.lateLoans + :late where c.id = :id")
+    int addLateLoans(@Param("id") Long id, @Param("late") long late);
+}
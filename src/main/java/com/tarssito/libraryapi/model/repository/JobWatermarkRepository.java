@@ -0,0 +1,9 @@
+package com.tarssito.libraryapi.model.repository;
+
+import com.tarssito.libraryapi.model.entity.JobWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface JobWatermarkRepository extends JpaRepository<JobWatermark, String> {
+}
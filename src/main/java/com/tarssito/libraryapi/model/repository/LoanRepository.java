@@ -1,32 +1,153 @@
 package com.tarssito.libraryapi.model.repository;
 
+import com.tarssito.libraryapi.api.dto.LoanDTO;
 import com.tarssito.libraryapi.model.entity.Book;
+import com.tarssito.libraryapi.model.entity.Customer;
 import com.tarssito.libraryapi.model.entity.Loan;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_MODE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
 public interface LoanRepository extends JpaRepository<Loan, Long> {
     @Query("select case when (count(l.id) > 0) then true else false end " +
-            " from Loan l where l.book = :book and (l.returned is null or l.returned is false)")
+            " from Loan l where l.book = :book and l.returned = false")
     boolean existsByBookNotReturned(@Param("book") Book book);
 
-    @Query("select l from Loan as l join l.book as b where b.isbn = :isbn or l.costumer = :costumer")
-    Page<Loan> findByBookOrCustomer(
-            @Param("isbn") String isbn,
-            @Param("costumer") String costumer,
+    @EntityGraph(attributePaths = {"book", "customer"})
+    Page<Loan> findByBook(Book book, Pageable pageable);
+
+    /**
+     * Read-only transaction of its own, as declared queries get none from
+     * Spring Data, so the page and its count are read from a replica.
+     */
+    @Transactional(readOnly = true)
+    @Query(value = "select new com.tarssito.libraryapi.api.dto.LoanDTO(" +
+            " l.id, c.name, c.email, b.id, b.title, b.author, b.isbn, b.available) " +
+            " from Loan as l join l.book as b left join l.customer as c where b = :book",
+            countQuery = "select count(l) from Loan as l where l.book = :book")
+    Page<LoanDTO> findDTOByBook(@Param("book") Book book, Pageable pageable);
+
+    @Query("select l from Loan l join fetch l.book left join fetch l.customer where l.book = :book " +
+            " and (l.loanDate > :afterLoanDate or (l.loanDate = :afterLoanDate and l.id > :afterId)) " +
+            " order by l.loanDate, l.id")
+    Slice<Loan> findNextPageByBook(
+            @Param("book") Book book,
+            @Param("afterLoanDate") LocalDate afterLoanDate,
+            @Param("afterId") Long afterId,
             Pageable pageable
     );
 
-    Page<Loan> findByBook(Book book, Pageable pageable);
+    @EntityGraph(attributePaths = {"book", "customer"})
+    Page<Loan> findByCustomer(Customer customer, Pageable pageable);
+
+    @Query(value = "select new com.tarssito.libraryapi.api.dto.LoanDTO(" +
+            " l.id, c.name, c.email, b.id, b.title, b.author, b.isbn, b.available) " +
+            " from Loan as l join l.customer as c join l.book as b where c = :customer",
+            countQuery = "select count(l) from Loan as l where l.customer = :customer")
+    Page<LoanDTO> findDTOByCustomer(@Param("customer") Customer customer, Pageable pageable);
+
+    @Query("select l from Loan l join fetch l.book join fetch l.customer where l.customer = :customer " +
+            " and (l.loanDate > :afterLoanDate or (l.loanDate = :afterLoanDate and l.id > :afterId)) " +
+            " order by l.loanDate, l.id")
+    Slice<Loan> findNextPageByCustomer(
+            @Param("customer") Customer customer,
+            @Param("afterLoanDate") LocalDate afterLoanDate,
+            @Param("afterId") Long afterId,
+            Pageable pageable
+    );
+
+    /**
+     * Loans of a book or of a costumer as the union of the two index range
+     * scans above; an {@code or} across the two would defeat both indexes.
+     * The page is sorted by the union's columns, {@code loan_date} and
+     * {@code id}. Native scalars come back as whatever numeric type the
+     * driver picks.
+     */
+    @Query(value = "select u.id from (" +
+            " select id, loan_date from loan where id_book = :bookId " +
+            " union select id, loan_date from loan where id_customer = :customerId) u",
+            countQuery = "select count(*) from (" +
+                    " select id from loan where id_book = :bookId " +
+                    " union select id from loan where id_customer = :customerId) u",
+            nativeQuery = true)
+    Page<Number> findIdsByBookOrCustomer(
+            @Param("bookId") Long bookId,
+            @Param("customerId") Long customerId,
+            Pageable pageable
+    );
+
+    @Query(value = "select u.id from (" +
+            " select id, loan_date from loan where id_book = :bookId " +
+            "   and (loan_date > :afterLoanDate or (loan_date = :afterLoanDate and id > :afterId)) " +
+            " union select id, loan_date from loan where id_customer = :customerId " +
+            "   and (loan_date > :afterLoanDate or (loan_date = :afterLoanDate and id > :afterId))) u " +
+            " order by u.loan_date, u.id",
+            nativeQuery = true)
+    Slice<Number> findNextIdsByBookOrCustomer(
+            @Param("bookId") Long bookId,
+            @Param("customerId") Long customerId,
+            @Param("afterLoanDate") LocalDate afterLoanDate,
+            @Param("afterId") Long afterId,
+            Pageable pageable
+    );
+
+    @Query("select new com.tarssito.libraryapi.api.dto.LoanDTO(" +
+            " l.id, c.name, c.email, b.id, b.title, b.author, b.isbn, b.available) " +
+            " from Loan as l join l.book as b left join l.customer as c where l.id in :ids")
+    List<LoanDTO> findDTOByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select l from Loan l left join fetch l.customer where l.dueDate <= :today and l.returned = false")
+    List<Loan> findByDueDateLessThanEqualAndNotReturned(@Param("today") LocalDate today);
+
+    @Query("select min(l.dueDate) from Loan l where l.returned = false " +
+            " and l.dueDate > :after and l.dueDate <= :until")
+    LocalDate findNextDueDate(@Param("after") LocalDate after, @Param("until") LocalDate until);
+
+    @Query("select l from Loan l left join fetch l.customer where l.dueDate = :dueDate and l.returned = false " +
+            " and l.id > :afterId order by l.id")
+    List<Loan> findNextPageDueOn(
+            @Param("dueDate") LocalDate dueDate,
+            @Param("afterId") Long afterId,
+            Pageable pageable
+    );
+
+    @Query("select l from Loan l join fetch l.book left join fetch l.customer where l.id in :ids")
+    List<Loan> findAllWithBookByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select l from Loan l where l.id in :ids and l.returned = false and l.late = false")
+    List<Loan> findOpenNotLateByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Walks the whole loan history without going through the second-level
+     * cache, so an export does not evict the entries being read.
+     */
+    @Query("select l from Loan l join fetch l.book left join fetch l.customer order by l.id")
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true"),
+            @QueryHint(name = HINT_CACHE_MODE, value = "IGNORE")})
+    Stream<Loan> streamAll();
 
-    @Query("select l from Loan l where l.loanDate <= :threeDaysAgo and (l.returned is null or l.returned is false)")
-    List<Loan> findByLoanDateLessThanAndNotReturned(@Param("threeDaysAgo") LocalDate threeDaysAgo);
+    @Query("select l.book.id from Loan l where l.returned = false")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    Stream<Long> streamLoanedBookIds();
 }
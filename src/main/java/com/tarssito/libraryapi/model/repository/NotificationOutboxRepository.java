@@ -0,0 +1,83 @@
+package com.tarssito.libraryapi.model.repository;
+
+import com.tarssito.libraryapi.model.entity.NotificationOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+@Repository
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutbox, Long> {
+
+    /**
+     * Locks the next rows due for sending. A lock timeout of -2 is Hibernate's
+     * SKIP LOCKED: concurrent dispatchers get disjoint rows instead of waiting
+     * on each other, on databases whose dialect supports it.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    @Query("select n from NotificationOutbox n where n.status = :status and n.availableAt <= :now " +
+            " order by n.availableAt, n.id")
+    List<NotificationOutbox> findClaimable(
+            @Param("status") NotificationOutbox.Status status,
+            @Param("now") LocalDateTime now,
+            Pageable pageable
+    );
+
+    @Query("select n.loanId from NotificationOutbox n " +
+            " where n.type = :type and n.referenceDate = :referenceDate and n.loanId in :loanIds")
+    Set<Long> findNotifiedLoanIds(
+            @Param("type") NotificationOutbox.Type type,
+            @Param("referenceDate") LocalDate referenceDate,
+            @Param("loanIds") Collection<Long> loanIds
+    );
+
+    @Modifying
+    @Query("update NotificationOutbox n set n.status = :status where n.loanId = :loanId and n.status = :currentStatus")
+    int updateStatusByLoan(
+            @Param("loanId") Long loanId,
+            @Param("currentStatus") NotificationOutbox.Status currentStatus,
+            @Param("status") NotificationOutbox.Status status
+    );
+
+    @Modifying
+    @Query("update NotificationOutbox n set n.status = :status where n.loanId in :loanIds and n.status = :currentStatus")
+    int updateStatusByLoans(
+            @Param("loanIds") Collection<Long> loanIds,
+            @Param("currentStatus") NotificationOutbox.Status currentStatus,
+            @Param("status") NotificationOutbox.Status status
+    );
+
+    @Modifying
+    @Query("update NotificationOutbox n set n.status = :status, n.sentAt = :sentAt " +
+            " where n.id in :ids and n.status = :currentStatus")
+    int markSent(
+            @Param("ids") Collection<Long> ids,
+            @Param("currentStatus") NotificationOutbox.Status currentStatus,
+            @Param("status") NotificationOutbox.Status status,
+            @Param("sentAt") LocalDateTime sentAt
+    );
+
+    @Modifying
+    @Query("update NotificationOutbox n set n.status = :status, n.availableAt = :availableAt, n.lastError = :error " +
+            " where n.id in :ids and n.status = :currentStatus")
+    int reschedule(
+            @Param("ids") Collection<Long> ids,
+            @Param("currentStatus") NotificationOutbox.Status currentStatus,
+            @Param("status") NotificationOutbox.Status status,
+            @Param("availableAt") LocalDateTime availableAt,
+            @Param("error") String error
+    );
+}
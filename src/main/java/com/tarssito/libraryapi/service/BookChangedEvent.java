@@ -0,0 +1,50 @@
+package com.tarssito.libraryapi.service;
+
+import com.tarssito.libraryapi.model.entity.Book;
+import lombok.Value;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Published by the services when books change, delivered to transactional
+ * listeners once the change is committed.
+ */
+@Value
+public class BookChangedEvent {
+
+    /**
+     * Books whose availability changed, empty for catalogue changes.
+     */
+    Set<Long> bookIds;
+
+    /**
+     * Whether only the availability of the books changed, by a checkout or a
+     * return. Otherwise the catalogue itself changed: books were added,
+     * edited or removed.
+     */
+    boolean availabilityOnly;
+
+    /**
+     * Books added or edited, as saved.
+     */
+    List<Book> savedBooks;
+
+    /**
+     * Ids of the books removed from the catalogue.
+     */
+    Set<Long> removedBookIds;
+
+    public static BookChangedEvent saved(Collection<Book> books) {
+        return new BookChangedEvent(Set.of(), false, List.copyOf(books), Set.of());
+    }
+
+    public static BookChangedEvent removed(Long bookId) {
+        return new BookChangedEvent(Set.of(), false, List.of(), Set.of(bookId));
+    }
+
+    public static BookChangedEvent availability(Collection<Long> bookIds) {
+        return new BookChangedEvent(Set.copyOf(bookIds), true, List.of(), Set.of());
+    }
+}
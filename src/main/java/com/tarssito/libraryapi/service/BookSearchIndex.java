@@ -0,0 +1,205 @@
+package com.tarssito.libraryapi.service;
+
+import com.tarssito.libraryapi.model.entity.Book;
+import com.tarssito.libraryapi.model.repository.BookRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * In-process inverted index over the title, author and isbn of every book,
+ * matching the way the catalogue query by example does: a filter property
+ * matches when it occurs anywhere in the field, ignoring case. Fields are
+ * indexed by their trigrams, so the candidates of a query are the books
+ * holding all of its trigrams, and each candidate is then checked for the
+ * whole query. Matches are ranked by idf, with a bonus for whole words.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BookSearchIndex {
+
+    private static final int GRAM = 3;
+    private static final int TITLE = 0, AUTHOR = 1, ISBN = 2, FIELDS = 3;
+    private static final double WHOLE_WORD_BOOST = 2.0;
+
+    private final BookRepository bookRepository;
+
+    private final Map<Long, String[]> documents = new ConcurrentHashMap<>();
+    private final List<Map<String, Set<Long>>> postings = Arrays.asList(
+            new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+    private volatile boolean ready;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public synchronized void warmUp() {
+        ready = false;
+        documents.clear();
+        postings.forEach(Map::clear);
+        try (Stream<Book> books = bookRepository.streamForIndexing()) {
+            books.forEach(this::add);
+        }
+        ready = true;
+        log.info("book search index warmed up, {} books indexed", documents.size());
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Applies catalogue changes once they are committed, so that a rolled
+     * back save or import leaves no ids of missing books behind.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        event.getSavedBooks().forEach(this::add);
+        event.getRemovedBookIds().forEach(this::remove);
+    }
+
+    public synchronized void add(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        remove(book.getId());
+        String[] fields = {normalize(book.getTitle()), normalize(book.getAuthor()), normalize(book.getIsbn())};
+        for (int field = 0; field < FIELDS; field++) {
+            for (String gram : grams(fields[field])) {
+                postings.get(field).computeIfAbsent(gram, g -> ConcurrentHashMap.newKeySet()).add(book.getId());
+            }
+        }
+        documents.put(book.getId(), fields);
+    }
+
+    public synchronized void remove(Long id) {
+        String[] fields = documents.remove(id);
+        if (fields == null) {
+            return;
+        }
+        for (int field = 0; field < FIELDS; field++) {
+            for (String gram : grams(fields[field])) {
+                Set<Long> ids = postings.get(field).get(gram);
+                if (ids != null) {
+                    ids.remove(id);
+                    if (ids.isEmpty()) {
+                        postings.get(field).remove(gram);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Ids of the books matching every property of the filter, best match
+     * first and by id on ties. Null filter properties are ignored.
+     */
+    public List<Long> search(Book filter) {
+        Map<Long, Double> scores = null;
+        String[] queries = {filter.getTitle(), filter.getAuthor(), filter.getIsbn()};
+        for (int field = 0; field < FIELDS; field++) {
+            if (queries[field] == null) {
+                continue;
+            }
+            Map<Long, Double> fieldScores = score(field, normalize(queries[field]));
+            if (scores == null) {
+                scores = fieldScores;
+            } else {
+                scores.keySet().retainAll(fieldScores.keySet());
+                scores.replaceAll((id, score) -> score + fieldScores.get(id));
+            }
+            if (scores.isEmpty()) {
+                return Collections.emptyList();
+            }
+        }
+        if (scores == null) {
+            return documents.keySet().stream().sorted().collect(Collectors.toList());
+        }
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    private Map<Long, Double> score(int field, String query) {
+        List<Long> matchingIds = new ArrayList<>();
+        for (Long id : candidates(field, query)) {
+            String[] fields = documents.get(id);
+            if (fields != null && fields[field] != null && fields[field].contains(query)) {
+                matchingIds.add(id);
+            }
+        }
+        if (matchingIds.isEmpty()) {
+            return new HashMap<>();
+        }
+        double idf = Math.log(1.0 + (double) documents.size() / matchingIds.size());
+        Map<Long, Double> fieldScores = new HashMap<>(matchingIds.size() * 2);
+        for (Long id : matchingIds) {
+            fieldScores.put(id, isWholeWord(documents.get(id)[field], query) ? idf * WHOLE_WORD_BOOST : idf);
+        }
+        return fieldScores;
+    }
+
+    /**
+     * Books holding every trigram of the query, smallest posting list first;
+     * a query shorter than a trigram has to be checked against every book.
+     */
+    private Collection<Long> candidates(int field, String query) {
+        Set<String> grams = grams(query);
+        if (grams.isEmpty()) {
+            return documents.keySet();
+        }
+        List<Set<Long>> lists = new ArrayList<>(grams.size());
+        for (String gram : grams) {
+            Set<Long> ids = postings.get(field).get(gram);
+            if (ids == null) {
+                return Collections.emptySet();
+            }
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+        Set<Long> candidates = new HashSet<>(lists.get(0));
+        for (int i = 1; i < lists.size() && !candidates.isEmpty(); i++) {
+            candidates.retainAll(lists.get(i));
+        }
+        return candidates;
+    }
+
+    private static boolean isWholeWord(String text, String query) {
+        if (query.isEmpty()) {
+            return false;
+        }
+        for (int at = text.indexOf(query); at >= 0; at = text.indexOf(query, at + 1)) {
+            int end = at + query.length();
+            if ((at == 0 || !Character.isLetterOrDigit(text.charAt(at - 1)))
+                    && (end == text.length() || !Character.isLetterOrDigit(text.charAt(end)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static String normalize(String text) {
+        return text == null ? null : text.toLowerCase(Locale.ROOT);
+    }
+
+    static Set<String> grams(String text) {
+        if (text == null || text.length() < GRAM) {
+            return Collections.emptySet();
+        }
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+}
@@ -3,12 +3,18 @@ package com.tarssito.libraryapi.service;
 import com.tarssito.libraryapi.model.entity.Book;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface BookService {
     Book save(Book book);
 
+    List<Book> saveAll(List<Book> books);
+
     Optional<Book> getByID(Long id);
 
     void delete(Book book);
@@ -17,5 +23,11 @@ public interface BookService {
 
     Page<Book> find(Book filter, Pageable pageRequest);
 
+    Slice<Book> findAfter(Book filter, Long afterId, int size);
+
     Optional<Book> getBookByIsbn(String isbn);
+
+    List<Book> getBooksByIsbn(Collection<String> isbns);
+
+    void export(Consumer<Book> consumer);
 }
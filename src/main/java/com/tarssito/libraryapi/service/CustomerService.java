@@ -0,0 +1,11 @@
+package com.tarssito.libraryapi.service;
+
+import com.tarssito.libraryapi.model.entity.Customer;
+
+import java.util.Optional;
+
+public interface CustomerService {
+    Optional<Customer> getById(Long id);
+
+    Customer create(String name, String email);
+}
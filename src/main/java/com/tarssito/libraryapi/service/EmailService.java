@@ -1,7 +1,15 @@
 package com.tarssito.libraryapi.service;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface EmailService {
-    void sendMails(String message, List<String> emails);
+
+    /**
+     * Queues one message per address. The future completes once every
+     * message was delivered, or exceptionally with a
+     * {@link com.tarssito.libraryapi.exception.MailDeliveryException}
+     * listing the addresses that could not be delivered or queued.
+     */
+    CompletableFuture<Void> sendMails(String message, List<String> emails);
 }
@@ -1,24 +1,58 @@
 package com.tarssito.libraryapi.service;
 
+import com.tarssito.libraryapi.api.dto.LoanDTO;
 import com.tarssito.libraryapi.api.dto.LoanFilterDTO;
 import com.tarssito.libraryapi.model.entity.Book;
 import com.tarssito.libraryapi.model.entity.Loan;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface LoanService {
     Loan save(Loan loan);
 
+    List<Loan> saveAll(List<Loan> loans);
+
     Optional<Loan> getById(Long id);
 
+    List<Loan> getAllById(Collection<Long> ids);
+
     Loan update(Loan loan);
 
+    List<Loan> updateAll(List<Loan> loans);
+
     Page<Loan> find(LoanFilterDTO filterDTO, Pageable pageable);
 
+    Page<LoanDTO> findDTO(LoanFilterDTO filterDTO, Pageable pageable);
+
+    Slice<Loan> findAfter(LoanFilterDTO filterDTO, LocalDate afterLoanDate, Long afterId, int size);
+
     Page<Loan> getByBook(Book book, Pageable pageable);
 
+    Page<LoanDTO> getDTOByBook(Book book, Pageable pageable);
+
+    Slice<Loan> getByBookAfter(Book book, LocalDate afterLoanDate, Long afterId, int size);
+
     List<Loan> getAllLateLoans();
+
+    /**
+     * Earliest due date of an open loan in {@code (after, until]}, if any.
+     */
+    Optional<LocalDate> getNextDueDate(LocalDate after, LocalDate until);
+
+    List<Loan> getLoansDueOn(LocalDate dueDate, Long afterId, int size);
+
+    /**
+     * Flags the loans that are still open as late and adds them to their
+     * costumers' late loan counters; returns how many were flagged.
+     */
+    int markLate(List<Loan> loans);
+
+    void export(Consumer<Loan> consumer);
 }
@@ -0,0 +1,56 @@
+package com.tarssito.libraryapi.service;
+
+import com.tarssito.libraryapi.model.repository.LoanRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * In-process set of the ids of books that currently have an open loan, so
+ * that checkouts can be answered without a count query. It is only a fast
+ * path: the unique constraint on {@code loan.open_book_id} is the source of
+ * truth, and a book found here is re-checked against the database before
+ * a checkout is refused.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LoanedBookIndex {
+
+    private final LoanRepository loanRepository;
+
+    private final Set<Long> loanedBookIds = ConcurrentHashMap.newKeySet();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void warmUp() {
+        try (Stream<Long> bookIds = loanRepository.streamLoanedBookIds()) {
+            bookIds.forEach(loanedBookIds::add);
+        }
+        log.info("loaned book index warmed up, {} books on loan", loanedBookIds.size());
+    }
+
+    /**
+     * Atomically marks the book as loaned.
+     *
+     * @return false when the book was already marked as loaned
+     */
+    public boolean reserve(Long bookId) {
+        return loanedBookIds.add(bookId);
+    }
+
+    public void release(Long bookId) {
+        loanedBookIds.remove(bookId);
+    }
+
+    public boolean isLoaned(Long bookId) {
+        return loanedBookIds.contains(bookId);
+    }
+}
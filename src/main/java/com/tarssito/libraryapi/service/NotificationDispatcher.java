@@ -0,0 +1,160 @@
+package com.tarssito.libraryapi.service;
+
+import com.tarssito.libraryapi.exception.MailDeliveryException;
+import com.tarssito.libraryapi.model.entity.NotificationOutbox;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Polls the notification outbox and hands the claimed mails to the
+ * {@link EmailService}. Each worker claims its own batch, so throughput grows
+ * with {@code application.notification.workers} without rescanning loans;
+ * a mail whose worker dies, or whose delivery does not finish within
+ * {@code application.notification.send-timeout-ms}, is picked up again once
+ * its lease expires.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class NotificationDispatcher {
+
+    private final NotificationService notificationService;
+    private final EmailService emailService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${application.notification.workers:4}")
+    private int workers;
+    @Value("${application.notification.batch-size:100}")
+    private int batchSize;
+    @Value("${application.notification.send-timeout-ms:60000}")
+    private long sendTimeoutMillis;
+    @Value("${application.notification.dispatch-timeout-ms:60000}")
+    private long dispatchTimeoutMillis;
+
+    private ThreadPoolTaskExecutor executor;
+    private volatile CompletableFuture<Void> running = CompletableFuture.completedFuture(null);
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setThreadNamePrefix("notification-dispatcher-");
+        executor.initialize();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Starts the workers and waits for them for at most
+     * {@code application.notification.dispatch-timeout-ms}, so a long drain
+     * does not hold the scheduler thread; the next poll only starts new
+     * workers once these are done.
+     */
+    @Scheduled(fixedDelayString = "${application.notification.poll-ms:5000}")
+    public void dispatch() {
+        if (!running.isDone()) {
+            log.debug("previous dispatch still draining the outbox");
+            return;
+        }
+        List<CompletableFuture<Void>> drains = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            drains.add(CompletableFuture.runAsync(this::drain, executor));
+        }
+        running = CompletableFuture.allOf(drains.toArray(new CompletableFuture[0]));
+        try {
+            running.get(dispatchTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.info("outbox still draining after {} ms, continuing in the background", dispatchTimeoutMillis);
+        } catch (ExecutionException e) {
+            log.error("could not dispatch notifications", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        List<NotificationOutbox> notifications;
+        do {
+            notifications = notificationService.claim(batchSize);
+            if (!notifications.isEmpty() && !send(notifications)) {
+                // the mail queue is not keeping up, leave the rest for a later poll
+                return;
+            }
+        } while (notifications.size() == batchSize);
+    }
+
+    /**
+     * @return false when a delivery timed out; its notifications are left
+     * claimed, to be claimed again once their lease expires
+     */
+    private boolean send(List<NotificationOutbox> notifications) {
+        Map<String, List<NotificationOutbox>> byMessage = new LinkedHashMap<>();
+        notifications.forEach(notification ->
+                byMessage.computeIfAbsent(notification.getMessage(), message -> new ArrayList<>()).add(notification));
+
+        boolean completed = true;
+        for (Map.Entry<String, List<NotificationOutbox>> entry : byMessage.entrySet()) {
+            String message = entry.getKey();
+            List<NotificationOutbox> group = entry.getValue();
+            List<String> recipients = new ArrayList<>(group.size());
+            group.forEach(notification -> recipients.add(notification.getRecipient()));
+            Set<String> failedRecipients = new HashSet<>();
+            String error = null;
+            try {
+                emailService.sendMails(message, recipients).get(sendTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                log.warn("{} notifications not delivered after {} ms, retrying once their lease expires",
+                        recipients.size(), sendTimeoutMillis);
+                meterRegistry.counter("library.notifications", "result", "timeout").increment(recipients.size());
+                completed = false;
+                continue;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (ExecutionException | RuntimeException e) {
+                Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+                error = cause.getMessage();
+                if (cause instanceof MailDeliveryException) {
+                    failedRecipients.addAll(((MailDeliveryException) cause).getFailedEmails());
+                } else {
+                    failedRecipients.addAll(recipients);
+                }
+                log.warn("could not send {} of {} notifications", failedRecipients.size(), recipients.size(), cause);
+            }
+
+            List<NotificationOutbox> sent = new ArrayList<>();
+            List<NotificationOutbox> failed = new ArrayList<>();
+            group.forEach(notification ->
+                    (failedRecipients.contains(notification.getRecipient()) ? failed : sent).add(notification));
+            notificationService.markSent(sent);
+            if (!failed.isEmpty()) {
+                notificationService.markFailed(failed, error);
+            }
+            meterRegistry.counter("library.notifications", "result", "sent").increment(sent.size());
+            meterRegistry.counter("library.notifications", "result", "failed").increment(failed.size());
+        }
+        return completed;
+    }
+}
@@ -0,0 +1,38 @@
+package com.tarssito.libraryapi.service;
+
+import com.tarssito.libraryapi.model.entity.Loan;
+import com.tarssito.libraryapi.model.entity.NotificationOutbox;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface NotificationService {
+
+    /**
+     * Queues the late-loan mail of each loan not notified yet for the due
+     * date it fell late on, so that re-running or resuming the scan of that
+     * date on any later day does not queue the same mail twice.
+     *
+     * @return the number of mails queued
+     */
+    int enqueueLateLoans(List<Loan> loans, LocalDate dueDate);
+
+    /**
+     * Claims up to {@code size} pending mails, leasing them to the caller
+     * until they are marked as sent or failed or the lease expires.
+     */
+    List<NotificationOutbox> claim(int size);
+
+    /**
+     * Marks the mails as sent, except the ones cancelled meanwhile by the
+     * return of their loan.
+     */
+    void markSent(Collection<NotificationOutbox> notifications);
+
+    /**
+     * Schedules another attempt with exponential backoff, or gives up once
+     * the maximum number of attempts was reached.
+     */
+    void markFailed(Collection<NotificationOutbox> notifications, String error);
+}
@@ -1,34 +1,93 @@
 package com.tarssito.libraryapi.service;
 
+import com.tarssito.libraryapi.model.entity.JobWatermark;
 import com.tarssito.libraryapi.model.entity.Loan;
+import com.tarssito.libraryapi.model.repository.JobWatermarkRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Clock;
+import java.time.LocalDate;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Optional;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class ScheduleService {
 
     private static final String CRON_LATE_LOANS = "0 0 0 1/1 * ?";
 
+    static final String LATE_LOANS_JOB = "late-loans";
+
     private final LoanService loanService;
+    private final NotificationService notificationService;
+    private final JobWatermarkRepository watermarkRepository;
+    private final MeterRegistry meterRegistry;
+    private final Clock clock;
 
-    @Value("${application.mail.lateloans.message}")
-    private String message;
-    private EmailService emailService;
+    @Value("${application.mail.lateloans.page-size:1000}")
+    private int pageSize;
 
+    /**
+     * Queues the mails of the loans that fell due since the last run, one
+     * due date at a time, and moves the persisted watermark past each day
+     * once it is done; {@link NotificationDispatcher} sends the mails.
+     */
     @Scheduled(cron = CRON_LATE_LOANS)
-    public void sendMailToLateLoans() {
-        List<Loan> allLateLoans = loanService.getAllLateLoans();
-        List<String> emails = allLateLoans.stream()
-                .map(Loan::getCostumerEmail)
-                .collect(Collectors.toList());
+    public void enqueueLateLoanMails() {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        LocalDate today = LocalDate.now(clock);
+        JobWatermark watermark = watermarkRepository.findById(LATE_LOANS_JOB)
+                .orElseGet(() -> JobWatermark.builder().name(LATE_LOANS_JOB).watermark(LocalDate.EPOCH).build());
+        long found = 0;
+
+        Optional<LocalDate> dueDate = loanService.getNextDueDate(watermark.getWatermark(), today);
+        while (dueDate.isPresent()) {
+            found += enqueueLoansDueOn(dueDate.get());
+            watermark = advance(watermark, dueDate.get());
+            dueDate = loanService.getNextDueDate(dueDate.get(), today);
+        }
+        // no open loan falls due up to today, the next run only looks past it
+        advance(watermark, today);
+
+        sample.stop(meterRegistry.timer("library.lateloans.job"));
+        meterRegistry.summary("library.lateloans.job.size").record(found);
+        log.info("late loans job finished, {} late loans", found);
+    }
+
+    private long enqueueLoansDueOn(LocalDate dueDate) {
+        Counter lateLoans = meterRegistry.counter("library.lateloans.loans");
+        Counter enqueued = meterRegistry.counter("library.lateloans.enqueued");
+        long found = 0;
 
-        emailService.sendMails(message, emails);
+        Long afterId = 0L;
+        List<Loan> page;
+        do {
+            page = loanService.getLoansDueOn(dueDate, afterId, pageSize);
+            if (page.isEmpty()) {
+                break;
+            }
+            lateLoans.increment(page.size());
+            found += page.size();
+            loanService.markLate(page);
+            enqueued.increment(notificationService.enqueueLateLoans(page, dueDate));
+            afterId = page.get(page.size() - 1).getId();
+        } while (page.size() == pageSize);
+        return found;
+    }
 
+    private JobWatermark advance(JobWatermark watermark, LocalDate day) {
+        if (!day.isAfter(watermark.getWatermark())) {
+            return watermark;
+        }
+        watermark.setWatermark(day);
+        return watermarkRepository.save(watermark);
     }
 }
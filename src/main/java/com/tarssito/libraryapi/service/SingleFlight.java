@@ -0,0 +1,97 @@
+package com.tarssito.libraryapi.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Coalesces concurrent identical lookups: while a load of a key is in flight
+ * every other caller asking for the same key waits for it and gets its
+ * result (or its exception) instead of running its own. Nothing is kept once
+ * the load finishes, so this covers the moments a cache can't, like a miss
+ * or an expiry of a popular entry.
+ * <p>
+ * Only the key spaces listed in {@code application.single-flight.key-spaces}
+ * are coalesced; the others just run the loader. Every call is counted in
+ * {@code library.single-flight.calls}, tagged {@code result=leader} when it
+ * ran the loader and {@code result=shared} when it joined another call.
+ */
+@Component
+public class SingleFlight {
+
+    private final ConcurrentMap<List<Object>, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Counter> leaders;
+    private final Map<String, Counter> shared;
+
+    public SingleFlight(MeterRegistry meterRegistry,
+                        @Value("${application.single-flight.key-spaces:}") Set<String> keySpaces) {
+        leaders = counters(meterRegistry, keySpaces, "leader");
+        shared = counters(meterRegistry, keySpaces, "shared");
+    }
+
+    /**
+     * Runs the loader unless a load of the same key is already in flight, in
+     * which case waits for that one and returns its result. Callers sharing
+     * a result share the same instance, so it must not be modified.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String keySpace, Object key, Supplier<T> loader) {
+        if (!leaders.containsKey(keySpace)) {
+            return loader.get();
+        }
+        List<Object> flightKey = List.of(keySpace, key);
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> current = inFlight.putIfAbsent(flightKey, flight);
+        if (current != null) {
+            shared.get(keySpace).increment();
+            return (T) join(current);
+        }
+        leaders.get(keySpace).increment();
+        try {
+            T result = loader.get();
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, flight);
+        }
+    }
+
+    private Object join(CompletableFuture<Object> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static Map<String, Counter> counters(MeterRegistry meterRegistry, Set<String> keySpaces, String result) {
+        return keySpaces.stream()
+                .map(String::trim)
+                .filter(keySpace -> !keySpace.isEmpty())
+                .collect(Collectors.toMap(Function.identity(), keySpace -> Counter.builder("library.single-flight.calls")
+                        .tag("key_space", keySpace)
+                        .tag("result", result)
+                        .register(meterRegistry), (a, b) -> a));
+    }
+}
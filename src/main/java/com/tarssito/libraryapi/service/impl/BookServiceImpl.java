@@ -3,52 +3,121 @@ package com.tarssito.libraryapi.service.impl;
 import com.tarssito.libraryapi.exception.BusinessException;
 import com.tarssito.libraryapi.model.entity.Book;
 import com.tarssito.libraryapi.model.repository.BookRepository;
+import com.tarssito.libraryapi.service.BookSearchIndex;
+import com.tarssito.libraryapi.service.BookChangedEvent;
 import com.tarssito.libraryapi.service.BookService;
+import com.tarssito.libraryapi.service.SingleFlight;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.ExampleMatcher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.CacheStoreMode;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class BookServiceImpl implements BookService {
+    static final String BOOKS_BY_ISBN = "booksByIsbn";
+    static final String BOOK_BY_ID = "book";
+
     private final BookRepository repository;
+    private final BookSearchIndex searchIndex;
+    private final SingleFlight singleFlight;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     @Override
+    @Transactional
+    @CacheEvict(cacheNames = BOOKS_BY_ISBN, key = "#book.isbn", condition = "#book?.isbn != null")
     public Book save(Book book) {
         if(repository.existsByIsbn(book.getIsbn())) {
             throw new BusinessException("Isbn já cadastrado.");
         }
-        return repository.save(book);
+        Book savedBook = repository.save(book);
+        eventPublisher.publishEvent(BookChangedEvent.saved(List.of(savedBook)));
+        return savedBook;
+    }
+
+    @Override
+    @Transactional
+    public List<Book> saveAll(List<Book> books) {
+        Map<String, Book> newBooks = new LinkedHashMap<>();
+        books.forEach(book -> newBooks.putIfAbsent(book.getIsbn(), book));
+        Set<String> existingIsbns = repository.findExistingIsbns(newBooks.keySet());
+        existingIsbns.forEach(newBooks::remove);
+        List<Book> savedBooks = repository.saveAll(newBooks.values());
+        eventPublisher.publishEvent(BookChangedEvent.saved(savedBooks));
+        return savedBooks;
     }
 
+    /**
+     * Concurrent lookups of the same id share one query. Each caller gets its
+     * own copy of the book, as updates and deletes start from this lookup.
+     */
     @Override
     public Optional<Book> getByID(Long id) {
-        return repository.findById(id);
+        return singleFlight.execute(BOOK_BY_ID, id, () -> repository.findById(id)).map(Book::copy);
     }
 
     @Override
+    @CacheEvict(cacheNames = BOOKS_BY_ISBN, key = "#book.isbn", condition = "#book?.isbn != null")
     public void delete(Book book) {
         if (book == null || book.getId() == null) {
             throw new IllegalArgumentException("Book id can't be null");
         }
         repository.delete(book);
+        eventPublisher.publishEvent(BookChangedEvent.removed(book.getId()));
     }
 
     @Override
+    @CacheEvict(cacheNames = BOOKS_BY_ISBN, key = "#book.isbn", condition = "#book?.isbn != null")
     public Book update(Book book) {
         if (book == null || book.getId() == null) {
             throw new IllegalArgumentException("Book id can't be null");
         }
-        return repository.save(book);
+        Book updatedBook = repository.save(book);
+        eventPublisher.publishEvent(BookChangedEvent.saved(List.of(updatedBook)));
+        return updatedBook;
     }
 
+    /**
+     * Unsorted pages of a text filter come from the search index, ranked by
+     * relevance. It matches like the query by example, so a sort or a cold
+     * index changes only the order of the books found, never which ones.
+     */
     @Override
+    @Transactional(readOnly = true)
     public Page<Book> find(Book filter, Pageable pageRequest) {
+        if (searchIndex.isReady() && pageRequest.isPaged() && pageRequest.getSort().isUnsorted()
+                && filter.getId() == null && filter.getAvailable() == null
+                && (filter.getTitle() != null || filter.getAuthor() != null || filter.getIsbn() != null)) {
+            return search(filter, pageRequest);
+        }
         Example<Book> example = Example.of(filter,
                 ExampleMatcher
                     .matching()
@@ -59,8 +128,48 @@ public class BookServiceImpl implements BookService {
         return repository.findAll(example, pageRequest);
     }
 
+    private Page<Book> search(Book filter, Pageable pageRequest) {
+        List<Long> ids = searchIndex.search(filter);
+        int from = (int) Math.min(pageRequest.getOffset(), ids.size());
+        List<Long> pageIds = ids.subList(from, Math.min(from + pageRequest.getPageSize(), ids.size()));
+        Map<Long, Book> books = repository.findAllById(pageIds).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        List<Book> content = pageIds.stream()
+                .map(books::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        return new PageImpl<>(content, pageRequest, ids.size());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<Book> findAfter(Book filter, Long afterId, int size) {
+        return repository.findNextPage(
+                filter.getTitle(), filter.getAuthor(), filter.getIsbn(), filter.getAvailable(), afterId,
+                PageRequest.of(0, size));
+    }
+
     @Override
+    @Cacheable(cacheNames = BOOKS_BY_ISBN, unless = "#result == null")
     public Optional<Book> getBookByIsbn(String isbn) {
-        return Optional.empty();
+        return repository.findByIsbn(isbn);
+    }
+
+    @Override
+    public List<Book> getBooksByIsbn(Collection<String> isbns) {
+        return isbns.isEmpty() ? List.of() : repository.findByIsbnIn(isbns);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void export(Consumer<Book> consumer) {
+        // the rows are loaded while scrolling, after the query hint no longer applies
+        entityManager.setProperty(AvailableSettings.JPA_SHARED_CACHE_STORE_MODE, CacheStoreMode.BYPASS);
+        try (Stream<Book> books = repository.streamAll()) {
+            books.forEach(book -> {
+                consumer.accept(book);
+                entityManager.detach(book);
+            });
+        }
     }
 }
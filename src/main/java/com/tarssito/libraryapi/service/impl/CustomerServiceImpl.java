@@ -0,0 +1,34 @@
+package com.tarssito.libraryapi.service.impl;
+
+import com.tarssito.libraryapi.model.entity.Customer;
+import com.tarssito.libraryapi.model.repository.CustomerRepository;
+import com.tarssito.libraryapi.service.CustomerService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Service
+@RequiredArgsConstructor
+public class CustomerServiceImpl implements CustomerService {
+
+    private final CustomerRepository customerRepository;
+
+    @Override
+    public Optional<Customer> getById(Long id) {
+        return customerRepository.findById(id);
+    }
+
+    /**
+     * Inserts the costumer in a transaction of its own, so a name taken by
+     * a concurrent insert fails here with a DataIntegrityViolationException
+     * and leaves the caller's transaction usable to read that costumer back.
+     */
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public Customer create(String name, String email) {
+        return customerRepository.saveAndFlush(Customer.builder().name(name).email(email).build());
+    }
+}
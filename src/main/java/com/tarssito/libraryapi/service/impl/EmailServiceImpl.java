@@ -1,34 +1,266 @@
 package com.tarssito.libraryapi.service.impl;
 
+import com.tarssito.libraryapi.exception.MailDeliveryException;
 import com.tarssito.libraryapi.service.EmailService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.mail.MessagingException;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Delivery engine: messages wait in a bounded in-memory queue and are sent
+ * by a fixed set of sender threads, each keeping its own SMTP connection
+ * open while there is work. Callers block for at most
+ * {@code application.mail.offer-timeout-ms} when the queue is full; messages
+ * that still do not fit are reported as failed.
+ */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class EmailServiceImpl implements EmailService {
 
+    private static final String SUBJECT = "Livro com empréstimo atrasado.";
+
     @Value("${application.mail.default-sender}")
     private String sender;
+    @Value("${application.mail.queue-capacity:10000}")
+    private int queueCapacity;
+    @Value("${application.mail.senders:4}")
+    private int senders;
+    @Value("${application.mail.offer-timeout-ms:5000}")
+    private long offerTimeoutMillis;
+    @Value("${application.mail.idle-timeout-ms:10000}")
+    private long idleTimeoutMillis;
+
+    private final JavaMailSenderImpl javaMailSender;
+    private final MeterRegistry meterRegistry;
+
+    private BlockingQueue<Delivery> queue;
+    private final List<Thread> senderThreads = new ArrayList<>();
+    private final AtomicInteger liveSenders = new AtomicInteger();
+    private volatile boolean running;
 
-    private final JavaMailSender javaMailSender;
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        meterRegistry.gaugeCollectionSize("library.mail.queue.size", Tags.empty(), queue);
+        running = true;
+        liveSenders.set(senders);
+        for (int i = 0; i < senders; i++) {
+            Thread thread = new Thread(this::deliver, "mail-sender-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            senderThreads.add(thread);
+        }
+    }
+
+    /**
+     * Lets the senders finish the queued messages for up to 30 seconds, then
+     * fails whatever is still queued so that no caller waits forever.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Thread thread : senderThreads) {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        }
+        senderThreads.forEach(Thread::interrupt);
+        failQueued();
+    }
 
     @Override
-    public void sendMails(String message, List<String> emails) {
-        String[] mails = emails.toArray(new String[emails.size()]);
+    public CompletableFuture<Void> sendMails(String message, List<String> emails) {
+        Request request = new Request(emails.size());
+        for (int i = 0; i < emails.size(); i++) {
+            Delivery delivery = new Delivery(request, message, emails.get(i));
+            if (!running || !offer(delivery)) {
+                log.warn("mail queue is full, {} messages not queued", emails.size() - i);
+                for (String email : emails.subList(i, emails.size())) {
+                    meterRegistry.counter("library.mail.messages", "result", "rejected").increment();
+                    request.done(email, false);
+                }
+                break;
+            }
+        }
+        return request.future;
+    }
+
+    private boolean offer(Delivery delivery) {
+        try {
+            return queue.offer(delivery, offerTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void deliver() {
+        Transport transport = null;
+        long pollMillis = Math.min(idleTimeoutMillis, 1000);
+        long lastSend = System.currentTimeMillis();
+        while (running || !queue.isEmpty()) {
+            try {
+                Delivery delivery = queue.poll(pollMillis, TimeUnit.MILLISECONDS);
+                if (delivery == null) {
+                    if (System.currentTimeMillis() - lastSend >= idleTimeoutMillis) {
+                        transport = close(transport);
+                    }
+                    continue;
+                }
+                transport = send(transport, delivery);
+                lastSend = System.currentTimeMillis();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        close(transport);
+        // the last sender out fails what nobody is left to send
+        if (liveSenders.decrementAndGet() == 0 || !running) {
+            failQueued();
+        }
+    }
+
+    private void failQueued() {
+        List<Delivery> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            log.warn("mail senders stopped, {} queued messages not sent", remaining.size());
+        }
+        for (Delivery delivery : remaining) {
+            meterRegistry.counter("library.mail.messages", "result", "rejected").increment();
+            delivery.request.done(delivery.email, false);
+        }
+    }
+
+    /**
+     * Sends over the sender's open connection, reconnecting once when the
+     * server dropped it. The connection is not probed before use: a NOOP per
+     * message would cost one more round trip than the reconnect it saves.
+     */
+    private Transport send(Transport transport, Delivery delivery) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        boolean sent = false;
+        try {
+            MimeMessage mimeMessage = delivery.toMimeMessage();
+            for (int attempt = 1; !sent && attempt <= 2; attempt++) {
+                try {
+                    if (transport == null) {
+                        transport = connect();
+                    }
+                    transport.sendMessage(mimeMessage, mimeMessage.getAllRecipients());
+                    sent = true;
+                } catch (MessagingException e) {
+                    transport = close(transport);
+                    if (attempt == 2) {
+                        log.error("could not send mail to {}", delivery.email, e);
+                    }
+                }
+            }
+        } catch (MessagingException e) {
+            log.error("could not build mail to {}", delivery.email, e);
+        } catch (RuntimeException e) {
+            // the connection may be left half-written, start over on a new one
+            transport = close(transport);
+            log.error("could not send mail to {}", delivery.email, e);
+        } finally {
+            String result = sent ? "sent" : "failed";
+            sample.stop(meterRegistry.timer("library.mail.send", "result", result));
+            meterRegistry.counter("library.mail.messages", "result", result).increment();
+            delivery.request.done(delivery.email, sent);
+        }
+        return transport;
+    }
+
+    private Transport connect() throws MessagingException {
+        String protocol = javaMailSender.getProtocol();
+        if (protocol == null) {
+            protocol = javaMailSender.getSession().getProperty("mail.transport.protocol");
+        }
+        Transport transport = javaMailSender.getSession()
+                .getTransport(protocol != null ? protocol : JavaMailSenderImpl.DEFAULT_PROTOCOL);
+        transport.connect(javaMailSender.getHost(), javaMailSender.getPort(),
+                javaMailSender.getUsername(), javaMailSender.getPassword());
+        return transport;
+    }
+
+    private Transport close(Transport transport) {
+        if (transport != null) {
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                log.debug("error closing smtp connection", e);
+            }
+        }
+        return null;
+    }
+
+    private class Delivery {
+        final Request request;
+        final String text;
+        final String email;
+
+        Delivery(Request request, String text, String email) {
+            this.request = request;
+            this.text = text;
+            this.email = email;
+        }
+
+        MimeMessage toMimeMessage() throws MessagingException {
+            MimeMessage mimeMessage = javaMailSender.createMimeMessage();
+            MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, "UTF-8");
+            helper.setFrom(sender);
+            helper.setTo(email);
+            helper.setSubject(SUBJECT);
+            helper.setText(text);
+            mimeMessage.saveChanges();
+            return mimeMessage;
+        }
+    }
 
-        final SimpleMailMessage mailMessage = new SimpleMailMessage();
+    private static class Request {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        final AtomicInteger pending;
+        final List<String> failedEmails = Collections.synchronizedList(new ArrayList<>());
 
-        mailMessage.setFrom(sender);
-        mailMessage.setSubject("Livro com empréstimo atrasado.");
-        mailMessage.setText(message);
-        mailMessage.setTo(mails);
+        Request(int size) {
+            pending = new AtomicInteger(size);
+            if (size == 0) {
+                future.complete(null);
+            }
+        }
 
-        javaMailSender.send(mailMessage);
+        void done(String email, boolean sent) {
+            if (!sent) {
+                failedEmails.add(email);
+            }
+            if (pending.decrementAndGet() == 0) {
+                if (failedEmails.isEmpty()) {
+                    future.complete(null);
+                } else {
+                    future.completeExceptionally(new MailDeliveryException(
+                            failedEmails.size() + " mails could not be delivered", new ArrayList<>(failedEmails)));
+                }
+            }
+        }
     }
 }
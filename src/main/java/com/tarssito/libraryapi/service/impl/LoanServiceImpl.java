@@ -1,32 +1,251 @@
 package com.tarssito.libraryapi.service.impl;
 
+import com.tarssito.libraryapi.api.dto.LoanDTO;
 import com.tarssito.libraryapi.api.dto.LoanFilterDTO;
 import com.tarssito.libraryapi.exception.BusinessException;
 import com.tarssito.libraryapi.model.entity.Book;
+import com.tarssito.libraryapi.model.entity.Customer;
 import com.tarssito.libraryapi.model.entity.Loan;
+import com.tarssito.libraryapi.model.entity.NotificationOutbox;
+import com.tarssito.libraryapi.model.repository.BookRepository;
+import com.tarssito.libraryapi.model.repository.CustomerRepository;
 import com.tarssito.libraryapi.model.repository.LoanRepository;
+import com.tarssito.libraryapi.model.repository.NotificationOutboxRepository;
+import com.tarssito.libraryapi.service.BookChangedEvent;
+import com.tarssito.libraryapi.service.CustomerService;
 import com.tarssito.libraryapi.service.LoanService;
+import com.tarssito.libraryapi.service.LoanedBookIndex;
+import com.tarssito.libraryapi.service.SingleFlight;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import javax.persistence.CacheStoreMode;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class LoanServiceImpl implements LoanService {
+    static final String LOANS_BY_BOOK = "book-loans";
+    static final Map<String, String> UNION_SORT_COLUMNS = Map.of("loanDate", "loan_date", "id", "id");
 
     private final LoanRepository loanRepository;
+    private final BookRepository bookRepository;
+    private final LoanedBookIndex loanedBookIndex;
+    private final NotificationOutboxRepository notificationOutboxRepository;
+    private final CustomerRepository customerRepository;
+    private final CustomerService customerService;
+    private final SingleFlight singleFlight;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${application.loan.days:4}")
+    private int loanDays;
 
     @Override
+    @Transactional
     public Loan save(Loan loan) {
-        if (loanRepository.existsByBookNotReturned(loan.getBook())) {
+        Long bookId = loan.getBook().getId();
+        boolean reserved = loanedBookIndex.reserve(bookId);
+        if (!reserved && loanRepository.existsByBookNotReturned(loan.getBook())) {
+            throw new BusinessException("Book already loaned");
+        }
+        if (reserved) {
+            releaseUnlessCommitted(List.of(bookId));
+        }
+        setDueDate(loan);
+        loan.setCustomer(resolveCustomers(List.of(loan)).get(customerName(loan)));
+        try {
+            Loan saved = loanRepository.save(loan);
+            bookRepository.findById(bookId).ifPresent(book -> book.setCurrentLoanId(saved.getId()));
+            loanRepository.flush();
+            countLoans(List.of(saved));
+            eventPublisher.publishEvent(BookChangedEvent.availability(List.of(bookId)));
+            return saved;
+        } catch (DataIntegrityViolationException e) {
+            throw bookAlreadyLoaned(e);
+        } catch (OptimisticLockingFailureException e) {
             throw new BusinessException("Book already loaned");
         }
-        return loanRepository.save(loan);
+    }
+
+    /**
+     * Checks out every loan or none: availability of all the books is read
+     * in one query, and the loans and book updates go out as JDBC batches.
+     */
+    @Override
+    @Transactional
+    public List<Loan> saveAll(List<Loan> loans) {
+        List<Long> bookIds = loans.stream().map(loan -> loan.getBook().getId()).collect(Collectors.toList());
+        releaseUnlessCommitted(bookIds.stream().filter(loanedBookIndex::reserve).collect(Collectors.toList()));
+        Map<Long, Book> books = bookRepository.findAllById(bookIds).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        for (Loan loan : loans) {
+            Book book = books.get(loan.getBook().getId());
+            if (book == null || book.getCurrentLoanId() != null) {
+                throw new BusinessException("Book already loaned");
+            }
+            loan.setBook(book);
+            setDueDate(loan);
+        }
+        Map<String, Customer> customers = resolveCustomers(loans);
+        loans.forEach(loan -> loan.setCustomer(customers.get(customerName(loan))));
+        try {
+            List<Loan> saved = loanRepository.saveAll(loans);
+            saved.forEach(loan -> loan.getBook().setCurrentLoanId(loan.getId()));
+            loanRepository.flush();
+            countLoans(saved);
+            eventPublisher.publishEvent(BookChangedEvent.availability(bookIds));
+            return saved;
+        } catch (DataIntegrityViolationException e) {
+            throw bookAlreadyLoaned(e);
+        } catch (OptimisticLockingFailureException e) {
+            throw new BusinessException("Book already loaned");
+        }
+    }
+
+    /**
+     * A second open loan of the book, rejected by the unique open_book_id;
+     * any other integrity violation is not a loan conflict and goes through.
+     */
+    private RuntimeException bookAlreadyLoaned(DataIntegrityViolationException e) {
+        String message = e.getMostSpecificCause().getMessage();
+        if (message != null && message.toLowerCase().contains("ux_loan_open_book")) {
+            return new BusinessException("Book already loaned");
+        }
+        return e;
+    }
+
+    /**
+     * Gives back the books this transaction reserved in the index unless it
+     * commits, whether it fails here or later, at commit time. Books
+     * reserved by another transaction are not touched.
+     */
+    private void releaseUnlessCommitted(Collection<Long> reservedBookIds) {
+        if (reservedBookIds.isEmpty()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    reservedBookIds.forEach(loanedBookIndex::release);
+                }
+            }
+        });
+    }
+
+    /**
+     * Takes the returned books off the index once the return is committed,
+     * so that a rolled back return leaves them loaned.
+     */
+    private void releaseAfterCommit(Collection<Long> returnedBookIds) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                returnedBookIds.forEach(loanedBookIndex::release);
+            }
+        });
+    }
+
+    private void setDueDate(Loan loan) {
+        if (loan.getDueDate() == null && loan.getLoanDate() != null) {
+            loan.setDueDate(loan.getLoanDate().plusDays(loanDays));
+        }
+    }
+
+    /**
+     * Managed costumers of the loans by name, created on their first loan.
+     * The name stays the identity, so a loan never changes the email already
+     * on record; it only fills one that is still missing. A costumer is
+     * created in a transaction of its own, and when a concurrent first loan
+     * took the name meanwhile, the costumer it created is used instead.
+     */
+    private Map<String, Customer> resolveCustomers(List<Loan> loans) {
+        Map<String, Customer> requested = new HashMap<>();
+        loans.stream().map(Loan::getCustomer)
+                .filter(customer -> customer != null && customer.getName() != null)
+                .forEach(customer -> requested.merge(customer.getName(), customer,
+                        (first, second) -> hasEmail(first) ? first : second));
+        if (requested.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, Customer> customers = customersByName(requested.keySet());
+        Set<String> missing = new HashSet<>(requested.keySet());
+        missing.removeAll(customers.keySet());
+        if (!missing.isEmpty()) {
+            for (String name : missing) {
+                try {
+                    customerService.create(name, requested.get(name).getEmail());
+                } catch (DataIntegrityViolationException e) {
+                    customerRepository.findByName(name).orElseThrow(() -> e);
+                }
+            }
+            customers.putAll(customersByName(missing));
+        }
+        requested.forEach((name, customer) -> {
+            Customer existing = customers.get(name);
+            if (existing != null && !hasEmail(existing) && hasEmail(customer)) {
+                existing.setEmail(customer.getEmail());
+            }
+        });
+        return customers;
+    }
+
+    private Map<String, Customer> customersByName(Collection<String> names) {
+        return customerRepository.findByNameIn(names).stream()
+                .collect(Collectors.toMap(Customer::getName, Function.identity()));
+    }
+
+    private boolean hasEmail(Customer customer) {
+        return customer.getEmail() != null && !customer.getEmail().isEmpty();
+    }
+
+    private String customerName(Loan loan) {
+        return loan.getCustomer() == null ? null : loan.getCustomer().getName();
+    }
+
+    private void countLoans(List<Loan> loans) {
+        countByCustomer(loans).forEach(customerRepository::addLoans);
+    }
+
+    private Map<Long, Long> countByCustomer(Collection<Loan> loans) {
+        return loans.stream()
+                .filter(loan -> loan.getCustomer() != null)
+                .collect(Collectors.groupingBy(loan -> loan.getCustomer().getId(), Collectors.counting()));
     }
 
     @Override
@@ -35,24 +254,239 @@ public class LoanServiceImpl implements LoanService {
     }
 
     @Override
+    public List<Loan> getAllById(Collection<Long> ids) {
+        return ids.isEmpty() ? List.of() : loanRepository.findAllWithBookByIdIn(ids);
+    }
+
+    @Override
+    @Transactional
     public Loan update(Loan loan) {
-        return null;
+        checkReturns(List.of(loan));
+        Loan updated = loanRepository.save(loan);
+        if (Boolean.TRUE.equals(updated.getReturned())) {
+            notificationOutboxRepository.updateStatusByLoan(
+                    updated.getId(), NotificationOutbox.Status.PENDING, NotificationOutbox.Status.CANCELLED);
+            bookRepository.findById(updated.getBook().getId())
+                    .filter(book -> updated.getId().equals(book.getCurrentLoanId()))
+                    .ifPresent(book -> book.setCurrentLoanId(null));
+            releaseAfterCommit(List.of(updated.getBook().getId()));
+            eventPublisher.publishEvent(BookChangedEvent.availability(List.of(updated.getBook().getId())));
+        }
+        return updated;
+    }
+
+    @Override
+    @Transactional
+    public List<Loan> updateAll(List<Loan> loans) {
+        checkReturns(loans);
+        List<Loan> updated = loanRepository.saveAll(loans);
+        Map<Long, Long> returnedByBook = updated.stream()
+                .filter(loan -> Boolean.TRUE.equals(loan.getReturned()))
+                .collect(Collectors.toMap(loan -> loan.getBook().getId(), Loan::getId, (first, second) -> first));
+        if (!returnedByBook.isEmpty()) {
+            notificationOutboxRepository.updateStatusByLoans(
+                    returnedByBook.values(), NotificationOutbox.Status.PENDING, NotificationOutbox.Status.CANCELLED);
+            bookRepository.findAllById(returnedByBook.keySet()).stream()
+                    .filter(book -> returnedByBook.get(book.getId()).equals(book.getCurrentLoanId()))
+                    .forEach(book -> book.setCurrentLoanId(null));
+            releaseAfterCommit(Set.copyOf(returnedByBook.keySet()));
+            eventPublisher.publishEvent(BookChangedEvent.availability(returnedByBook.keySet()));
+        }
+        return updated;
+    }
+
+    /**
+     * Compares the loans with their state read in this transaction. A returned
+     * loan cannot be reopened, as that would skip the checkout of its book,
+     * and the loans being returned are taken off their costumers' counters.
+     * The version check on save rolls it back if the state changed meanwhile.
+     */
+    private void checkReturns(List<Loan> loans) {
+        List<Long> ids = loans.stream().map(Loan::getId).filter(Objects::nonNull).collect(Collectors.toList());
+        if (ids.isEmpty()) {
+            return;
+        }
+        Map<Long, Loan> stored = loanRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Loan::getId, Function.identity()));
+        List<Loan> returning = new ArrayList<>();
+        for (Loan loan : loans) {
+            Loan current = loan.getId() == null ? null : stored.get(loan.getId());
+            if (current == null) {
+                continue;
+            }
+            boolean returned = Boolean.TRUE.equals(loan.getReturned());
+            if (Boolean.TRUE.equals(current.getReturned())) {
+                if (!returned) {
+                    throw new BusinessException("Returned loan cannot be reopened");
+                }
+            } else if (returned) {
+                returning.add(current);
+            }
+        }
+        Map<Long, Long> late = countByCustomer(returning.stream()
+                .filter(loan -> Boolean.TRUE.equals(loan.getLate()))
+                .collect(Collectors.toList()));
+        countByCustomer(returning).forEach((customerId, returned) ->
+                customerRepository.returnLoans(customerId, returned, late.getOrDefault(customerId, 0L)));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<Loan> find(LoanFilterDTO filterDTO, Pageable pageable) {
-        return loanRepository.findByBookOrCustomer(filterDTO.getIsbn(), filterDTO.getCostumer(), pageable);
+        return byBookOrCustomer(filterDTO,
+                book -> loanRepository.findByBook(book, pageable),
+                customer -> loanRepository.findByCustomer(customer, pageable),
+                (book, customer) -> {
+                    Page<Long> ids = loanRepository.findIdsByBookOrCustomer(
+                            book.getId(), customer.getId(), unionPageable(pageable)).map(Number::longValue);
+                    return unionPage(ids, pageable,
+                            loansById(loanRepository.findAllWithBookByIdIn(ids.getContent()), Loan::getId));
+                },
+                () -> Page.empty(pageable));
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public Page<LoanDTO> findDTO(LoanFilterDTO filterDTO, Pageable pageable) {
+        return byBookOrCustomer(filterDTO,
+                book -> loanRepository.findDTOByBook(book, pageable),
+                customer -> loanRepository.findDTOByCustomer(customer, pageable),
+                (book, customer) -> {
+                    Page<Long> ids = loanRepository.findIdsByBookOrCustomer(
+                            book.getId(), customer.getId(), unionPageable(pageable)).map(Number::longValue);
+                    return unionPage(ids, pageable,
+                            loansById(loanRepository.findDTOByIdIn(ids.getContent()), LoanDTO::getId));
+                },
+                () -> Page.empty(pageable));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<Loan> findAfter(LoanFilterDTO filterDTO, LocalDate afterLoanDate, Long afterId, int size) {
+        PageRequest pageRequest = PageRequest.of(0, size);
+        return byBookOrCustomer(filterDTO,
+                book -> loanRepository.findNextPageByBook(book, afterLoanDate, afterId, pageRequest),
+                customer -> loanRepository.findNextPageByCustomer(customer, afterLoanDate, afterId, pageRequest),
+                (book, customer) -> {
+                    Slice<Long> ids = loanRepository.findNextIdsByBookOrCustomer(
+                            book.getId(), customer.getId(), afterLoanDate, afterId, pageRequest).map(Number::longValue);
+                    return ids.map(loansById(loanRepository.findAllWithBookByIdIn(ids.getContent()), Loan::getId));
+                },
+                () -> new SliceImpl<>(List.of(), pageRequest, false));
+    }
+
+    /**
+     * Picks the index-friendly query for the filter: the isbn and the
+     * costumer name are both unique, so each one resolves to a single row
+     * whose loans are one index range, and only a filter on both needs the
+     * union of the two.
+     */
+    private <T> T byBookOrCustomer(LoanFilterDTO filterDTO,
+                                   Function<Book, T> byBook,
+                                   Function<Customer, T> byCustomer,
+                                   BiFunction<Book, Customer, T> byBookOrCustomer,
+                                   Supplier<T> none) {
+        Optional<Book> book = Optional.ofNullable(filterDTO.getIsbn()).flatMap(bookRepository::findByIsbn);
+        Optional<Customer> customer = Optional.ofNullable(filterDTO.getCostumer()).flatMap(customerRepository::findByName);
+        if (book.isPresent() && customer.isPresent()) {
+            return byBookOrCustomer.apply(book.get(), customer.get());
+        }
+        return book.map(byBook).or(() -> customer.map(byCustomer)).orElseGet(none);
+    }
+
+    /**
+     * The requested sort in terms of the columns of the union, loanDate and
+     * id being the only properties it has; by loan date when unsorted, and
+     * always ending on the id so that pages do not overlap.
+     */
+    private Pageable unionPageable(Pageable pageable) {
+        Sort sort = Sort.unsorted();
+        for (Sort.Order order : pageable.getSort()) {
+            String column = UNION_SORT_COLUMNS.get(order.getProperty());
+            if (column == null) {
+                throw new BusinessException("Loans of a book or a costumer sort only by loanDate and id");
+            }
+            sort = sort.and(Sort.by(order.getDirection(), column));
+        }
+        if (sort.isUnsorted()) {
+            sort = Sort.by("loan_date");
+        }
+        if (sort.getOrderFor("id") == null) {
+            sort = sort.and(Sort.by("id"));
+        }
+        return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort);
+    }
+
+    private <T> Page<T> unionPage(Page<Long> ids, Pageable pageable, Function<Long, T> loanById) {
+        return new PageImpl<>(ids.getContent().stream().map(loanById).collect(Collectors.toList()),
+                pageable, ids.getTotalElements());
+    }
+
+    private <T> Function<Long, T> loansById(List<T> loans, Function<T, Long> id) {
+        Map<Long, T> byId = loans.stream().collect(Collectors.toMap(id, Function.identity()));
+        return byId::get;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public Page<Loan> getByBook(Book book, Pageable pageable) {
         return loanRepository.findByBook(book, pageable);
     }
 
+    @Override
+    public Page<LoanDTO> getDTOByBook(Book book, Pageable pageable) {
+        return singleFlight.execute(LOANS_BY_BOOK, List.of(book.getId(), pageable),
+                () -> loanRepository.findDTOByBook(book, pageable));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<Loan> getByBookAfter(Book book, LocalDate afterLoanDate, Long afterId, int size) {
+        return loanRepository.findNextPageByBook(book, afterLoanDate, afterId, PageRequest.of(0, size));
+    }
+
     @Override
     public List<Loan> getAllLateLoans() {
-        final Integer loanDays = 4;
-        LocalDate threeDaysAgo = LocalDate.now().minusDays(loanDays);
-        return loanRepository.findByLoanDateLessThanAndNotReturned(threeDaysAgo);
+        return loanRepository.findByDueDateLessThanEqualAndNotReturned(LocalDate.now());
+    }
+
+    @Override
+    public Optional<LocalDate> getNextDueDate(LocalDate after, LocalDate until) {
+        return Optional.ofNullable(loanRepository.findNextDueDate(after, until));
+    }
+
+    @Override
+    public List<Loan> getLoansDueOn(LocalDate dueDate, Long afterId, int size) {
+        return loanRepository.findNextPageDueOn(dueDate, afterId, PageRequest.of(0, size));
+    }
+
+    @Override
+    @Transactional
+    public int markLate(List<Loan> loans) {
+        if (loans.isEmpty()) {
+            return 0;
+        }
+        List<Loan> late = loanRepository.findOpenNotLateByIdIn(
+                loans.stream().map(Loan::getId).collect(Collectors.toList()));
+        late.forEach(loan -> loan.setLate(true));
+        countByCustomer(late).forEach(customerRepository::addLateLoans);
+        return late.size();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void export(Consumer<Loan> consumer) {
+        // the rows are loaded while scrolling, after the query hint no longer applies
+        entityManager.setProperty(AvailableSettings.JPA_SHARED_CACHE_STORE_MODE, CacheStoreMode.BYPASS);
+        try (Stream<Loan> loans = loanRepository.streamAll()) {
+            loans.forEach(loan -> {
+                consumer.accept(loan);
+                entityManager.detach(loan);
+                entityManager.detach(loan.getBook());
+                if (loan.getCustomer() != null) {
+                    entityManager.detach(loan.getCustomer());
+                }
+            });
+        }
     }
 }
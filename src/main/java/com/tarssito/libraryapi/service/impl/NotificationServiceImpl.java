@@ -0,0 +1,115 @@
+package com.tarssito.libraryapi.service.impl;
+
+import com.tarssito.libraryapi.model.entity.Loan;
+import com.tarssito.libraryapi.model.entity.NotificationOutbox;
+import com.tarssito.libraryapi.model.repository.NotificationOutboxRepository;
+import com.tarssito.libraryapi.service.NotificationService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.tarssito.libraryapi.model.entity.NotificationOutbox.Status.FAILED;
+import static com.tarssito.libraryapi.model.entity.NotificationOutbox.Status.PENDING;
+import static com.tarssito.libraryapi.model.entity.NotificationOutbox.Status.SENT;
+
+@Service
+@RequiredArgsConstructor
+public class NotificationServiceImpl implements NotificationService {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final NotificationOutboxRepository repository;
+
+    @Value("${application.mail.lateloans.message}")
+    private String lateLoanMessage;
+    @Value("${application.notification.lease-ms:300000}")
+    private long leaseMillis;
+    @Value("${application.notification.max-attempts:5}")
+    private int maxAttempts;
+    @Value("${application.notification.backoff-ms:60000}")
+    private long backoffMillis;
+
+    @Override
+    @Transactional
+    public int enqueueLateLoans(List<Loan> loans, LocalDate dueDate) {
+        List<Loan> notifiable = loans.stream()
+                .filter(loan -> loan.getCustomer() != null && loan.getCustomer().getEmail() != null)
+                .collect(Collectors.toList());
+        if (notifiable.isEmpty()) {
+            return 0;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Set<Long> notified = repository.findNotifiedLoanIds(NotificationOutbox.Type.LATE_LOAN, dueDate,
+                notifiable.stream().map(Loan::getId).collect(Collectors.toList()));
+        List<NotificationOutbox> notifications = notifiable.stream()
+                .filter(loan -> !notified.contains(loan.getId()))
+                .map(loan -> NotificationOutbox.builder()
+                        .loanId(loan.getId())
+                        .type(NotificationOutbox.Type.LATE_LOAN)
+                        .referenceDate(dueDate)
+                        .recipient(loan.getCustomer().getEmail())
+                        .message(lateLoanMessage)
+                        .status(PENDING)
+                        .availableAt(now)
+                        .createdAt(now)
+                        .build())
+                .collect(Collectors.toList());
+        repository.saveAll(notifications);
+        return notifications.size();
+    }
+
+    @Override
+    @Transactional
+    public List<NotificationOutbox> claim(int size) {
+        LocalDateTime now = LocalDateTime.now();
+        List<NotificationOutbox> notifications = repository.findClaimable(PENDING, now, PageRequest.of(0, size));
+        LocalDateTime leaseEnd = now.plus(Duration.ofMillis(leaseMillis));
+        notifications.forEach(notification -> {
+            notification.setAttempts(notification.getAttempts() + 1);
+            notification.setAvailableAt(leaseEnd);
+        });
+        return notifications;
+    }
+
+    @Override
+    @Transactional
+    public void markSent(Collection<NotificationOutbox> notifications) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+        repository.markSent(ids(notifications), PENDING, SENT, LocalDateTime.now());
+    }
+
+    @Override
+    @Transactional
+    public void markFailed(Collection<NotificationOutbox> notifications, String error) {
+        String lastError = error == null || error.length() <= MAX_ERROR_LENGTH
+                ? error : error.substring(0, MAX_ERROR_LENGTH);
+        LocalDateTime now = LocalDateTime.now();
+        Map<Integer, List<NotificationOutbox>> byAttempts = notifications.stream()
+                .collect(Collectors.groupingBy(NotificationOutbox::getAttempts));
+        byAttempts.forEach((attempts, failed) -> {
+            if (attempts >= maxAttempts) {
+                repository.reschedule(ids(failed), PENDING, FAILED, now, lastError);
+            } else {
+                long delay = backoffMillis << Math.min(attempts - 1, 20);
+                repository.reschedule(ids(failed), PENDING, PENDING, now.plus(Duration.ofMillis(delay)), lastError);
+            }
+        });
+    }
+
+    private List<Long> ids(Collection<NotificationOutbox> notifications) {
+        return notifications.stream().map(NotificationOutbox::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,47 @@
+-- schema as generated by hibernate before migrations were introduced
+
+create sequence book_seq start with 1 increment by 50;
+create sequence notification_outbox_seq start with 1 increment by 50;
+
+create table book (
+    id bigint not null,
+    author varchar(255),
+    isbn varchar(255),
+    title varchar(255),
+    version bigint,
+    constraint pk_book primary key (id),
+    constraint ux_book_isbn unique (isbn)
+);
+
+create table loan (
+    id bigint generated by default as identity,
+    costumer varchar(100),
+    costumer_email varchar(255),
+    loan_date date,
+    open_book_id bigint,
+    returned boolean,
+    version bigint,
+    id_book bigint,
+    constraint pk_loan primary key (id),
+    constraint ux_loan_open_book unique (open_book_id),
+    constraint fk_loan_book foreign key (id_book) references book (id)
+);
+
+create table notification_outbox (
+    id bigint not null,
+    attempts integer not null,
+    available_at timestamp not null,
+    created_at timestamp not null,
+    last_error varchar(500),
+    loan_id bigint not null,
+    message varchar(1000) not null,
+    recipient varchar(255) not null,
+    reference_date date not null,
+    sent_at timestamp,
+    status varchar(20) not null,
+    type varchar(20) not null,
+    constraint pk_notification_outbox primary key (id),
+    constraint ux_outbox_loan_type_date unique (loan_id, type, reference_date)
+);
+
+create index ix_outbox_status_available on notification_outbox (status, available_at);
@@ -0,0 +1,14 @@
+-- returned becomes a plain boolean so the loan queries can test "returned = false"
+-- instead of "returned is null or returned = false", which no index can serve
+update loan set returned = false where returned is null;
+alter table loan alter column returned set default false;
+alter table loan alter column returned set not null;
+
+-- loans of a book, open or not (existsByBookNotReturned, findByBook, loaned book index)
+create index ix_loan_book_returned on loan (id_book, returned);
+
+-- open loans by date (late loans job)
+create index ix_loan_returned_date on loan (returned, loan_date);
+
+-- loans by costumer (find by isbn or costumer)
+create index ix_loan_costumer on loan (costumer);
@@ -0,0 +1,8 @@
+-- open loan of each book, kept on the book row so availability needs no query on loan
+alter table book add column current_loan_id bigint;
+alter table book add column available boolean default true not null;
+
+update book set current_loan_id = (select loan.id from loan where loan.open_book_id = book.id);
+update book set available = false where current_loan_id is not null;
+
+create index ix_book_available on book (available, id);
@@ -0,0 +1,3 @@
+-- loan ids from a pooled sequence, like book ids: hibernate cannot batch inserts into an identity column
+create sequence loan_seq start with 1 increment by 50;
+alter sequence loan_seq restart with (select coalesce(max(id), 0) + 50 from loan);
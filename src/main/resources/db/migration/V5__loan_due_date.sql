@@ -0,0 +1,15 @@
+-- due date fixed at checkout; existing loans get the former hard-coded period of 4 days
+alter table loan add column due_date date;
+update loan set due_date = dateadd('DAY', 4, loan_date);
+
+-- open loans falling due on a given day, one index range per day (late loans job)
+create index ix_loan_due_date on loan (due_date, returned, id);
+drop index ix_loan_returned_date;
+
+-- how far each incremental job got, so a restart resumes where the last run stopped
+create table job_watermark (
+    name varchar(100) not null,
+    watermark date not null,
+    version bigint,
+    primary key (name)
+);
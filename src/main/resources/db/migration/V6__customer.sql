@@ -0,0 +1,38 @@
+-- loans flagged by the late loans job, so returning one knows whether it was counted as late
+alter table loan add column late boolean default false not null;
+update loan set late = true
+where returned = false and due_date <= (select watermark from job_watermark where name = 'late-loans');
+
+-- costumer name and email move to their own table, with counters kept up to date on every
+-- checkout, return and late loans run instead of aggregating the loans on each request
+create table customer (
+    id bigint not null,
+    name varchar(100) not null,
+    email varchar(255),
+    active_loans bigint default 0 not null,
+    late_loans bigint default 0 not null,
+    total_loans bigint default 0 not null,
+    constraint pk_customer primary key (id),
+    constraint ux_customer_name unique (name)
+);
+
+insert into customer (id, name, email, active_loans, late_loans, total_loans)
+select row_number() over (order by costumer), costumer, max(costumer_email),
+       sum(case when returned then 0 else 1 end), sum(case when late then 1 else 0 end), count(*)
+from loan
+where costumer is not null
+group by costumer;
+
+create sequence customer_seq start with 1 increment by 50;
+alter sequence customer_seq restart with (select coalesce(max(id), 0) + 50 from customer);
+
+alter table loan add column id_customer bigint;
+update loan set id_customer = (select customer.id from customer where customer.name = loan.costumer);
+alter table loan add constraint fk_loan_customer foreign key (id_customer) references customer (id);
+
+-- loans of a costumer in loan date order (find by costumer, keyset pages)
+create index ix_loan_customer on loan (id_customer, loan_date, id);
+drop index ix_loan_costumer;
+
+alter table loan drop column costumer;
+alter table loan drop column costumer_email;
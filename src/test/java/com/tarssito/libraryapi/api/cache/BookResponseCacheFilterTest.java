@@ -0,0 +1,70 @@
+package com.tarssito.libraryapi.api.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.autoconfigure.data.web.SpringDataWebProperties;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class BookResponseCacheFilterTest {
+
+    @MockBean
+    BookResponseCache cache;
+
+    BookResponseCacheFilter filter;
+
+    @BeforeEach
+    public void setUp() {
+        filter = new BookResponseCacheFilter(cache, new SpringDataWebProperties());
+    }
+
+    @Test
+    @DisplayName("Deve usar a mesma chave para consultas equivalentes")
+    public void equivalentQueriesKeyTest() {
+        String key = filter.key(request("/api/books", "title", "Aventuras", "author", "Fulano"));
+
+        assertThat(filter.key(request("/api/books", "author", "Fulano", "title", "Aventuras"))).isEqualTo(key);
+        assertThat(filter.key(request("/api/books", "page", "0", "size", "20", "author", "Fulano", "title", "Aventuras")))
+                .isEqualTo(key);
+    }
+
+    @Test
+    @DisplayName("Deve usar chaves diferentes para consultas com resultados diferentes")
+    public void distinctQueriesKeyTest() {
+        String key = filter.key(request("/api/books", "sort", "title", "sort", "author"));
+
+        assertThat(filter.key(request("/api/books", "sort", "author", "sort", "title"))).isNotEqualTo(key);
+        assertThat(filter.key(request("/api/books", "sort", "title,author"))).isNotEqualTo(key);
+        assertThat(filter.key(request("/api/books", "sort", "title", "sort", "author", "page", "1"))).isNotEqualTo(key);
+        assertThat(filter.key(request("/api/books/1"))).isNotEqualTo(filter.key(request("/api/books/12")));
+    }
+
+    @Test
+    @DisplayName("Deve atender apenas as consultas de livros")
+    public void filteredRequestsTest() {
+        assertThat(filter.shouldNotFilter(request("/api/books"))).isFalse();
+        assertThat(filter.shouldNotFilter(request("/api/books/1"))).isFalse();
+        assertThat(filter.shouldNotFilter(request("/api/books/1/loans"))).isTrue();
+        assertThat(filter.shouldNotFilter(request("/api/books/export"))).isTrue();
+
+        MockHttpServletRequest post = request("/api/books");
+        post.setMethod("POST");
+        assertThat(filter.shouldNotFilter(post)).isTrue();
+    }
+
+    private MockHttpServletRequest request(String uri, String... parameters) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        for (int i = 0; i < parameters.length; i += 2) {
+            request.addParameter(parameters[i], parameters[i + 1]);
+        }
+        return request;
+    }
+}
@@ -0,0 +1,82 @@
+package com.tarssito.libraryapi.api.cache;
+
+import com.tarssito.libraryapi.model.entity.Book;
+import com.tarssito.libraryapi.model.repository.BookRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class BookResponseCacheTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    @DisplayName("Deve servir páginas de livros do cache de respostas até que um empréstimo ou atualização as invalide")
+    public void bookResponseCacheTest() throws Exception {
+        mvc.perform(post("/api/books")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"Resposta\",\"author\":\"Autor-Resposta\",\"isbn\":\"response-cache\"}"))
+                .andExpect(status().isCreated());
+        Book book = bookRepository.findByIsbn("response-cache").get();
+        String page = "/api/books?author=Autor-Resposta";
+        double hits = responseCacheHits();
+
+        String etag = mvc.perform(get(page))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content[0].available").value(true))
+                .andReturn().getResponse().getHeader("ETag");
+        mvc.perform(get(page + "&size=20&page=0"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(jsonPath("content[0].isbn").value("response-cache"));
+        mvc.perform(get(page).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        assertThat(responseCacheHits()).isEqualTo(hits + 2);
+
+        mvc.perform(post("/api/loans")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"isbn\":\"response-cache\",\"costumer\":\"Fulano\"}"))
+                .andExpect(status().isCreated());
+        mvc.perform(get(page))
+                .andExpect(jsonPath("content[0].available").value(false));
+
+        mvc.perform(get("/api/books/" + book.getId()))
+                .andExpect(jsonPath("title").value("Resposta"));
+        mvc.perform(put("/api/books/" + book.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"Resposta nova\",\"author\":\"Autor-Resposta\",\"isbn\":\"response-cache\"}"))
+                .andExpect(status().isOk());
+        mvc.perform(get("/api/books/" + book.getId()))
+                .andExpect(jsonPath("title").value("Resposta nova"));
+    }
+
+    private double responseCacheHits() {
+        return meterRegistry.get("cache.gets")
+                .tags("cache", "bookResponses", "result", "hit")
+                .functionCounter().count();
+    }
+}
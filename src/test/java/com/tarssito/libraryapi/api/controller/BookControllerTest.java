@@ -2,6 +2,7 @@ package com.tarssito.libraryapi.api.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tarssito.libraryapi.api.dto.BookDTO;
+import com.tarssito.libraryapi.api.pagination.KeysetCursor;
 import com.tarssito.libraryapi.exception.BusinessException;
 import com.tarssito.libraryapi.model.entity.Book;
 import com.tarssito.libraryapi.service.BookService;
@@ -18,18 +19,28 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(SpringExtension.class)
@@ -144,6 +155,77 @@ public class BookControllerTest {
                 .andExpect(jsonPath("isbn").value(createNewBook().getIsbn()));
     }
 
+    @Test
+    @DisplayName("Deve obter informações de um livro no pool assíncrono quando solicitado.")
+    public void getBookDetailsAsyncTest() throws Exception {
+        Book book = Book.builder().id(1L).title("As aventuras").author("Artur").isbn("001").build();
+        BDDMockito.given(bookService.getByID(1L)).willReturn(Optional.of(book));
+
+        MvcResult result = mockMvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1"))
+                        .header("Prefer", "respond-async")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc
+                .perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("id").value(1L))
+                .andExpect(jsonPath("title").value("As aventuras"));
+    }
+
+    @Test
+    @DisplayName("Deve usar o pool assíncrono quando respond-async vier entre outras preferências.")
+    public void getBookDetailsAsyncWithOtherPreferencesTest() throws Exception {
+        Book book = Book.builder().id(1L).title("As aventuras").author("Artur").isbn("001").build();
+        BDDMockito.given(bookService.getByID(1L)).willReturn(Optional.of(book));
+
+        MvcResult result = mockMvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1"))
+                        .header("Prefer", "return=minimal", "respond-async, wait=10")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc
+                .perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("id").value(1L));
+    }
+
+    @Test
+    @DisplayName("Deve responder de forma síncrona quando a preferência respond-async não for pedida.")
+    public void getBookDetailsWithoutAsyncPreferenceTest() throws Exception {
+        Book book = Book.builder().id(1L).title("As aventuras").author("Artur").isbn("001").build();
+        BDDMockito.given(bookService.getByID(1L)).willReturn(Optional.of(book));
+
+        mockMvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1"))
+                        .header("Prefer", "return=minimal, wait=10")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("id").value(1L));
+    }
+
+    @Test
+    @DisplayName("Deve retornar resource not found no pool assíncrono quando o livro não existir.")
+    public void bookNotFoundAsyncTest() throws Exception {
+        BDDMockito.given(bookService.getByID(Mockito.anyLong())).willReturn(Optional.empty());
+
+        MvcResult result = mockMvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1"))
+                        .header("Prefer", "respond-async")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc
+                .perform(asyncDispatch(result))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     @DisplayName("Deve retornar resource not found quando o livro procurado não existir.")
     public void bookNotFoundTest() throws Exception {
@@ -227,6 +309,69 @@ public class BookControllerTest {
         ;
     }
 
+    @Test
+    @DisplayName("Deve retornar 304 quando o livro não mudou desde o ETag informado.")
+    public void getBookNotModifiedTest() throws Exception {
+        Book book = Book.builder().id(1L).title("As aventuras").author("Artur").isbn("001").version(4L).build();
+        BDDMockito.given(bookService.getByID(1L)).willReturn(Optional.of(book));
+
+        mockMvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1")).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""));
+
+        mockMvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1"))
+                        .header("If-None-Match", "\"4\"")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    @DisplayName("Deve retornar 412 ao atualizar um livro com If-Match de uma versão antiga.")
+    public void updateBookPreconditionFailedTest() throws Exception {
+        String json = new ObjectMapper().writeValueAsString(createNewBook());
+        BDDMockito.given(bookService.getByID(1L))
+                .willReturn(Optional.of(Book.builder().id(1L).isbn("321").version(5L).build()));
+
+        mockMvc
+                .perform(MockMvcRequestBuilders.put(BOOK_API.concat("/1"))
+                        .header("If-Match", "\"4\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .content(json))
+                .andExpect(status().isPreconditionFailed());
+
+        Mockito.verify(bookService, Mockito.never()).update(Mockito.any(Book.class));
+    }
+
+    @Test
+    @DisplayName("Deve retornar 304 quando a página de livros não mudou desde o ETag informado.")
+    public void findBookNotModifiedTest() throws Exception {
+        Book book = Book.builder().id(1L).title("As aventuras").author("Artur").isbn("001").version(1L).build();
+        BDDMockito.given(bookService.find(Mockito.any(Book.class), Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<Book>(Arrays.asList(book), PageRequest.of(0, 100), 1));
+
+        String etag = mockMvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("?page=0&size=100")).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("?page=0&size=100"))
+                        .header("If-None-Match", etag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified());
+
+        book.setVersion(2L);
+        mockMvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("?page=0&size=100"))
+                        .header("If-None-Match", etag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+    }
+
     @Test
     @DisplayName("Deve retornar resource not found quando não encontrar o livro para atualizar.")
     public void updateNotFoundBookTest() throws Exception {
@@ -281,6 +426,191 @@ public class BookControllerTest {
 
     }
 
+    @Test
+    @DisplayName("Deve filtrar livros por cursor, sem contagem total")
+    public void findBookByCursorTest() throws Exception {
+        Book book = Book.builder()
+                .id(7L)
+                .title(createNewBook().getTitle())
+                .author(createNewBook().getAuthor())
+                .isbn(createNewBook().getIsbn())
+                .build();
+
+        BDDMockito.given(bookService.findAfter(Mockito.any(Book.class), Mockito.eq(5L), Mockito.eq(1)))
+                .willReturn(new SliceImpl<Book>(Arrays.asList(book), PageRequest.of(0, 1), true));
+
+        String queryString = String.format("?title=%s&cursor=%s&size=1",
+                book.getTitle(), KeysetCursor.encode(5L));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat(queryString))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mockMvc
+                .perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(1)))
+                .andExpect(jsonPath("size").value(1))
+                .andExpect(jsonPath("last").value(false))
+                .andExpect(jsonPath("nextCursor").value(KeysetCursor.encode(7L)))
+                .andExpect(jsonPath("totalElements").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("Deve retornar bad request para um cursor inválido")
+    public void findBookByInvalidCursorTest() throws Exception {
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("?cursor=@@@"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mockMvc
+                .perform(request)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("errors[0]").value("Invalid cursor"));
+    }
+
+    @Test
+    @DisplayName("Deve exportar o catálogo como JSON delimitado por linhas")
+    public void exportBooksTest() throws Exception {
+        BDDMockito.willAnswer(invocation -> {
+            Consumer<Book> consumer = invocation.getArgument(0);
+            consumer.accept(Book.builder().id(1L).title("A").author("B").isbn("1").build());
+            consumer.accept(Book.builder().id(2L).title("C").author("D").isbn("2").build());
+            return null;
+        }).given(bookService).export(Mockito.any());
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("/export"));
+
+        mockMvc
+                .perform(request)
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string(
+                        "{\"id\":1,\"title\":\"A\",\"author\":\"B\",\"isbn\":\"1\"}\n" +
+                        "{\"id\":2,\"title\":\"C\",\"author\":\"D\",\"isbn\":\"2\"}\n"));
+    }
+
+    @Test
+    @DisplayName("Deve importar livros de um array JSON, reportando as linhas rejeitadas")
+    public void importBooksFromJsonTest() throws Exception {
+        BDDMockito.given(bookService.saveAll(Mockito.anyList())).willAnswer(invocation -> {
+            List<Book> books = invocation.getArgument(0);
+            books.get(0).setId(1L);
+            return books.subList(0, 1);
+        });
+
+        String json = "[" +
+                "{\"title\":\"A\",\"author\":\"B\",\"isbn\":\"1\"}," +
+                "{\"title\":\"C\",\"author\":\"D\"}," +
+                "{\"title\":\"E\",\"author\":\"F\",\"isbn\":\"1\"}" +
+                "]";
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("/import"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(json);
+
+        mockMvc
+                .perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("imported").value(1))
+                .andExpect(jsonPath("rejected").value(2))
+                .andExpect(jsonPath("errors[0].row").value(2))
+                .andExpect(jsonPath("errors[0].errors", hasSize(1)))
+                .andExpect(jsonPath("errors[1].row").value(3))
+                .andExpect(jsonPath("errors[1].errors[0]").value("Isbn já cadastrado."));
+    }
+
+    @Test
+    @DisplayName("Deve devolver o resultado parcial da importação quando o JSON se torna inválido no meio do array")
+    public void importBooksWithInvalidJsonMidStreamTest() throws Exception {
+        BDDMockito.given(bookService.saveAll(Mockito.anyList())).willAnswer(invocation -> {
+            List<Book> books = invocation.getArgument(0);
+            books.forEach(book -> book.setId(1L));
+            return books;
+        });
+
+        String json = "[" +
+                "{\"title\":\"A\",\"author\":\"B\",\"isbn\":\"1\"}," +
+                "{\"title\":\"C\",\"author\":\"D\",\"isbn\":\"2\"}," +
+                "42," +
+                "{\"title\":\"E\",\"author\":\"F\",\"isbn\":\"3\"}" +
+                "]";
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("/import"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(json);
+
+        mockMvc
+                .perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("imported").value(2))
+                .andExpect(jsonPath("rejected").value(1))
+                .andExpect(jsonPath("errors[0].row").value(3))
+                .andExpect(jsonPath("errors[0].errors[0]").value("Expected a JSON object for each book"));
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar conteúdo após o array JSON da importação")
+    public void importBooksWithTrailingContentTest() throws Exception {
+        BDDMockito.given(bookService.saveAll(Mockito.anyList())).willAnswer(invocation -> {
+            List<Book> books = invocation.getArgument(0);
+            books.forEach(book -> book.setId(1L));
+            return books;
+        });
+
+        String json = "[{\"title\":\"A\",\"author\":\"B\",\"isbn\":\"1\"}] {\"title\":\"C\"}";
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("/import"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(json);
+
+        mockMvc
+                .perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("imported").value(1))
+                .andExpect(jsonPath("rejected").value(1))
+                .andExpect(jsonPath("errors[0].row").value(2))
+                .andExpect(jsonPath("errors[0].errors[0]").value("Unexpected content after the JSON array of books"));
+    }
+
+    @Test
+    @DisplayName("Deve importar livros de um arquivo CSV")
+    public void importBooksFromCsvTest() throws Exception {
+        List<Book> imported = new ArrayList<>();
+        BDDMockito.given(bookService.saveAll(Mockito.anyList())).willAnswer(invocation -> {
+            List<Book> books = invocation.getArgument(0);
+            books.forEach(book -> book.setId(1L));
+            imported.addAll(books);
+            return books;
+        });
+
+        String csv = "isbn,title,author\n" +
+                "1,\"Meu Livro, volume 1\",Autor\n" +
+                "2,Outro Livro,\"Autor \"\"B\"\"\"\n";
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("/import"))
+                .contentType("text/csv")
+                .accept(MediaType.APPLICATION_JSON)
+                .content(csv);
+
+        mockMvc
+                .perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("imported").value(2))
+                .andExpect(jsonPath("rejected").value(0));
+
+        assertThat(imported.get(0).getTitle()).isEqualTo("Meu Livro, volume 1");
+        assertThat(imported.get(1).getAuthor()).isEqualTo("Autor \"B\"");
+    }
+
     private BookDTO createNewBook() {
         return  BookDTO.builder()
                 .title("Meu Livro")
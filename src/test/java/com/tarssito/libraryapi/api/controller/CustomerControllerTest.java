@@ -0,0 +1,72 @@
+package com.tarssito.libraryapi.api.controller;
+
+import com.tarssito.libraryapi.model.entity.Customer;
+import com.tarssito.libraryapi.service.CustomerService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.util.Optional;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@WebMvcTest(controllers = CustomerController.class)
+@AutoConfigureMockMvc
+public class CustomerControllerTest {
+
+    static final String CUSTOMER_API = "/api/customers";
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @MockBean
+    CustomerService customerService;
+
+    @Test
+    @DisplayName("Deve obter o resumo de empréstimos de um costumer a partir dos contadores")
+    public void customerSummaryTest() throws Exception {
+        Customer customer = Customer.builder()
+                .id(1L)
+                .name("Fulano")
+                .email("fulano@email.com")
+                .activeLoans(2L)
+                .lateLoans(1L)
+                .totalLoans(5L)
+                .build();
+        BDDMockito.given(customerService.getById(1L)).willReturn(Optional.of(customer));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(CUSTOMER_API.concat("/1/summary"))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("id").value(1))
+                .andExpect(jsonPath("name").value("Fulano"))
+                .andExpect(jsonPath("email").value("fulano@email.com"))
+                .andExpect(jsonPath("activeLoans").value(2))
+                .andExpect(jsonPath("lateLoans").value(1))
+                .andExpect(jsonPath("totalLoans").value(5));
+    }
+
+    @Test
+    @DisplayName("Deve retornar resource not found quando o costumer não existir")
+    public void customerNotFoundTest() throws Exception {
+        BDDMockito.given(customerService.getById(Mockito.anyLong())).willReturn(Optional.empty());
+
+        mockMvc.perform(MockMvcRequestBuilders.get(CUSTOMER_API.concat("/1/summary"))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+    }
+}
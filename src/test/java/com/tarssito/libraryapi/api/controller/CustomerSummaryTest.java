@@ -0,0 +1,89 @@
+package com.tarssito.libraryapi.api.controller;
+
+import com.tarssito.libraryapi.model.entity.Book;
+import com.tarssito.libraryapi.model.entity.Customer;
+import com.tarssito.libraryapi.model.repository.BookRepository;
+import com.tarssito.libraryapi.model.repository.CustomerRepository;
+import com.tarssito.libraryapi.service.LoanService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class CustomerSummaryTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    LoanService loanService;
+
+    @Test
+    @DisplayName("Deve manter o resumo do costumer atualizado nos empréstimos, atrasos e devoluções")
+    public void customerSummaryTest() throws Exception {
+        bookRepository.save(Book.builder().title("Resumo 1").author("Autor").isbn("summary-1").build());
+        bookRepository.save(Book.builder().title("Resumo 2").author("Autor").isbn("summary-2").build());
+        String checkout = "[{\"isbn\":\"summary-1\",\"costumer\":\"Resumo\",\"email\":\"resumo@email.com\"}," +
+                "{\"isbn\":\"summary-2\",\"costumer\":\"Resumo\",\"email\":\"resumo@email.com\"}]";
+        mvc.perform(post("/api/loans/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(checkout))
+                .andExpect(status().isOk());
+        Customer customer = customerRepository.findByName("Resumo").get();
+        Long firstLoanId = bookRepository.findByIsbn("summary-1").get().getCurrentLoanId();
+        Long secondLoanId = bookRepository.findByIsbn("summary-2").get().getCurrentLoanId();
+
+        loanService.markLate(loanService.getAllById(List.of(secondLoanId)));
+        mvc.perform(patch("/api/loans/" + firstLoanId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"returned\":true}"))
+                .andExpect(status().isOk());
+        mvc.perform(get("/api/customers/" + customer.getId() + "/summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("name").value("Resumo"))
+                .andExpect(jsonPath("email").value("resumo@email.com"))
+                .andExpect(jsonPath("activeLoans").value(1))
+                .andExpect(jsonPath("lateLoans").value(1))
+                .andExpect(jsonPath("totalLoans").value(2));
+
+        mvc.perform(patch("/api/loans/" + secondLoanId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"returned\":true}"))
+                .andExpect(status().isOk());
+        mvc.perform(get("/api/customers/" + customer.getId() + "/summary"))
+                .andExpect(jsonPath("activeLoans").value(0))
+                .andExpect(jsonPath("lateLoans").value(0))
+                .andExpect(jsonPath("totalLoans").value(2));
+        mvc.perform(get("/api/loans?costumer=Resumo&isbn=summary-1&page=0&size=10"))
+                .andExpect(jsonPath("totalElements").value(2))
+                .andExpect(jsonPath("content[0].costumer").value("Resumo"));
+    }
+
+    @Test
+    @DisplayName("Deve retornar resource not found para o resumo de um costumer inexistente")
+    public void customerSummaryNotFoundTest() throws Exception {
+        mvc.perform(get("/api/customers/-1/summary"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,75 @@
+package com.tarssito.libraryapi.api.controller;
+
+import com.tarssito.libraryapi.model.entity.Book;
+import com.tarssito.libraryapi.model.repository.BookRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class LoanBatchTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Test
+    @DisplayName("Deve emprestar e devolver livros em lote, reportando as linhas rejeitadas")
+    public void batchLoanTest() throws Exception {
+        int size = 20;
+        StringBuilder checkout = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            bookRepository.save(Book.builder().title("Lote " + i).author("Autor").isbn("batch-" + i).build());
+            checkout.append("{\"isbn\":\"batch-").append(i).append("\",\"costumer\":\"Quiosque\"},");
+        }
+        checkout.append("{\"isbn\":\"batch-unknown\",\"costumer\":\"Quiosque\"},");
+        checkout.append("{\"isbn\":\"batch-0\",\"costumer\":\"Quiosque\"}]");
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        long statements = statistics.getPrepareStatementCount();
+        mvc.perform(post("/api/loans/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(checkout.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("loans.length()").value(size))
+                .andExpect(jsonPath("errors[0].row").value(size + 1))
+                .andExpect(jsonPath("errors[0].errors[0]").value("Book not found for passed isbn"))
+                .andExpect(jsonPath("errors[1].row").value(size + 2))
+                .andExpect(jsonPath("errors[1].errors[0]").value("Book already loaned"));
+        assertThat(statistics.getPrepareStatementCount() - statements).isLessThan(size);
+
+        Book loaned = bookRepository.findByIsbn("batch-3").get();
+        assertThat(loaned.getAvailable()).isFalse();
+
+        mvc.perform(patch("/api/loans/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"id\":" + loaned.getCurrentLoanId() + ",\"returned\":true},{\"id\":-1,\"returned\":true}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("loans[0].id").value(loaned.getCurrentLoanId()))
+                .andExpect(jsonPath("errors[0].row").value(2))
+                .andExpect(jsonPath("errors[0].errors[0]").value("Loan not found"));
+        assertThat(bookRepository.findByIsbn("batch-3").get().getAvailable()).isTrue();
+    }
+}
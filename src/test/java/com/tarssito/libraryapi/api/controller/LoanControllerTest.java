@@ -1,18 +1,23 @@
 package com.tarssito.libraryapi.api.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tarssito.libraryapi.api.dto.LoanBatchResultDTO;
 import com.tarssito.libraryapi.api.dto.LoanDTO;
 import com.tarssito.libraryapi.api.dto.LoanFilterDTO;
 import com.tarssito.libraryapi.api.dto.ReturnedLoanDTO;
+import com.tarssito.libraryapi.api.pagination.KeysetCursor;
 import com.tarssito.libraryapi.model.entity.Book;
+import com.tarssito.libraryapi.model.entity.Customer;
 import com.tarssito.libraryapi.model.entity.Loan;
 import com.tarssito.libraryapi.service.BookService;
 import com.tarssito.libraryapi.service.LoanService;
 import com.tarssito.libraryapi.service.LoanServiceTest;
+import org.assertj.core.api.Assertions;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.BDDMockito;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,18 +27,22 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.time.LocalDate;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -62,14 +71,13 @@ public class LoanControllerTest {
 
         Loan loan = Loan.builder()
                 .id(1L)
-                .costumer("Fulano")
-                .costumerEmail("costumer@teste.com")
+                .customer(Customer.builder().name("Fulano").email("costumer@teste.com").build())
                 .book(book)
                 .loanDate(LocalDate.now())
                 .build();
         BDDMockito.given(loanService.save(Mockito.any(Loan.class))).willReturn(loan);
 
-        LoanDTO dto = LoanDTO.builder().isbn("123").costumer("Fulano").build();
+        LoanDTO dto = LoanDTO.builder().isbn("123").costumer("Fulano").email("costumer@teste.com").build();
         String json = new ObjectMapper().writeValueAsString(dto);
 
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders
@@ -82,6 +90,11 @@ public class LoanControllerTest {
                 .perform(request)
                 .andExpect(status().isCreated())
                 .andExpect(content().string("1"));
+
+        ArgumentCaptor<Loan> saved = ArgumentCaptor.forClass(Loan.class);
+        Mockito.verify(loanService).save(saved.capture());
+        Assertions.assertThat(saved.getValue().getCustomer().getName()).isEqualTo("Fulano");
+        Assertions.assertThat(saved.getValue().getCustomer().getEmail()).isEqualTo("costumer@teste.com");
     }
 
     @Test
@@ -113,6 +126,7 @@ public class LoanControllerTest {
 
         BDDMockito.given(loanService.getById(Mockito.anyLong()))
                 .willReturn(Optional.of(loan));
+        BDDMockito.given(loanService.update(loan)).willReturn(loan);
 
         String json = new ObjectMapper().writeValueAsString(dto);
 
@@ -126,6 +140,97 @@ public class LoanControllerTest {
         Mockito.verify(loanService, Mockito.times(1)).update(loan);
     }
 
+    @Test
+    @DisplayName("Deve retornar erro de validação ao devolver um livro sem informar o status")
+    public void returnBookWithoutStatusTest() throws Exception {
+        for (String json : new String[]{"{}", "{\"returned\": null}"}) {
+            mockMvc.perform(
+                    patch(LOAN_API.concat("/1"))
+                            .accept(MediaType.APPLICATION_JSON)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(json)
+            ).andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("errors", hasSize(1)))
+                    .andExpect(jsonPath("errors[0]").value("Returned status is required"));
+        }
+
+        Mockito.verify(loanService, Mockito.never()).update(Mockito.any(Loan.class));
+    }
+
+    @Test
+    @DisplayName("Deve retornar um livro no pool assíncrono quando solicitado")
+    public void returnBookAsyncTest() throws Exception {
+        ReturnedLoanDTO dto = ReturnedLoanDTO.builder().returned(true).build();
+        Loan loan = Loan.builder().id(1L).build();
+        BDDMockito.given(loanService.getById(1L)).willReturn(Optional.of(loan));
+        BDDMockito.given(loanService.update(loan)).willReturn(loan);
+
+        MvcResult result = mockMvc.perform(
+                patch(LOAN_API.concat("/1"))
+                        .header("Prefer", "respond-async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(dto))
+        ).andExpect(request().asyncStarted()).andReturn();
+
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+
+        Mockito.verify(loanService, Mockito.times(1)).update(loan);
+    }
+
+    @Test
+    @DisplayName("Deve devolver um livro quando o If-Match corresponder à versão atual do empréstimo")
+    public void returnBookIfMatchTest() throws Exception {
+        ReturnedLoanDTO dto = ReturnedLoanDTO.builder().returned(true).build();
+        Loan loan = Loan.builder().id(1L).version(2L).build();
+        Loan returned = Loan.builder().id(1L).returned(true).version(3L).build();
+        BDDMockito.given(loanService.getById(1L)).willReturn(Optional.of(loan));
+        BDDMockito.given(loanService.update(loan)).willReturn(returned);
+
+        mockMvc.perform(
+                patch(LOAN_API.concat("/1"))
+                        .header("If-Match", "\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(dto))
+        ).andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""));
+    }
+
+    @Test
+    @DisplayName("Deve retornar 412 quando o If-Match não corresponder à versão atual do empréstimo")
+    public void returnBookPreconditionFailedTest() throws Exception {
+        ReturnedLoanDTO dto = ReturnedLoanDTO.builder().returned(true).build();
+        BDDMockito.given(loanService.getById(1L))
+                .willReturn(Optional.of(Loan.builder().id(1L).version(3L).build()));
+
+        mockMvc.perform(
+                patch(LOAN_API.concat("/1"))
+                        .header("If-Match", "\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(dto))
+        ).andExpect(status().isPreconditionFailed());
+
+        Mockito.verify(loanService, Mockito.never()).update(Mockito.any(Loan.class));
+    }
+
+    @Test
+    @DisplayName("Deve obter um empréstimo com ETag e retornar 304 quando ele não mudou")
+    public void getLoanNotModifiedTest() throws Exception {
+        Book book = Book.builder().id(1L).isbn("123").build();
+        Loan loan = Loan.builder().id(1L).book(book).customer(Customer.builder().name("Fulano").build()).version(2L).build();
+        BDDMockito.given(loanService.getById(1L)).willReturn(Optional.of(loan));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat("/1")).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"2\""))
+                .andExpect(jsonPath("costumer").value("Fulano"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat("/1"))
+                .header("If-None-Match", "\"2\"")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
     @Test
     @DisplayName("Deve retornar 404 quando tentar devolver um livro inexistente")
     public void returnInexistentBookTest() throws Exception {
@@ -149,15 +254,15 @@ public class LoanControllerTest {
     public void findLoansTest() throws Exception {
         Long id = 1L;
         Loan loan = LoanServiceTest.createLoanTest();
-        loan.setId(id);
         Book book = Book.builder().id(1L).isbn("321").build();
-        loan.setBook(book);
+        LoanDTO loanDTO = new LoanDTO(id, loan.getCustomer().getName(), loan.getCustomer().getEmail(),
+                book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn(), true);
 
-        BDDMockito.given(loanService.find(Mockito.any(LoanFilterDTO.class), Mockito.any(Pageable.class)))
-                .willReturn( new PageImpl<Loan>(Collections.singletonList(loan), PageRequest.of(0, 10), 1));
+        BDDMockito.given(loanService.findDTO(Mockito.any(LoanFilterDTO.class), Mockito.any(Pageable.class)))
+                .willReturn( new PageImpl<LoanDTO>(Collections.singletonList(loanDTO), PageRequest.of(0, 10), 1));
 
         String queryString = String.format("?isbn=%s&costumer=%s&page=0&size=10",
-                book.getIsbn(), loan.getCostumer());
+                book.getIsbn(), loan.getCustomer().getName());
 
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders
                 .get(LOAN_API.concat(queryString))
@@ -167,8 +272,115 @@ public class LoanControllerTest {
                 .perform(request)
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("content", hasSize(1)))
+                .andExpect(jsonPath("content[0].book.isbn").value("321"))
+                .andExpect(jsonPath("content[0].book.available").value(true))
                 .andExpect(jsonPath("totalElements").value(1))
                 .andExpect(jsonPath("pageable.pageSize").value(10))
                 .andExpect(jsonPath("pageable.pageNumber").value(0));
     }
+
+    @Test
+    @DisplayName("Deve filtrar empréstimos por cursor a partir do início")
+    public void findLoansByCursorTest() throws Exception {
+        Loan loan = LoanServiceTest.createLoanTest();
+        loan.setId(3L);
+        loan.getBook().setIsbn("321");
+
+        BDDMockito.given(loanService.findAfter(Mockito.any(LoanFilterDTO.class),
+                Mockito.eq(KeysetCursor.START_DATE), Mockito.eq(KeysetCursor.START_ID), Mockito.eq(20)))
+                .willReturn(new SliceImpl<Loan>(Collections.singletonList(loan), PageRequest.of(0, 20), false));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(LOAN_API.concat("?isbn=321&cursor="))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mockMvc
+                .perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(1)))
+                .andExpect(jsonPath("content[0].book.isbn").value("321"))
+                .andExpect(jsonPath("last").value(true))
+                .andExpect(jsonPath("nextCursor").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Deve realizar empréstimos em lote, informando por linha os itens rejeitados")
+    public void createBatchLoanTest() throws Exception {
+        Book available = Book.builder().id(1L).isbn("123").available(true).build();
+        Book loaned = Book.builder().id(2L).isbn("456").available(false).build();
+        BDDMockito.given(bookService.getBooksByIsbn(Mockito.anyCollection())).willReturn(List.of(available, loaned));
+        BDDMockito.given(loanService.saveAll(Mockito.anyList()))
+                .willReturn(List.of(Loan.builder().id(10L).book(available).build()));
+
+        List<LoanDTO> dtos = List.of(
+                LoanDTO.builder().isbn("123").costumer("Fulano").build(),
+                LoanDTO.builder().isbn("456").costumer("Fulano").build(),
+                LoanDTO.builder().isbn("789").costumer("Fulano").build(),
+                LoanDTO.builder().isbn("123").costumer("Fulano").build());
+        String json = new ObjectMapper().writeValueAsString(dtos);
+
+        mockMvc.perform(MockMvcRequestBuilders.post(LOAN_API.concat("/batch"))
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("loans", hasSize(1)))
+                .andExpect(jsonPath("loans[0].row").value(1))
+                .andExpect(jsonPath("loans[0].id").value(10))
+                .andExpect(jsonPath("errors", hasSize(3)))
+                .andExpect(jsonPath("errors[0].row").value(2))
+                .andExpect(jsonPath("errors[0].errors[0]").value("Book already loaned"))
+                .andExpect(jsonPath("errors[1].row").value(3))
+                .andExpect(jsonPath("errors[1].errors[0]").value("Book not found for passed isbn"))
+                .andExpect(jsonPath("errors[2].row").value(4))
+                .andExpect(jsonPath("errors[2].errors[0]").value("Book already loaned"));
+
+        Mockito.verify(bookService, Mockito.times(1)).getBooksByIsbn(Mockito.anyCollection());
+        Mockito.verify(loanService, Mockito.times(1)).saveAll(Mockito.argThat(loans -> loans.size() == 1));
+    }
+
+    @Test
+    @DisplayName("Deve devolver empréstimos em lote, informando por linha os itens rejeitados")
+    public void returnBatchLoanTest() throws Exception {
+        Loan loan = Loan.builder().id(1L).book(Book.builder().id(1L).build()).returned(false).build();
+        BDDMockito.given(loanService.getAllById(Mockito.anyCollection())).willReturn(List.of(loan));
+        BDDMockito.given(loanService.updateAll(Mockito.anyList())).willReturn(List.of(loan));
+
+        List<ReturnedLoanDTO> dtos = List.of(
+                ReturnedLoanDTO.builder().id(1L).returned(true).build(),
+                ReturnedLoanDTO.builder().id(2L).returned(true).build(),
+                ReturnedLoanDTO.builder().id(1L).returned(true).build());
+        String json = new ObjectMapper().writeValueAsString(dtos);
+
+        mockMvc.perform(patch(LOAN_API.concat("/batch"))
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("loans", hasSize(1)))
+                .andExpect(jsonPath("loans[0].id").value(1))
+                .andExpect(jsonPath("errors", hasSize(2)))
+                .andExpect(jsonPath("errors[0].row").value(2))
+                .andExpect(jsonPath("errors[0].errors[0]").value("Loan not found"))
+                .andExpect(jsonPath("errors[1].row").value(3))
+                .andExpect(jsonPath("errors[1].errors[0]").value("Loan repeated in batch"));
+
+        Assertions.assertThat(loan.getReturned()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Deve retornar erro ao enviar um lote acima do limite")
+    public void oversizedBatchLoanTest() throws Exception {
+        List<LoanDTO> dtos = Collections.nCopies(LoanBatchResultDTO.MAX_BATCH_SIZE + 1,
+                LoanDTO.builder().isbn("123").costumer("Fulano").build());
+        String json = new ObjectMapper().writeValueAsString(dtos);
+
+        mockMvc.perform(MockMvcRequestBuilders.post(LOAN_API.concat("/batch"))
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json))
+                .andExpect(status().isBadRequest());
+
+        Mockito.verify(loanService, Mockito.never()).saveAll(Mockito.anyList());
+    }
 }
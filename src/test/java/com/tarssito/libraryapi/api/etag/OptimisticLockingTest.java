@@ -0,0 +1,54 @@
+package com.tarssito.libraryapi.api.etag;
+
+import com.tarssito.libraryapi.model.entity.Book;
+import com.tarssito.libraryapi.model.repository.BookRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class OptimisticLockingTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Test
+    @DisplayName("Deve rejeitar a atualização de um livro com versão desatualizada")
+    public void optimisticLockingTest() throws Exception {
+        Book book = bookRepository.save(Book.builder().title("Versionado").author("Autor").isbn("etag-lock").build());
+        String json = "{\"title\":\"Novo titulo\",\"author\":\"Autor\",\"isbn\":\"etag-lock\"}";
+
+        mvc.perform(put("/api/books/" + book.getId())
+                .header("If-Match", "\"0\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""));
+        mvc.perform(put("/api/books/" + book.getId())
+                .header("If-Match", "\"0\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json))
+                .andExpect(status().isPreconditionFailed());
+
+        book.setTitle("Escrita concorrente");
+        assertThatThrownBy(() -> bookRepository.save(book))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        bookRepository.deleteById(book.getId());
+    }
+}
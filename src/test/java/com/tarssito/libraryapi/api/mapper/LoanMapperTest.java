@@ -0,0 +1,52 @@
+package com.tarssito.libraryapi.api.mapper;
+
+import com.tarssito.libraryapi.api.dto.BookDTO;
+import com.tarssito.libraryapi.api.dto.LoanDTO;
+import com.tarssito.libraryapi.model.entity.Book;
+import com.tarssito.libraryapi.model.entity.Customer;
+import com.tarssito.libraryapi.model.entity.Loan;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LoanMapperTest {
+
+    BookMapper bookMapper = new BookMapper();
+    LoanMapper loanMapper = new LoanMapper(bookMapper);
+
+    @Test
+    @DisplayName("Deve converter um empréstimo em DTO junto com o livro")
+    public void loanToDTOTest() {
+        Book book = Book.builder().id(1L).title("As aventuras").author("Fulano").isbn("123").build();
+        Loan loan = Loan.builder()
+                .id(10L)
+                .customer(Customer.builder().name("Ciclano").email("ciclano@email.com").build())
+                .book(book)
+                .loanDate(LocalDate.now())
+                .build();
+
+        LoanDTO dto = loanMapper.toDTO(loan);
+
+        assertThat(dto.getId()).isEqualTo(10L);
+        assertThat(dto.getCostumer()).isEqualTo("Ciclano");
+        assertThat(dto.getEmail()).isEqualTo("ciclano@email.com");
+        assertThat(dto.getIsbn()).isEqualTo("123");
+        assertThat(dto.getBook()).isEqualTo(new BookDTO(1L, "As aventuras", "Fulano", "123"));
+    }
+
+    @Test
+    @DisplayName("Deve converter um DTO de livro em entidade")
+    public void bookToEntityTest() {
+        BookDTO dto = BookDTO.builder().title("As aventuras").author("Fulano").isbn("123").build();
+
+        Book book = bookMapper.toEntity(dto);
+
+        assertThat(book.getId()).isNull();
+        assertThat(book.getTitle()).isEqualTo("As aventuras");
+        assertThat(book.getAuthor()).isEqualTo("Fulano");
+        assertThat(book.getIsbn()).isEqualTo("123");
+    }
+}
@@ -0,0 +1,80 @@
+package com.tarssito.libraryapi.config;
+
+import com.tarssito.libraryapi.api.mapper.BookMapper;
+import com.tarssito.libraryapi.exception.BusinessException;
+import com.tarssito.libraryapi.model.entity.Book;
+import com.tarssito.libraryapi.service.BookService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class MetricsAspectTest {
+
+    @MockBean
+    BookService bookService;
+
+    MeterRegistry meterRegistry;
+    MetricsAspect aspect;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        aspect = new MetricsAspect(meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Deve medir as chamadas aos serviços marcando a exceção lançada")
+    public void timeServiceTest() {
+        when(bookService.getByID(1L)).thenReturn(Optional.of(Book.builder().id(1L).build()));
+        when(bookService.getByID(2L)).thenThrow(new BusinessException("Erro"));
+        BookService proxy = proxy(bookService, BookService.class);
+
+        proxy.getByID(1L);
+        Throwable exception = catchThrowable(() -> proxy.getByID(2L));
+
+        assertThat(exception).isInstanceOf(BusinessException.class);
+        assertThat(timer("library.service", "method", "getByID", "exception", "none").count()).isEqualTo(1);
+        assertThat(timer("library.service", "method", "getByID", "exception", "BusinessException").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve medir as conversões de páginas dos mappers, e não de cada linha")
+    public void timeMapperTest() {
+        BookMapper proxy = proxy(new BookMapper(), BookMapper.class);
+
+        proxy.toDTOs(List.of(Book.builder().id(1L).build(), Book.builder().id(2L).build()));
+        proxy.toDTO(Book.builder().id(3L).build());
+
+        assertThat(timer("library.mapper", "class", "BookMapper", "method", "toDTOs").count()).isEqualTo(1);
+        assertThat(meterRegistry.find("library.mapper").tag("method", "toDTO").timer()).isNull();
+    }
+
+    private <T> T proxy(T target, Class<T> type) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(!type.isInterface());
+        factory.addAspect(aspect);
+        return factory.getProxy();
+    }
+
+    private Timer timer(String name, String... tags) {
+        return meterRegistry.get(name).tags(tags).timer();
+    }
+}
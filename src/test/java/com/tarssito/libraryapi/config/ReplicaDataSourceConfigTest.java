@@ -0,0 +1,77 @@
+package com.tarssito.libraryapi.config;
+
+import com.jayway.jsonpath.JsonPath;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The replica is a read-only pool on the same in-memory database, standing
+ * in for a real replica.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:replicas;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "application.datasource.replica.urls=jdbc:h2:mem:replicas;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "application.datasource.replica.check-ms=3600000"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class ReplicaDataSourceConfigTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    @DisplayName("Deve gravar no primário e consultar na réplica")
+    public void routeQueriesToReplicaTest() throws Exception {
+        long primaryAcquires = acquires("primary");
+        long replicaAcquires = acquires("replica-0");
+
+        String created = mvc.perform(post("/api/books")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"Replicado\",\"author\":\"Autor Replicado\",\"isbn\":\"replica-1\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        Number id = JsonPath.read(created, "$.id");
+
+        assertThat(acquires("primary")).isGreaterThan(primaryAcquires);
+        assertThat(acquires("replica-0")).isEqualTo(replicaAcquires);
+
+        mvc.perform(get("/api/books?author=Autor Replicado&page=0&size=10&sort=id"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content[0].isbn").value("replica-1"));
+
+        assertThat(acquires("replica-0")).isGreaterThan(replicaAcquires);
+
+        // the book comes from the second-level cache; its loans page and count need a transaction
+        long beforeLoans = acquires("replica-0");
+        mvc.perform(get("/api/books/" + id + "/loans?page=0&size=10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("totalElements").value(0));
+
+        assertThat(acquires("replica-0")).isGreaterThanOrEqualTo(beforeLoans + 1);
+        assertThat(meterRegistry.get("library.datasource.replica.usable")
+                .tag("pool", "replica-0").gauge().value()).isEqualTo(1);
+    }
+
+    private long acquires(String pool) {
+        return meterRegistry.find("hikaricp.connections.acquire").tag("pool", pool).timers().stream()
+                .mapToLong(timer -> timer.count())
+                .sum();
+    }
+}
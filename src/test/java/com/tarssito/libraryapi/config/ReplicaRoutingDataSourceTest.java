@@ -0,0 +1,127 @@
+package com.tarssito.libraryapi.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class ReplicaRoutingDataSourceTest {
+
+    private static final String LAG_QUERY = "select seconds from replica_lag";
+
+    SingleConnectionDataSource primary;
+    SingleConnectionDataSource replica;
+
+    @BeforeEach
+    public void setUp() {
+        primary = createDatabase("routing-primary");
+        replica = createDatabase("routing-replica");
+        new JdbcTemplate(replica).execute("create table replica_lag (seconds int)");
+        new JdbcTemplate(replica).update("insert into replica_lag values (0)");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        primary.destroy();
+        replica.destroy();
+    }
+
+    @Test
+    @DisplayName("Deve ler das réplicas apenas em transações somente leitura")
+    public void routeReadOnlyToReplicaTest() throws Exception {
+        ReplicaRoutingDataSource routing = routing(LAG_QUERY, replica(replica));
+
+        assertThat(connectedTo(routing)).isEqualTo("routing-primary");
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertThat(connectedTo(routing)).isEqualTo("routing-replica");
+    }
+
+    @Test
+    @DisplayName("Deve ler do primário quando a réplica estiver atrasada")
+    public void fallbackOnLagTest() throws Exception {
+        ReplicaRoutingDataSource.Replica lagging = replica(replica);
+        ReplicaRoutingDataSource routing = routing(LAG_QUERY, lagging);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        new JdbcTemplate(replica).update("update replica_lag set seconds = 10");
+        routing.checkReplicas();
+
+        assertThat(lagging.isUsable()).isFalse();
+        assertThat(lagging.getLagSeconds()).isEqualTo(10);
+        assertThat(connectedTo(routing)).isEqualTo("routing-primary");
+
+        new JdbcTemplate(replica).update("update replica_lag set seconds = 1");
+        routing.checkReplicas();
+
+        assertThat(lagging.isUsable()).isTrue();
+        assertThat(connectedTo(routing)).isEqualTo("routing-replica");
+    }
+
+    @Test
+    @DisplayName("Deve ler do primário quando a réplica estiver fora do ar")
+    public void fallbackOnUnreachableReplicaTest() throws Exception {
+        DriverManagerDataSource missing = new DriverManagerDataSource("jdbc:h2:mem:routing-missing;IFEXISTS=TRUE");
+        ReplicaRoutingDataSource.Replica down = replica(missing);
+        ReplicaRoutingDataSource routing = routing(null, down, replica(replica));
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertThat(down.isUsable()).isFalse();
+        assertThat(connectedTo(routing)).isEqualTo("routing-replica");
+        assertThat(connectedTo(routing(null, down))).isEqualTo("routing-primary");
+    }
+
+    @Test
+    @DisplayName("Deve rotear também as conexões pedidas com usuário e senha")
+    public void routeConnectionWithCredentialsTest() throws Exception {
+        ReplicaRoutingDataSource routing = routing(LAG_QUERY, replica(replica));
+
+        assertThat(connectedTo(routing.getConnection("sa", ""))).isEqualTo("routing-primary");
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertThat(connectedTo(routing.getConnection("sa", ""))).isEqualTo("routing-replica");
+    }
+
+    private ReplicaRoutingDataSource routing(String lagQuery, ReplicaRoutingDataSource.Replica... replicas) {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, List.of(replicas), lagQuery, 5000);
+        routing.checkReplicas();
+        return routing;
+    }
+
+    private ReplicaRoutingDataSource.Replica replica(DataSource dataSource) {
+        return new ReplicaRoutingDataSource.Replica("replica", dataSource);
+    }
+
+    private SingleConnectionDataSource createDatabase(String name) {
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource(
+                "jdbc:h2:mem:" + name, "sa", "", true);
+        new JdbcTemplate(dataSource).execute("create table whoami (name varchar(30))");
+        new JdbcTemplate(dataSource).update("insert into whoami values (?)", name);
+        return dataSource;
+    }
+
+    private String connectedTo(DataSource dataSource) throws Exception {
+        return connectedTo(dataSource.getConnection());
+    }
+
+    private String connectedTo(Connection connection) throws Exception {
+        try (connection) {
+            return new JdbcTemplate(new SingleConnectionDataSource(connection, true))
+                    .queryForObject("select name from whoami", String.class);
+        }
+    }
+}
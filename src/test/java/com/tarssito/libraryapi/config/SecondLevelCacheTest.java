@@ -0,0 +1,85 @@
+package com.tarssito.libraryapi.config;
+
+import com.tarssito.libraryapi.model.entity.Book;
+import com.tarssito.libraryapi.model.repository.BookRepository;
+import com.tarssito.libraryapi.service.BookService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class SecondLevelCacheTest {
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    BookService bookService;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    @DisplayName("Deve servir os livros já lidos a partir do cache de segundo nível")
+    public void secondLevelCacheTest() {
+        Book book = bookRepository.save(Book.builder().title("Cacheado").author("Autor").isbn("l2-cache").build());
+        long hits = statistics.getDomainDataRegionStatistics("book").getHitCount();
+
+        bookRepository.findById(book.getId());
+        bookRepository.findById(book.getId());
+
+        assertThat(statistics.getDomainDataRegionStatistics("book").getHitCount()).isEqualTo(hits + 2);
+        assertThat(meterRegistry.get("library.cache.region.requests")
+                .tags("region", "book", "result", "hit")
+                .functionCounter().count()).isGreaterThanOrEqualTo(2);
+        bookRepository.delete(book);
+    }
+
+    @Test
+    @DisplayName("Deve exportar o catálogo sem preencher o cache de segundo nível")
+    public void exportBypassesSecondLevelCacheTest() {
+        bookRepository.save(Book.builder().title("Exportado").author("Autor").isbn("l2-export").build());
+        entityManagerFactory.getCache().evict(Book.class);
+        long puts = statistics.getDomainDataRegionStatistics("book").getPutCount();
+        List<Book> exported = new ArrayList<>();
+
+        bookService.export(exported::add);
+
+        assertThat(exported).isNotEmpty();
+        assertThat(statistics.getDomainDataRegionStatistics("book").getPutCount()).isEqualTo(puts);
+    }
+
+    @Test
+    @DisplayName("Deve servir consultas repetidas a partir do cache de consultas")
+    public void queryCacheTest() {
+        bookRepository.existsByIsbn("query-cache");
+        long hits = statistics.getQueryCacheHitCount();
+
+        bookRepository.existsByIsbn("query-cache");
+
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(hits + 1);
+    }
+}
@@ -7,10 +7,15 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -80,6 +85,51 @@ public class BookRepositoryTest {
         assertThat(deletedBook).isNull();
     }
 
+    @Test
+    @DisplayName("Deve obter um livro pelo isbn")
+    public void findByIsbnTest() {
+        Book book = createNewBook("123");
+        entityManager.persist(book);
+
+        Optional<Book> foundBook = repository.findByIsbn("123");
+
+        assertThat(foundBook.isPresent()).isTrue();
+        assertThat(foundBook.get().getId()).isEqualTo(book.getId());
+    }
+
+    @Test
+    @DisplayName("Deve obter a próxima página de livros a partir do último id")
+    public void findNextPageTest() {
+        Book first = entityManager.persist(createNewBook("1"));
+        Book second = entityManager.persist(createNewBook("2"));
+        Book third = entityManager.persist(createNewBook("3"));
+
+        Slice<Book> firstSlice = repository.findNextPage("aventuras", null, null, null, 0L, PageRequest.of(0, 2));
+        Slice<Book> secondSlice = repository.findNextPage("aventuras", null, null, null, second.getId(), PageRequest.of(0, 2));
+
+        assertThat(firstSlice.getContent()).containsExactly(first, second);
+        assertThat(firstSlice.hasNext()).isTrue();
+        assertThat(secondSlice.getContent()).containsExactly(third);
+        assertThat(secondSlice.hasNext()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Deve percorrer os livros para indexação sem anexá-los ao contexto de persistência")
+    public void streamForIndexingTest() {
+        Book book = entityManager.persistFlushFind(createNewBook("123"));
+        entityManager.clear();
+
+        List<Book> books;
+        try (Stream<Book> stream = repository.streamForIndexing()) {
+            books = stream.collect(Collectors.toList());
+        }
+
+        assertThat(books).hasSize(1);
+        assertThat(books.get(0).getIsbn()).isEqualTo(book.getIsbn());
+        assertThat(books.get(0).getTitle()).isEqualTo(book.getTitle());
+        assertThat(entityManager.getEntityManager().contains(books.get(0))).isFalse();
+    }
+
     public static Book createNewBook(String isbn) {
         return Book.builder()
                 .author("Fulano")
@@ -87,4 +137,32 @@ public class BookRepositoryTest {
                 .isbn(isbn)
                 .build();
     }
+
+    @Test
+    @DisplayName("Deve usar o índice único de isbn para buscar um livro pelo isbn")
+    public void findByIsbnUsesIndexTest() {
+        String plan = entityManager.getEntityManager()
+                .createNativeQuery("explain select id from book where isbn = '123'")
+                .getSingleResult().toString();
+
+        assertThat(plan).contains("UX_BOOK_ISBN");
+    }
+
+    @Test
+    @DisplayName("Deve filtrar livros pela disponibilidade")
+    public void findNextPageByAvailabilityTest() {
+        Book onShelf = entityManager.persist(createNewBook("111"));
+        Book loaned = createNewBook("222");
+        loaned.setCurrentLoanId(1L);
+        loaned = entityManager.persist(loaned);
+        entityManager.flush();
+
+        Slice<Book> available = repository.findNextPage(null, null, null, true, 0L, PageRequest.of(0, 10));
+        Slice<Book> unavailable = repository.findNextPage(null, null, null, false, 0L, PageRequest.of(0, 10));
+
+        assertThat(onShelf.getAvailable()).isTrue();
+        assertThat(loaned.getAvailable()).isFalse();
+        assertThat(available.getContent()).containsExactly(onShelf);
+        assertThat(unavailable.getContent()).containsExactly(loaned);
+    }
 }
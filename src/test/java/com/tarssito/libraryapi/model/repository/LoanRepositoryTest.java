@@ -1,7 +1,11 @@
 package com.tarssito.libraryapi.model.repository;
 
+import com.tarssito.libraryapi.api.dto.LoanDTO;
 import com.tarssito.libraryapi.model.entity.Book;
+import com.tarssito.libraryapi.model.entity.Customer;
 import com.tarssito.libraryapi.model.entity.Loan;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -10,14 +14,20 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import javax.persistence.PersistenceException;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.tarssito.libraryapi.model.repository.BookRepositoryTest.createNewBook;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("Test")
@@ -30,6 +40,7 @@ public class LoanRepositoryTest {
     @Autowired
     private LoanRepository repository;
 
+    private Customer fulano;
 
     @Test
     @DisplayName("Deve verificar se não existe empréstimo não devolvido para o livro")
@@ -42,46 +53,290 @@ public class LoanRepositoryTest {
     }
 
     @Test
-    @DisplayName("Deve buscar um empréstimo pelo isbn do livro ou costumer")
-    public void findByBookIsbnOrCostumer() {
-        Loan loan = createAndPersistLoan(LocalDate.now());
+    @DisplayName("Deve buscar os empréstimos de um livro ou de um costumer como união das duas buscas")
+    public void findIdsByBookOrCustomerTest() {
+        Loan newer = createAndPersistLoan(LocalDate.now(), "123");
+        Loan older = createAndPersistLoan(LocalDate.now().minusDays(2), "456");
+        Loan ofBook = createAndPersistLoan(LocalDate.now().minusDays(1), "789", persistCustomer("Ciclano"));
+        createAndPersistLoan(LocalDate.now(), "000", persistCustomer("Beltrano"));
+        entityManager.flush();
+        Sort byLoanDate = Sort.by("loan_date", "id");
 
-        Page<Loan> loanPage = repository.findByBookOrCustomer(
-                "123", "Fulano", PageRequest.of(0, 10));
+        Page<Long> firstPage = repository.findIdsByBookOrCustomer(
+                ofBook.getBook().getId(), fulano().getId(), PageRequest.of(0, 2, byLoanDate)).map(Number::longValue);
+        Page<Long> secondPage = repository.findIdsByBookOrCustomer(
+                ofBook.getBook().getId(), fulano().getId(), PageRequest.of(1, 2, byLoanDate)).map(Number::longValue);
 
-        assertThat(loanPage.getContent()).hasSize(1);
-        assertThat(loanPage.getContent()).contains(loan);
-        assertThat(loanPage.getPageable().getPageSize()).isEqualTo(10);
-        assertThat(loanPage.getPageable().getPageNumber()).isZero();
-        assertThat(loanPage.getTotalElements()).isEqualTo(1);
+        assertThat(firstPage.getContent()).containsExactly(older.getId(), ofBook.getId());
+        assertThat(secondPage.getContent()).containsExactly(newer.getId());
+        assertThat(firstPage.getTotalElements()).isEqualTo(3);
     }
 
     @Test
-    @DisplayName("Deve obter empréstimos cuja data de empréstimo for menor ou igual a 3 dias atrás e não retornados")
-    public void findByLoanDateLessThanAndNotReturnedTest() {
+    @DisplayName("Deve ordenar a união de empréstimos de um livro ou de um costumer pela ordenação pedida")
+    public void findIdsByBookOrCustomerSortedTest() {
+        Loan newer = createAndPersistLoan(LocalDate.now(), "123");
+        Loan older = createAndPersistLoan(LocalDate.now().minusDays(2), "456");
+        Loan ofBook = createAndPersistLoan(LocalDate.now().minusDays(1), "789", persistCustomer("Ciclano"));
+        entityManager.flush();
+
+        Page<Long> page = repository.findIdsByBookOrCustomer(ofBook.getBook().getId(), fulano().getId(),
+                PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "loan_date", "id"))).map(Number::longValue);
+
+        assertThat(page.getContent()).containsExactly(newer.getId(), ofBook.getId(), older.getId());
+    }
+
+    @Test
+    @DisplayName("Deve obter a próxima página da união de empréstimos de um livro ou de um costumer")
+    public void findNextIdsByBookOrCustomerTest() {
+        Loan older = createAndPersistLoan(LocalDate.now().minusDays(2), "123");
+        Loan ofBook = createAndPersistLoan(LocalDate.now().minusDays(1), "789", persistCustomer("Ciclano"));
+        entityManager.flush();
+
+        Slice<Long> firstSlice = repository.findNextIdsByBookOrCustomer(ofBook.getBook().getId(), fulano().getId(),
+                LocalDate.of(1, 1, 1), 0L, PageRequest.of(0, 1)).map(Number::longValue);
+        Slice<Long> secondSlice = repository.findNextIdsByBookOrCustomer(ofBook.getBook().getId(), fulano().getId(),
+                older.getLoanDate(), older.getId(), PageRequest.of(0, 1)).map(Number::longValue);
+
+        assertThat(firstSlice.getContent()).containsExactly(older.getId());
+        assertThat(firstSlice.hasNext()).isTrue();
+        assertThat(secondSlice.getContent()).containsExactly(ofBook.getId());
+        assertThat(secondSlice.hasNext()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Deve obter empréstimos não devolvidos cuja data de devolução já chegou")
+    public void findByDueDateLessThanEqualAndNotReturnedTest() {
         Loan loan = createAndPersistLoan(LocalDate.now().minusDays(5));
-        List<Loan> result = repository.findByLoanDateLessThanAndNotReturned(LocalDate.now().minusDays(4));
+        List<Loan> result = repository.findByDueDateLessThanEqualAndNotReturned(LocalDate.now());
         assertThat(result).hasSize(1).contains(loan);
     }
 
     @Test
     @DisplayName("Deve retornar vazio quando não houver empréstimos atrasados")
-    public void notFindByLoanDateLessThanAndNotReturnedTest() {
+    public void notFindByDueDateLessThanEqualAndNotReturnedTest() {
         createAndPersistLoan(LocalDate.now());
-        List<Loan> result = repository.findByLoanDateLessThanAndNotReturned(LocalDate.now().minusDays(4));
+        List<Loan> result = repository.findByDueDateLessThanEqualAndNotReturned(LocalDate.now());
         assertThat(result).isEmpty();
     }
 
+    @Test
+    @DisplayName("Deve obter a próxima data de devolução de empréstimos abertos dentro do intervalo")
+    public void findNextDueDateTest() {
+        Loan older = createAndPersistLoan(LocalDate.now().minusDays(9), "123");
+        Loan newer = createAndPersistLoan(LocalDate.now().minusDays(5), "456");
+        Loan returned = createAndPersistLoan(LocalDate.now().minusDays(7), "789");
+        returned.setReturned(true);
+        createAndPersistLoan(LocalDate.now(), "000");
+
+        LocalDate first = repository.findNextDueDate(LocalDate.EPOCH, LocalDate.now());
+        LocalDate second = repository.findNextDueDate(first, LocalDate.now());
+        LocalDate none = repository.findNextDueDate(second, LocalDate.now());
+
+        assertThat(first).isEqualTo(older.getDueDate());
+        assertThat(second).isEqualTo(newer.getDueDate());
+        assertThat(none).isNull();
+    }
+
+    @Test
+    @DisplayName("Deve paginar pelo id os empréstimos abertos de uma data de devolução")
+    public void findNextPageDueOnTest() {
+        Loan first = createAndPersistLoan(LocalDate.now().minusDays(5), "123");
+        Loan second = createAndPersistLoan(LocalDate.now().minusDays(5), "456");
+        createAndPersistLoan(LocalDate.now().minusDays(6), "789");
+        LocalDate dueDate = first.getDueDate();
+
+        List<Loan> firstPage = repository.findNextPageDueOn(dueDate, 0L, PageRequest.of(0, 1));
+        List<Loan> secondPage = repository.findNextPageDueOn(dueDate, first.getId(), PageRequest.of(0, 1));
+        List<Loan> lastPage = repository.findNextPageDueOn(dueDate, second.getId(), PageRequest.of(0, 1));
+
+        assertThat(firstPage).containsExactly(first);
+        assertThat(secondPage).containsExactly(second);
+        assertThat(lastPage).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve obter a próxima página de empréstimos a partir da última data e id")
+    public void findNextPageByCustomerTest() {
+        Loan older = createAndPersistLoan(LocalDate.now().minusDays(2), "123");
+        Loan newer = createAndPersistLoan(LocalDate.now(), "456");
+
+        Slice<Loan> firstSlice = repository.findNextPageByCustomer(
+                fulano(), LocalDate.of(1, 1, 1), 0L, PageRequest.of(0, 1));
+        Slice<Loan> secondSlice = repository.findNextPageByCustomer(
+                fulano(), older.getLoanDate(), older.getId(), PageRequest.of(0, 1));
+
+        assertThat(firstSlice.getContent()).containsExactly(older);
+        assertThat(firstSlice.hasNext()).isTrue();
+        assertThat(secondSlice.getContent()).containsExactly(newer);
+        assertThat(secondSlice.hasNext()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Deve percorrer todos os empréstimos com o livro carregado")
+    public void streamAllTest() {
+        Loan first = createAndPersistLoan(LocalDate.now(), "123");
+        Loan second = createAndPersistLoan(LocalDate.now(), "456");
+
+        List<Loan> result;
+        try (Stream<Loan> loans = repository.streamAll()) {
+            result = loans.collect(Collectors.toList());
+        }
+
+        assertThat(result).containsExactly(first, second);
+        assertThat(result.get(1).getBook().getIsbn()).isEqualTo("456");
+    }
+
+    @Test
+    @DisplayName("Deve carregar uma página de empréstimos de um costumer com seus livros em apenas duas consultas")
+    public void findByCustomerStatementCountTest() {
+        for (int i = 0; i < 5; i++) {
+            createAndPersistLoan(LocalDate.now(), "isbn-" + i);
+        }
+        Statistics statistics = startStatementCount();
+
+        Page<Loan> loanPage = repository.findByCustomer(fulano(), PageRequest.of(0, 3));
+        loanPage.getContent().forEach(loan -> loan.getBook().getTitle());
+        loanPage.getContent().forEach(loan -> loan.getCustomer().getEmail());
+
+        assertThat(loanPage.getContent()).hasSize(3);
+        assertThat(loanPage.getTotalElements()).isEqualTo(5);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve projetar empréstimos, livros e costumers diretamente em DTO")
+    public void findDTOByBookTest() {
+        Book book = null;
+        for (int i = 0; i < 5; i++) {
+            Loan loan = createAndPersistLoan(LocalDate.now(), "isbn-" + i);
+            book = i == 2 ? loan.getBook() : book;
+        }
+        Statistics statistics = startStatementCount();
+
+        Page<LoanDTO> loanPage = repository.findDTOByBook(book, PageRequest.of(0, 10));
+
+        assertThat(loanPage.getContent()).hasSize(1);
+        assertThat(loanPage.getContent().get(0).getCostumer()).isEqualTo("Fulano");
+        assertThat(loanPage.getContent().get(0).getEmail()).isEqualTo("fulano@email.com");
+        assertThat(loanPage.getContent().get(0).getBook().getIsbn()).isEqualTo("isbn-2");
+        assertThat(loanPage.getContent().get(0).getBook().getTitle()).isEqualTo("As aventuras");
+        assertThat(loanPage.getContent().get(0).getBook().getAvailable()).isTrue();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve carregar os empréstimos de um livro sem consultas adicionais ao livro")
+    public void findByBookStatementCountTest() {
+        Loan loan = createAndPersistLoan(LocalDate.now());
+        Statistics statistics = startStatementCount();
+
+        Page<Loan> loanPage = repository.findByBook(loan.getBook(), PageRequest.of(0, 10));
+        loanPage.getContent().forEach(found -> found.getBook().getTitle());
+
+        assertThat(loanPage.getContent()).hasSize(1);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    private Statistics startStatementCount() {
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        return statistics;
+    }
+
+    @Test
+    @DisplayName("Não deve permitir dois empréstimos em aberto para o mesmo livro")
+    public void openLoanUniqueConstraintTest() {
+        Loan loan = createAndPersistLoan(LocalDate.now());
+        Loan secondLoan = Loan.builder().book(loan.getBook()).customer(persistCustomer("Ciclano")).loanDate(LocalDate.now()).build();
+
+        Throwable exception = catchThrowable(() -> {
+            entityManager.persist(secondLoan);
+            entityManager.flush();
+        });
+
+        assertThat(exception).isInstanceOf(PersistenceException.class);
+    }
+
+    @Test
+    @DisplayName("Deve permitir um novo empréstimo depois da devolução do livro")
+    public void loanAfterReturnTest() {
+        Loan loan = createAndPersistLoan(LocalDate.now());
+        loan.setReturned(true);
+        entityManager.flush();
+        entityManager.persist(Loan.builder().book(loan.getBook()).customer(persistCustomer("Ciclano")).loanDate(LocalDate.now()).build());
+
+        List<Long> loanedBookIds;
+        try (Stream<Long> bookIds = repository.streamLoanedBookIds()) {
+            loanedBookIds = bookIds.collect(Collectors.toList());
+        }
+
+        assertThat(loanedBookIds).containsExactly(loan.getBook().getId());
+    }
+
     public Loan createAndPersistLoan(LocalDate loanDate) {
-        Book book = createNewBook("123");
+        return createAndPersistLoan(loanDate, "123");
+    }
+
+    public Loan createAndPersistLoan(LocalDate loanDate, String isbn) {
+        return createAndPersistLoan(loanDate, isbn, fulano());
+    }
+
+    public Loan createAndPersistLoan(LocalDate loanDate, String isbn, Customer customer) {
+        Book book = createNewBook(isbn);
         entityManager.persist(book);
 
         Loan loan = Loan.builder()
                 .book(book)
-                .costumer("Fulano")
+                .customer(customer)
                 .loanDate(loanDate)
+                .dueDate(loanDate.plusDays(4))
                 .build();
         entityManager.persist(loan);
         return loan;
     }
+
+    private Customer fulano() {
+        if (fulano == null) {
+            fulano = persistCustomer("Fulano");
+        }
+        return fulano;
+    }
+
+    private Customer persistCustomer(String name) {
+        return entityManager.persist(Customer.builder()
+                .name(name)
+                .email(name.toLowerCase() + "@email.com")
+                .build());
+    }
+
+    @Test
+    @DisplayName("Deve usar o índice (id_book, returned) para buscar empréstimos abertos de um livro")
+    public void openLoansByBookUseIndexTest() {
+        assertThat(plan("select id from loan where id_book = 1 and returned = false"))
+                .contains("IX_LOAN_BOOK_RETURNED");
+    }
+
+    @Test
+    @DisplayName("Deve usar o índice (due_date, returned, id) para buscar empréstimos que vencem em um dia")
+    public void loansDueOnUseIndexTest() {
+        assertThat(plan("select id from loan where due_date = current_date and returned = false and id > 0 order by id"))
+                .contains("IX_LOAN_DUE_DATE");
+    }
+
+    @Test
+    @DisplayName("Deve usar o índice (id_customer, loan_date, id) para buscar empréstimos de um cliente")
+    public void loansByCustomerUseIndexTest() {
+        assertThat(plan("select id from loan where id_customer = 1 order by loan_date, id"))
+                .contains("IX_LOAN_CUSTOMER");
+    }
+
+    private String plan(String sql) {
+        return entityManager.getEntityManager().createNativeQuery("explain " + sql).getSingleResult().toString();
+    }
 }
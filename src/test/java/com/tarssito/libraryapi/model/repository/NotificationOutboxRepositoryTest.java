@@ -0,0 +1,102 @@
+package com.tarssito.libraryapi.model.repository;
+
+import com.tarssito.libraryapi.model.entity.NotificationOutbox;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+public class NotificationOutboxRepositoryTest {
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    NotificationOutboxRepository repository;
+
+    @Test
+    @DisplayName("Deve obter apenas notificações pendentes e disponíveis, das mais antigas às mais novas")
+    public void findClaimableTest() {
+        LocalDateTime now = LocalDateTime.now();
+        NotificationOutbox older = persist(1L, NotificationOutbox.Status.PENDING, now.minusMinutes(2));
+        NotificationOutbox newer = persist(2L, NotificationOutbox.Status.PENDING, now.minusMinutes(1));
+        persist(3L, NotificationOutbox.Status.PENDING, now.plusMinutes(5));
+        persist(4L, NotificationOutbox.Status.SENT, now.minusMinutes(3));
+
+        List<NotificationOutbox> claimable = repository.findClaimable(
+                NotificationOutbox.Status.PENDING, now, PageRequest.of(0, 10));
+
+        assertThat(claimable).containsExactly(older, newer);
+    }
+
+    @Test
+    @DisplayName("Deve obter os empréstimos já notificados na data")
+    public void findNotifiedLoanIdsTest() {
+        persist(1L, NotificationOutbox.Status.SENT, LocalDateTime.now());
+
+        Set<Long> notified = repository.findNotifiedLoanIds(
+                NotificationOutbox.Type.LATE_LOAN, LocalDate.now(), Arrays.asList(1L, 2L));
+
+        assertThat(notified).containsExactly(1L);
+    }
+
+    @Test
+    @DisplayName("Deve cancelar as notificações pendentes de um empréstimo")
+    public void cancelPendingTest() {
+        NotificationOutbox pending = persist(1L, NotificationOutbox.Status.PENDING, LocalDateTime.now());
+
+        int cancelled = repository.updateStatusByLoan(
+                1L, NotificationOutbox.Status.PENDING, NotificationOutbox.Status.CANCELLED);
+        entityManager.clear();
+
+        assertThat(cancelled).isEqualTo(1);
+        assertThat(entityManager.find(NotificationOutbox.class, pending.getId()).getStatus())
+                .isEqualTo(NotificationOutbox.Status.CANCELLED);
+    }
+
+    @Test
+    @DisplayName("Não deve marcar como enviada a notificação cancelada durante o envio")
+    public void markSentKeepsCancelledTest() {
+        NotificationOutbox pending = persist(1L, NotificationOutbox.Status.PENDING, LocalDateTime.now());
+        NotificationOutbox cancelled = persist(2L, NotificationOutbox.Status.CANCELLED, LocalDateTime.now());
+
+        int sent = repository.markSent(Arrays.asList(pending.getId(), cancelled.getId()),
+                NotificationOutbox.Status.PENDING, NotificationOutbox.Status.SENT, LocalDateTime.now());
+        entityManager.clear();
+
+        assertThat(sent).isEqualTo(1);
+        assertThat(entityManager.find(NotificationOutbox.class, pending.getId()).getStatus())
+                .isEqualTo(NotificationOutbox.Status.SENT);
+        assertThat(entityManager.find(NotificationOutbox.class, cancelled.getId()).getStatus())
+                .isEqualTo(NotificationOutbox.Status.CANCELLED);
+    }
+
+    private NotificationOutbox persist(Long loanId, NotificationOutbox.Status status, LocalDateTime availableAt) {
+        return entityManager.persistAndFlush(NotificationOutbox.builder()
+                .loanId(loanId)
+                .type(NotificationOutbox.Type.LATE_LOAN)
+                .referenceDate(LocalDate.now())
+                .recipient("cliente-" + loanId + "@email.com")
+                .message("Atenção!")
+                .status(status)
+                .availableAt(availableAt)
+                .createdAt(LocalDateTime.now())
+                .build());
+    }
+}
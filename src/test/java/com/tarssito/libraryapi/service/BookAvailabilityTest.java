@@ -0,0 +1,60 @@
+package com.tarssito.libraryapi.service;
+
+import com.tarssito.libraryapi.model.entity.Book;
+import com.tarssito.libraryapi.model.repository.BookRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class BookAvailabilityTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Test
+    @DisplayName("Deve marcar o livro como indisponível no empréstimo e disponível na devolução")
+    public void bookAvailabilityTest() throws Exception {
+        Book book = bookRepository.save(Book.builder().title("Disponivel").author("Autor").isbn("availability").build());
+        assertThat(book.getAvailable()).isTrue();
+
+        String loanId = mvc.perform(post("/api/loans")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"isbn\":\"availability\",\"costumer\":\"Fulano\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+
+        mvc.perform(get("/api/books/" + book.getId()))
+                .andExpect(jsonPath("available").value(false));
+        mvc.perform(get("/api/books?isbn=availability&available=false&page=0&size=10"))
+                .andExpect(jsonPath("content[0].id").value(book.getId()));
+        mvc.perform(get("/api/books?isbn=availability&available=true&page=0&size=10"))
+                .andExpect(jsonPath("totalElements").value(0));
+
+        mvc.perform(patch("/api/loans/" + loanId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"returned\":true}"))
+                .andExpect(status().isOk());
+
+        Book returned = bookRepository.findById(book.getId()).get();
+        assertThat(returned.getAvailable()).isTrue();
+        assertThat(returned.getCurrentLoanId()).isNull();
+    }
+}
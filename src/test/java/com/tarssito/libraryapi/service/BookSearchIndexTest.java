@@ -0,0 +1,102 @@
+package com.tarssito.libraryapi.service;
+
+import com.tarssito.libraryapi.model.entity.Book;
+import com.tarssito.libraryapi.model.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class BookSearchIndexTest {
+
+    @MockBean
+    BookRepository repository;
+
+    BookSearchIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        index = new BookSearchIndex(repository);
+        Mockito.when(repository.streamForIndexing()).thenReturn(Stream.of(
+                book(1L, "Aventureiros do Mar", "José de Alencar", "978-85-1"),
+                book(2L, "As Aventuras", "Machado de Assis", "978-85-2"),
+                book(3L, "Memórias Póstumas", "Machado de Assis", "978-65-3")));
+        index.warmUp();
+    }
+
+    @Test
+    @DisplayName("Deve ordenar os resultados pela relevância, priorizando termos completos")
+    public void rankedSearchTest() {
+        List<Long> ids = index.search(Book.builder().title("aventuras").build());
+        List<Long> prefixIds = index.search(Book.builder().title("avent").build());
+
+        assertThat(ids).containsExactly(2L);
+        assertThat(prefixIds).containsExactly(1L, 2L);
+    }
+
+    @Test
+    @DisplayName("Deve combinar os campos do filtro ignorando caixa")
+    public void multiFieldSearchTest() {
+        List<Long> ids = index.search(Book.builder().title("MEMÓRIAS").author("machado").build());
+        List<Long> isbnIds = index.search(Book.builder().isbn("978-85").build());
+
+        assertThat(ids).containsExactly(3L);
+        assertThat(isbnIds).containsExactly(1L, 2L);
+    }
+
+    @Test
+    @DisplayName("Deve encontrar o filtro em qualquer posição do campo, como a consulta por exemplo")
+    public void infixSearchTest() {
+        assertThat(index.search(Book.builder().title("entur").build())).containsExactly(1L, 2L);
+        assertThat(index.search(Book.builder().title("as ave").build())).containsExactly(2L);
+        assertThat(index.search(Book.builder().author("de").build())).containsExactly(1L, 2L, 3L);
+        assertThat(index.search(Book.builder().title("memorias").build())).isEmpty();
+        assertThat(index.search(Book.builder().title("aventuras as").build())).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve atualizar o índice ao alterar e remover livros")
+    public void incrementalUpdateTest() {
+        index.add(book(2L, "Dom Casmurro", "Machado de Assis", "978-85-2"));
+        index.remove(3L);
+
+        assertThat(index.search(Book.builder().title("aventuras").build())).isEmpty();
+        assertThat(index.search(Book.builder().title("dom").build())).containsExactly(2L);
+        assertThat(index.search(Book.builder().author("assis").build())).containsExactly(2L);
+    }
+
+    @Test
+    @DisplayName("Deve aplicar ao índice os livros salvos e removidos do catálogo")
+    public void bookChangedTest() {
+        index.onBookChanged(BookChangedEvent.saved(List.of(book(4L, "Dom Casmurro", "Machado de Assis", "4"))));
+        index.onBookChanged(BookChangedEvent.removed(3L));
+        index.onBookChanged(BookChangedEvent.availability(List.of(1L)));
+
+        assertThat(index.search(Book.builder().author("assis").build())).containsExactly(2L, 4L);
+        assertThat(index.search(Book.builder().title("aventureiros").build())).containsExactly(1L);
+    }
+
+    @Test
+    @DisplayName("Deve priorizar livros cujo termo coincide inteiramente com a busca")
+    public void exactTermBoostTest() {
+        index.add(book(4L, "Mar", "Fulano", "4"));
+        index.add(book(5L, "Maresia", "Fulano", "5"));
+
+        assertThat(index.search(Book.builder().title("mar").build())).containsExactly(1L, 4L, 5L);
+    }
+
+    private Book book(Long id, String title, String author, String isbn) {
+        return Book.builder().id(id).title(title).author(author).isbn(isbn).build();
+    }
+}
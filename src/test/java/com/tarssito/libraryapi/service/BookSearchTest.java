@@ -0,0 +1,71 @@
+package com.tarssito.libraryapi.service;
+
+import com.tarssito.libraryapi.model.entity.Book;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class BookSearchTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    BookSearchIndex searchIndex;
+
+    @Autowired
+    BookService bookService;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    @DisplayName("Deve encontrar os mesmos livros pelo índice de busca e pela consulta ordenada")
+    public void sameMatchesWithAndWithoutSortTest() throws Exception {
+        mvc.perform(post("/api/books")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"Notebookxz Perdido\",\"author\":\"Autor\",\"isbn\":\"search-1\"}"))
+                .andExpect(status().isCreated());
+        assertThat(searchIndex.isReady()).isTrue();
+
+        String[] queries = {"?title=ookxz", "?title=ookxz&sort=id", "?title=OOKXZ P", "?title=OOKXZ P&sort=id"};
+        for (String query : queries) {
+            mvc.perform(get("/api/books" + query + "&page=0&size=10"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("totalElements").value(1))
+                    .andExpect(jsonPath("content[0].isbn").value("search-1"));
+        }
+    }
+
+    @Test
+    @DisplayName("Deve indexar os livros somente após o commit da transação")
+    public void searchIndexRollbackTest() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            bookService.saveAll(List.of(Book.builder().title("Fantasma").author("Autor").isbn("rollback-1").build()));
+            assertThat(searchIndex.search(Book.builder().title("fantasma").build())).isEmpty();
+            status.setRollbackOnly();
+        });
+        assertThat(searchIndex.search(Book.builder().title("fantasma").build())).isEmpty();
+
+        Book saved = bookService.save(Book.builder().title("Confirmado").author("Autor").isbn("rollback-2").build());
+        assertThat(searchIndex.search(Book.builder().title("confirmado").build())).containsExactly(saved.getId());
+    }
+}
@@ -0,0 +1,94 @@
+package com.tarssito.libraryapi.service;
+
+import com.tarssito.libraryapi.model.entity.Book;
+import com.tarssito.libraryapi.model.repository.BookRepository;
+import com.tarssito.libraryapi.service.impl.BookServiceImpl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@ContextConfiguration(classes = BookServiceCacheTest.CacheConfig.class)
+public class BookServiceCacheTest {
+
+    @Configuration
+    @EnableCaching
+    @Import(BookServiceImpl.class)
+    static class CacheConfig {
+        @Bean
+        public CacheManager cacheManager() {
+            return new CaffeineCacheManager();
+        }
+    }
+
+    @Autowired
+    BookService bookService;
+
+    @MockBean
+    BookRepository repository;
+
+    @MockBean
+    BookSearchIndex searchIndex;
+
+    @MockBean
+    SingleFlight singleFlight;
+
+    @MockBean
+    EntityManagerFactory entityManagerFactory;
+
+    @Test
+    @DisplayName("Deve consultar a base uma única vez para buscas repetidas pelo mesmo isbn")
+    public void cachedIsbnLookupTest() {
+        Book book = Book.builder().id(1L).isbn("123").build();
+        Mockito.when(repository.findByIsbn("123")).thenReturn(Optional.of(book));
+
+        bookService.getBookByIsbn("123");
+        Optional<Book> foundBook = bookService.getBookByIsbn("123");
+
+        assertThat(foundBook).contains(book);
+        Mockito.verify(repository, Mockito.times(1)).findByIsbn("123");
+    }
+
+    @Test
+    @DisplayName("Deve invalidar o cache do isbn ao atualizar o livro")
+    public void evictIsbnOnUpdateTest() {
+        Book book = Book.builder().id(1L).isbn("321").build();
+        Mockito.when(repository.findByIsbn("321")).thenReturn(Optional.of(book));
+        Mockito.when(repository.save(book)).thenReturn(book);
+
+        bookService.getBookByIsbn("321");
+        bookService.update(book);
+        bookService.getBookByIsbn("321");
+
+        Mockito.verify(repository, Mockito.times(2)).findByIsbn("321");
+    }
+
+    @Test
+    @DisplayName("Não deve guardar no cache isbn inexistente")
+    public void notCacheMissingIsbnTest() {
+        Mockito.when(repository.findByIsbn("999")).thenReturn(Optional.empty());
+
+        bookService.getBookByIsbn("999");
+        bookService.getBookByIsbn("999");
+
+        Mockito.verify(repository, Mockito.times(2)).findByIsbn("999");
+    }
+}
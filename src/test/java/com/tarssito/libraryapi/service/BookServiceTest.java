@@ -5,12 +5,15 @@ import com.tarssito.libraryapi.model.entity.Book;
 import com.tarssito.libraryapi.model.repository.BookRepository;
 import com.tarssito.libraryapi.service.impl.BookServiceImpl;
 import org.assertj.core.api.Assertions;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
@@ -18,10 +21,18 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -30,12 +41,19 @@ import static org.assertj.core.api.Assertions.assertThat;
 public class BookServiceTest {
 
     BookService bookService;
+    BookSearchIndex searchIndex;
+    ApplicationEventPublisher eventPublisher;
+    MeterRegistry meterRegistry;
     @MockBean
     BookRepository repository;
 
     @BeforeEach
     public void setUp() {
-        this.bookService = new BookServiceImpl(repository);
+        this.searchIndex = new BookSearchIndex(repository);
+        this.eventPublisher = Mockito.mock(ApplicationEventPublisher.class);
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.bookService = new BookServiceImpl(repository, searchIndex,
+                new SingleFlight(meterRegistry, Set.of("book")), eventPublisher);
     }
 
     @Test
@@ -59,6 +77,7 @@ public class BookServiceTest {
         assertThat(savedBook.getIsbn()).isEqualTo("123");
         assertThat(savedBook.getAuthor()).isEqualTo("Fulano");
         assertThat(savedBook.getTitle()).isEqualTo("As Aventuras");
+        Mockito.verify(eventPublisher).publishEvent(BookChangedEvent.saved(List.of(savedBook)));
     }
 
     @Test
@@ -93,7 +112,42 @@ public class BookServiceTest {
         assertThat(optionalBook.get().getTitle()).isEqualTo(book.getTitle());
         assertThat(optionalBook.get().getAuthor()).isEqualTo(book.getAuthor());
         assertThat(optionalBook.get().getIsbn()).isEqualTo(book.getIsbn());
+        assertThat(optionalBook.get()).isNotSameAs(book);
+    }
 
+    @Test
+    @DisplayName("Deve entregar cópias independentes do livro às consultas concorrentes que compartilham a busca")
+    public void coalescedGetByIdTest() throws Exception {
+        Book book = createValidBook();
+        book.setId(1L);
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(repository.findById(1L)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.of(book);
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Optional<Book>> first = executor.submit(() -> bookService.getByID(1L));
+            Future<Optional<Book>> second = executor.submit(() -> bookService.getByID(1L));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (meterRegistry.find("library.single-flight.calls").tag("result", "shared").counter().count() < 1
+                    && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            Book firstBook = first.get(5, TimeUnit.SECONDS).get();
+            Book secondBook = second.get(5, TimeUnit.SECONDS).get();
+            firstBook.setTitle("Outro título");
+
+            assertThat(firstBook).isNotSameAs(secondBook).isNotSameAs(book);
+            assertThat(secondBook.getTitle()).isEqualTo(book.getTitle());
+            assertThat(secondBook.getVersion()).isEqualTo(book.getVersion());
+            assertThat(secondBook.getLoans()).isNull();
+            Mockito.verify(repository, Mockito.times(1)).findById(1L);
+        } finally {
+            executor.shutdownNow();
+        }
     }
 
     @Test
@@ -180,6 +234,60 @@ public class BookServiceTest {
         assertThat(result.getPageable().getPageSize()).isEqualTo(10);
     }
 
+    @Test
+    @DisplayName("Deve filtrar livros por trecho usando o índice de busca")
+    public void findBookWithSearchIndexTest() {
+        Book first = Book.builder().id(1L).title("Aventureiros").author("Fulano").isbn("1").build();
+        Book second = Book.builder().id(2L).title("As Aventuras").author("Ciclano").isbn("2").build();
+        Book other = Book.builder().id(3L).title("Outro livro").author("Fulano").isbn("3").build();
+        Mockito.when(repository.streamForIndexing()).thenReturn(Stream.of(first, second, other));
+        Mockito.when(repository.findAllById(Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(second, first));
+        searchIndex.warmUp();
+
+        Page<Book> result = bookService.find(Book.builder().title("VENTUR").build(), PageRequest.of(0, 10));
+
+        assertThat(result.getContent()).containsExactly(first, second);
+        assertThat(result.getTotalElements()).isEqualTo(2);
+        Mockito.verify(repository, Mockito.never()).findAll(Mockito.any(Example.class), Mockito.any(PageRequest.class));
+    }
+
+    @Test
+    @DisplayName("Deve obter um livro pelo isbn")
+    public void getBookByIsbnTest() {
+        String isbn = "123";
+        Book book = createValidBook();
+        book.setId(1L);
+        Mockito.when(repository.findByIsbn(isbn)).thenReturn(Optional.of(book));
+
+        Optional<Book> foundBook = bookService.getBookByIsbn(isbn);
+
+        assertThat(foundBook.isPresent()).isTrue();
+        assertThat(foundBook.get().getId()).isEqualTo(1L);
+        assertThat(foundBook.get().getIsbn()).isEqualTo(isbn);
+        Mockito.verify(repository, Mockito.times(1)).findByIsbn(isbn);
+    }
+
+    @Test
+    @DisplayName("Deve salvar em lote apenas livros com isbn ainda não cadastrado")
+    public void saveAllTest() {
+        Book known = Book.builder().isbn("1").build();
+        Book fresh = Book.builder().isbn("2").build();
+        Book repeated = Book.builder().isbn("2").build();
+        Mockito.when(repository.findExistingIsbns(Mockito.anyCollection()))
+                .thenReturn(Collections.singleton("1"));
+        Mockito.when(repository.saveAll(Mockito.anyIterable()))
+                .thenAnswer(invocation -> {
+                    List<Book> books = new ArrayList<>();
+                    invocation.<Iterable<Book>>getArgument(0).forEach(books::add);
+                    return books;
+                });
+
+        List<Book> saved = bookService.saveAll(Arrays.asList(known, fresh, repeated));
+
+        assertThat(saved).containsExactly(fresh);
+        assertThat(saved.get(0)).isSameAs(fresh);
+    }
+
     private Book createValidBook() {
         return Book.builder()
                 .isbn("123")
@@ -0,0 +1,43 @@
+package com.tarssito.libraryapi.service;
+
+import com.tarssito.libraryapi.model.entity.Customer;
+import com.tarssito.libraryapi.model.repository.CustomerRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class CustomerServiceTest {
+
+    @Autowired
+    CustomerService customerService;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    @DisplayName("Deve rejeitar um nome já cadastrado sem comprometer a transação que tenta cadastrá-lo")
+    public void createTakenNameTest() {
+        customerService.create("Costumer Concorrente", null);
+
+        Customer found = new TransactionTemplate(transactionManager).execute(status -> {
+            Throwable exception = catchThrowable(() -> customerService.create("Costumer Concorrente", "outro@email.com"));
+            assertThat(exception).isInstanceOf(DataIntegrityViolationException.class);
+            return customerRepository.findByName("Costumer Concorrente").orElseThrow();
+        });
+
+        assertThat(found.getEmail()).isNull();
+    }
+}
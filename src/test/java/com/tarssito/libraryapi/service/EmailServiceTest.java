@@ -0,0 +1,141 @@
+package com.tarssito.libraryapi.service;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.tarssito.libraryapi.exception.MailDeliveryException;
+import com.tarssito.libraryapi.service.impl.EmailServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.mail.internet.MimeMessage;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class EmailServiceTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    MeterRegistry meterRegistry;
+    EmailServiceImpl service;
+
+    @BeforeEach
+    public void setUp() {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(ServerSetupTest.SMTP.getPort());
+        meterRegistry = new SimpleMeterRegistry();
+        service = new EmailServiceImpl(mailSender, meterRegistry);
+        ReflectionTestUtils.setField(service, "sender", "mail@library-api.com");
+        ReflectionTestUtils.setField(service, "queueCapacity", 10);
+        ReflectionTestUtils.setField(service, "senders", 2);
+        ReflectionTestUtils.setField(service, "offerTimeoutMillis", 10L);
+        ReflectionTestUtils.setField(service, "idleTimeoutMillis", 1000L);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        service.stop();
+    }
+
+    @Test
+    @DisplayName("Deve enviar uma mensagem para cada destinatário")
+    public void sendMailsTest() throws Exception {
+        service.start();
+        List<String> emails = Arrays.asList("fulano@email.com", "ciclano@email.com", "beltrano@email.com");
+
+        service.sendMails("Atenção!", emails).get(10, TimeUnit.SECONDS);
+
+        MimeMessage[] messages = greenMail.getReceivedMessages();
+        assertThat(messages).hasSize(3);
+        assertThat(messages[0].getAllRecipients()).hasSize(1);
+        assertThat(messages[0].getSubject()).isEqualTo("Livro com empréstimo atrasado.");
+        assertThat(meterRegistry.counter("library.mail.messages", "result", "sent").count()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Deve recusar as mensagens que não cabem na fila")
+    public void backPressureTest() {
+        ReflectionTestUtils.setField(service, "queueCapacity", 1);
+        ReflectionTestUtils.setField(service, "senders", 0);
+        service.start();
+
+        CompletableFuture<Void> future = service.sendMails("Atenção!", Arrays.asList("fulano@email.com", "ciclano@email.com"));
+
+        assertThat(future).isNotDone();
+        assertThat(meterRegistry.counter("library.mail.messages", "result", "rejected").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve informar os destinatários que não receberam a mensagem")
+    public void failedDeliveryTest() {
+        JavaMailSenderImpl unreachable = new JavaMailSenderImpl();
+        unreachable.setHost("localhost");
+        unreachable.setPort(ServerSetupTest.SMTP.getPort() + 1);
+        ReflectionTestUtils.setField(service, "javaMailSender", unreachable);
+        service.start();
+
+        Throwable exception = catchThrowable(() ->
+                service.sendMails("Atenção!", Arrays.asList("fulano@email.com")).get(10, TimeUnit.SECONDS));
+
+        assertThat(exception).isInstanceOf(ExecutionException.class);
+        assertThat(exception.getCause()).isInstanceOf(MailDeliveryException.class);
+        assertThat(((MailDeliveryException) exception.getCause()).getFailedEmails()).containsExactly("fulano@email.com");
+        assertThat(meterRegistry.counter("library.mail.messages", "result", "failed").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve falhar a mensagem e manter o remetente ativo quando o envio lançar exceção inesperada")
+    public void unexpectedExceptionTest() throws Exception {
+        JavaMailSenderImpl failing = new JavaMailSenderImpl() {
+            @Override
+            public MimeMessage createMimeMessage() {
+                throw new IllegalStateException("sessão inválida");
+            }
+        };
+        ReflectionTestUtils.setField(service, "javaMailSender", failing);
+        ReflectionTestUtils.setField(service, "senders", 1);
+        service.start();
+
+        for (int i = 0; i < 2; i++) {
+            Throwable exception = catchThrowable(() ->
+                    service.sendMails("Atenção!", Arrays.asList("fulano@email.com")).get(10, TimeUnit.SECONDS));
+            assertThat(exception).isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(MailDeliveryException.class);
+        }
+        assertThat(meterRegistry.counter("library.mail.messages", "result", "failed").count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve falhar as mensagens ainda na fila ao parar")
+    public void failQueuedOnStopTest() throws Exception {
+        ReflectionTestUtils.setField(service, "senders", 0);
+        service.start();
+        CompletableFuture<Void> future = service.sendMails("Atenção!", Arrays.asList("fulano@email.com"));
+
+        service.stop();
+
+        Throwable exception = catchThrowable(() -> future.get(1, TimeUnit.SECONDS));
+        assertThat(exception).isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(MailDeliveryException.class);
+        assertThat(service.sendMails("Atenção!", Arrays.asList("ciclano@email.com"))).isCompletedExceptionally();
+    }
+}
@@ -0,0 +1,98 @@
+package com.tarssito.libraryapi.service;
+
+import com.tarssito.libraryapi.model.entity.Customer;
+import com.tarssito.libraryapi.model.entity.JobWatermark;
+import com.tarssito.libraryapi.model.entity.Loan;
+import com.tarssito.libraryapi.model.repository.JobWatermarkRepository;
+import com.tarssito.libraryapi.model.repository.NotificationOutboxRepository;
+import com.tarssito.libraryapi.service.impl.NotificationServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the late loans job against the real outbox, to check that resuming a
+ * scan on a later day does not queue the mails already queued for a due date.
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@Import(NotificationServiceImpl.class)
+public class LateLoansJobTest {
+
+    @MockBean
+    LoanService loanService;
+
+    @Autowired
+    NotificationService notificationService;
+
+    @Autowired
+    NotificationOutboxRepository outboxRepository;
+
+    @Autowired
+    JobWatermarkRepository watermarkRepository;
+
+    LocalDate dueDate = LocalDate.of(2020, 11, 10);
+
+    @BeforeEach
+    public void setUp() {
+        List<Loan> loans = List.of(
+                Loan.builder().id(1L).dueDate(dueDate).customer(Customer.builder().email("fulano@email.com").build()).build(),
+                Loan.builder().id(2L).dueDate(dueDate).customer(Customer.builder().email("ciclano@email.com").build()).build());
+        when(loanService.getNextDueDate(any(LocalDate.class), any(LocalDate.class))).thenAnswer(invocation -> {
+            LocalDate after = invocation.getArgument(0);
+            LocalDate until = invocation.getArgument(1);
+            return after.isBefore(dueDate) && !until.isBefore(dueDate) ? Optional.of(dueDate) : Optional.empty();
+        });
+        when(loanService.getLoansDueOn(any(LocalDate.class), any(Long.class), anyInt())).thenAnswer(invocation ->
+                invocation.getArgument(0).equals(dueDate) && invocation.<Long>getArgument(1) == 0L ? loans : List.of());
+    }
+
+    @Test
+    @DisplayName("Não deve enfileirar de novo os emails de uma data de devolução ao retomar o job no dia seguinte")
+    public void resumeOnNextDayTest() {
+        watermarkRepository.save(JobWatermark.builder().name(ScheduleService.LATE_LOANS_JOB)
+                .watermark(dueDate.minusDays(1)).build());
+        jobRunningOn(dueDate).enqueueLateLoanMails();
+        assertThat(outboxRepository.count()).isEqualTo(2);
+
+        // the run was interrupted before its watermark was committed
+        JobWatermark watermark = watermarkRepository.findById(ScheduleService.LATE_LOANS_JOB).get();
+        watermark.setWatermark(dueDate.minusDays(1));
+        watermarkRepository.save(watermark);
+        jobRunningOn(dueDate.plusDays(1)).enqueueLateLoanMails();
+
+        assertThat(outboxRepository.count()).isEqualTo(2);
+        assertThat(outboxRepository.findAll()).allMatch(notification -> notification.getReferenceDate().equals(dueDate));
+        assertThat(watermarkRepository.findById(ScheduleService.LATE_LOANS_JOB).get().getWatermark())
+                .isEqualTo(dueDate.plusDays(1));
+    }
+
+    private ScheduleService jobRunningOn(LocalDate day) {
+        Clock clock = Clock.fixed(day.atStartOfDay(ZoneId.systemDefault()).toInstant(), ZoneId.systemDefault());
+        ScheduleService service = new ScheduleService(loanService, notificationService, watermarkRepository,
+                new SimpleMeterRegistry(), clock);
+        ReflectionTestUtils.setField(service, "pageSize", 100);
+        return service;
+    }
+}
@@ -3,26 +3,42 @@ package com.tarssito.libraryapi.service;
 import com.tarssito.libraryapi.api.dto.LoanFilterDTO;
 import com.tarssito.libraryapi.exception.BusinessException;
 import com.tarssito.libraryapi.model.entity.Book;
+import com.tarssito.libraryapi.model.entity.Customer;
 import com.tarssito.libraryapi.model.entity.Loan;
+import com.tarssito.libraryapi.model.entity.NotificationOutbox;
+import com.tarssito.libraryapi.model.repository.BookRepository;
+import com.tarssito.libraryapi.model.repository.CustomerRepository;
 import com.tarssito.libraryapi.model.repository.LoanRepository;
+import com.tarssito.libraryapi.model.repository.NotificationOutboxRepository;
+import com.tarssito.libraryapi.service.impl.CustomerServiceImpl;
 import com.tarssito.libraryapi.service.impl.LoanServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
 
 import java.time.LocalDate;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
@@ -35,50 +51,177 @@ public class LoanServiceTest {
     @MockBean
     LoanRepository repository;
 
+    @MockBean
+    BookRepository bookRepository;
+
+    @MockBean
+    NotificationOutboxRepository notificationOutboxRepository;
+
+    @MockBean
+    CustomerRepository customerRepository;
+
     LoanService service;
+    LoanedBookIndex loanedBookIndex;
+    ApplicationEventPublisher eventPublisher;
 
     @BeforeEach
     public void setUp() {
-        service = new LoanServiceImpl(repository);
+        loanedBookIndex = new LoanedBookIndex(repository);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        service = new LoanServiceImpl(
+                repository, bookRepository, loanedBookIndex, notificationOutboxRepository, customerRepository,
+                new CustomerServiceImpl(customerRepository),
+                new SingleFlight(new SimpleMeterRegistry(), Set.of("book-loans")), eventPublisher);
+        ReflectionTestUtils.setField(service, "loanDays", 4);
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
     }
 
     @Test
     @DisplayName("Deve salvar um empréstimo")
     public void saveLoanTest() {
-        String costumer = "Fulano";
+        Customer costumer = Customer.builder().id(7L).name("Fulano").build();
 
         Book book = Book.builder()
                 .id(1L)
                 .build();
 
         Loan loanSaving = Loan.builder()
-                .costumer(costumer)
+                .customer(Customer.builder().name("Fulano").build())
                 .book(book)
                 .loanDate(LocalDate.now())
                 .build();
 
         Loan loanSaved = Loan.builder()
                 .id(1L)
-                .costumer(costumer)
+                .customer(costumer)
                 .book(book)
                 .loanDate(LocalDate.now())
                 .build();
 
+        Book storedBook = Book.builder().id(1L).build();
         when(repository.existsByBookNotReturned(book)).thenReturn(false);
         when(repository.save(loanSaving)).thenReturn(loanSaved);
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(storedBook));
+        when(customerRepository.findByNameIn(Set.of("Fulano"))).thenReturn(List.of(costumer));
 
         Loan loan = service.save(loanSaving);
 
+        assertThat(storedBook.getCurrentLoanId()).isEqualTo(loanSaved.getId());
+        assertThat(loanSaving.getDueDate()).isEqualTo(LocalDate.now().plusDays(4));
         assertThat(loan.getId()).isEqualTo(loanSaved.getId());
         assertThat(loan.getBook().getId()).isEqualTo(loanSaved.getBook().getId());
-        assertThat(loan.getCostumer()).isEqualTo(loanSaved.getCostumer());
+        assertThat(loan.getCustomer()).isEqualTo(costumer);
+        assertThat(loanSaving.getCustomer()).isSameAs(costumer);
         assertThat(loan.getLoanDate()).isEqualTo(loanSaved.getLoanDate());
+        verify(customerRepository).addLoans(7L, 1L);
+        verify(eventPublisher).publishEvent(BookChangedEvent.availability(List.of(1L)));
+    }
+
+    @Test
+    @DisplayName("Deve cadastrar o costumer no seu primeiro empréstimo")
+    public void saveLoanOfNewCustomerTest() {
+        Loan loan = createLoanTest();
+        Customer created = Customer.builder().id(8L).name("Fulano").email("costumer@teste.com").build();
+        when(customerRepository.saveAndFlush(Mockito.any(Customer.class))).thenReturn(created);
+        when(customerRepository.findByNameIn(Set.of("Fulano"))).thenReturn(List.of(), List.of(created));
+        when(repository.save(loan)).thenReturn(loan);
+
+        service.save(loan);
+
+        verify(customerRepository).saveAndFlush(Customer.builder().name("Fulano").email("costumer@teste.com").build());
+        verify(customerRepository).addLoans(8L, 1L);
+        assertThat(loan.getCustomer()).isSameAs(created);
+    }
+
+    @Test
+    @DisplayName("Deve usar o costumer cadastrado por um primeiro empréstimo concorrente com o mesmo nome")
+    public void saveLoanOfConcurrentNewCustomerTest() {
+        Loan loan = createLoanTest();
+        Customer concurrent = Customer.builder().id(9L).name("Fulano").build();
+        when(customerRepository.saveAndFlush(Mockito.any(Customer.class)))
+                .thenThrow(new DataIntegrityViolationException("ux_customer_name"));
+        when(customerRepository.findByName("Fulano")).thenReturn(Optional.of(concurrent));
+        when(customerRepository.findByNameIn(Set.of("Fulano"))).thenReturn(List.of(), List.of(concurrent));
+        when(repository.save(loan)).thenReturn(loan);
+
+        Loan saved = service.save(loan);
+
+        assertThat(saved.getCustomer()).isSameAs(concurrent);
+        assertThat(concurrent.getEmail()).isEqualTo("costumer@teste.com");
+        verify(customerRepository).addLoans(9L, 1L);
+    }
+
+    @Test
+    @DisplayName("Não deve tratar como livro emprestado uma violação de integridade que não seja do empréstimo aberto")
+    public void otherIntegrityViolationSaveTest() {
+        Loan loan = createLoanTest();
+        when(repository.save(loan)).thenThrow(new DataIntegrityViolationException("fk_loan_customer"));
+
+        Throwable exception = catchThrowable(() -> service.save(loan));
+
+        assertThat(exception).isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    @DisplayName("Não deve substituir o email já cadastrado de um costumer com o mesmo nome")
+    public void saveLoanKeepsCustomerEmailTest() {
+        Loan loan = createLoanTest();
+        loan.getCustomer().setEmail("outro@teste.com");
+        Customer stored = Customer.builder().id(7L).name("Fulano").email("costumer@teste.com").build();
+        when(customerRepository.findByNameIn(Set.of("Fulano"))).thenReturn(List.of(stored));
+        when(repository.save(loan)).thenReturn(loan);
+
+        service.save(loan);
+
+        assertThat(loan.getCustomer()).isSameAs(stored);
+        assertThat(stored.getEmail()).isEqualTo("costumer@teste.com");
+        verify(customerRepository, never()).save(Mockito.any(Customer.class));
+    }
+
+    @Test
+    @DisplayName("Deve preencher o email de um costumer cadastrado sem email")
+    public void saveLoanFillsMissingCustomerEmailTest() {
+        Loan loan = createLoanTest();
+        Customer stored = Customer.builder().id(7L).name("Fulano").build();
+        when(customerRepository.findByNameIn(Set.of("Fulano"))).thenReturn(List.of(stored));
+        when(repository.save(loan)).thenReturn(loan);
+
+        service.save(loan);
+
+        assertThat(stored.getEmail()).isEqualTo("costumer@teste.com");
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar todo o lote quando um dos livros já está emprestado")
+    public void loanedBookSaveAllTest() {
+        Book free = Book.builder().id(1L).build();
+        Book loaned = Book.builder().id(2L).currentLoanId(5L).build();
+        List<Loan> loans = List.of(
+                Loan.builder().book(Book.builder().id(1L).build()).customer(Customer.builder().name("Fulano").build()).build(),
+                Loan.builder().book(Book.builder().id(2L).build()).customer(Customer.builder().name("Fulano").build()).build());
+        when(bookRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(free, loaned));
+
+        Throwable exception = catchThrowable(() -> service.saveAll(loans));
+
+        assertThat(exception)
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Book already loaned");
+        verify(repository, never()).saveAll(anyList());
+        assertThat(loanedBookIndex.isLoaned(1L)).isTrue();
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertThat(loanedBookIndex.reserve(1L)).isTrue();
     }
 
     @Test
     @DisplayName("Deve lançar um erro de negócio ao tentar salvar um empréstimo de um livro já emprestado")
     public void loanedBookSaveTest() {
         Loan loan = createLoanTest();
+        loanedBookIndex.reserve(loan.getBook().getId());
 
         when(repository.existsByBookNotReturned(loan.getBook())).thenReturn(true);
 
@@ -104,13 +247,13 @@ public class LoanServiceTest {
 
         assertThat(optionalLoan.isPresent()).isTrue();
         assertThat(optionalLoan.get().getId()).isEqualTo(id);
-        assertThat(optionalLoan.get().getCostumer()).isEqualTo(loan.getCostumer());
+        assertThat(optionalLoan.get().getCustomer()).isEqualTo(loan.getCustomer());
         assertThat(optionalLoan.get().getBook().getId()).isEqualTo(loan.getBook().getId());
         assertThat(optionalLoan.get().getLoanDate()).isEqualTo(loan.getLoanDate());
     }
 
     @Test
-    @DisplayName("Deve filtrar empréstimos pelas propriedades")
+    @DisplayName("Deve filtrar empréstimos pelo livro e pelo costumer com a união das duas buscas")
     public void findLoanTest() {
         // cenario
         LoanFilterDTO loanFilterDTO = LoanFilterDTO.builder()
@@ -125,11 +268,13 @@ public class LoanServiceTest {
         List<Loan> loans = Collections.singletonList(loan);
         Page<Loan> page = new PageImpl<>(loans, pageRequest, loans.size());
 
-        Mockito.when( repository.findByBookOrCustomer(
-                Mockito.anyString(),
-                Mockito.anyString(),
-                Mockito.any(PageRequest.class)
-        )).thenReturn(page);
+        Mockito.when(bookRepository.findByIsbn("321")).thenReturn(Optional.of(loan.getBook()));
+        Mockito.when(customerRepository.findByName("Fulano"))
+                .thenReturn(Optional.of(Customer.builder().id(7L).name("Fulano").build()));
+        PageRequest unionRequest = PageRequest.of(0, 10, Sort.by("loan_date", "id"));
+        Mockito.when(repository.findIdsByBookOrCustomer(1L, 7L, unionRequest))
+                .thenReturn(new PageImpl<>(List.of(id), unionRequest, 1));
+        Mockito.when(repository.findAllWithBookByIdIn(List.of(id))).thenReturn(page.getContent());
 
         // execução
         Page<Loan> result = service.find(loanFilterDTO, pageRequest);
@@ -141,14 +286,255 @@ public class LoanServiceTest {
         assertThat(result.getPageable().getPageSize()).isEqualTo(10);
     }
 
+    @Test
+    @DisplayName("Deve ordenar a união das buscas pelo livro e pelo costumer conforme a ordenação pedida")
+    public void findLoanSortedTest() {
+        Loan loan = createLoanTest();
+        loan.setId(1L);
+        PageRequest pageRequest = PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "loanDate"));
+        PageRequest unionRequest = PageRequest.of(0, 10,
+                Sort.by(Sort.Direction.DESC, "loan_date").and(Sort.by("id")));
+        Mockito.when(bookRepository.findByIsbn("321")).thenReturn(Optional.of(loan.getBook()));
+        Mockito.when(customerRepository.findByName("Fulano"))
+                .thenReturn(Optional.of(Customer.builder().id(7L).name("Fulano").build()));
+        Mockito.when(repository.findIdsByBookOrCustomer(1L, 7L, unionRequest))
+                .thenReturn(new PageImpl<>(List.of(1L), unionRequest, 1));
+        Mockito.when(repository.findAllWithBookByIdIn(List.of(1L))).thenReturn(List.of(loan));
+
+        Page<Loan> result = service.find(LoanFilterDTO.builder().isbn("321").costumer("Fulano").build(), pageRequest);
+
+        assertThat(result.getContent()).containsExactly(loan);
+        assertThat(result.getPageable()).isEqualTo(pageRequest);
+    }
+
+    @Test
+    @DisplayName("Deve lançar erro de negócio ao ordenar a união das buscas por uma propriedade não suportada")
+    public void findLoanUnsupportedSortTest() {
+        Loan loan = createLoanTest();
+        Mockito.when(bookRepository.findByIsbn("321")).thenReturn(Optional.of(loan.getBook()));
+        Mockito.when(customerRepository.findByName("Fulano"))
+                .thenReturn(Optional.of(Customer.builder().id(7L).name("Fulano").build()));
+
+        Throwable exception = catchThrowable(() -> service.findDTO(
+                LoanFilterDTO.builder().isbn("321").costumer("Fulano").build(),
+                PageRequest.of(0, 10, Sort.by("costumer"))));
+
+        assertThat(exception)
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Loans of a book or a costumer sort only by loanDate and id");
+        verify(repository, never()).findIdsByBookOrCustomer(Mockito.any(), Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    @DisplayName("Deve filtrar empréstimos apenas pelo índice do costumer quando o isbn não for informado")
+    public void findLoanByCustomerTest() {
+        Customer customer = Customer.builder().id(7L).name("Fulano").build();
+        PageRequest pageRequest = PageRequest.of(0, 10);
+        Page<Loan> page = new PageImpl<>(List.of(createLoanTest()), pageRequest, 1);
+        Mockito.when(customerRepository.findByName("Fulano")).thenReturn(Optional.of(customer));
+        Mockito.when(repository.findByCustomer(customer, pageRequest)).thenReturn(page);
+
+        Page<Loan> result = service.find(LoanFilterDTO.builder().costumer("Fulano").build(), pageRequest);
+
+        assertThat(result).isSameAs(page);
+        verify(bookRepository, never()).findByIsbn(Mockito.anyString());
+        verify(repository, never()).findIdsByBookOrCustomer(Mockito.any(), Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    @DisplayName("Deve retornar página vazia quando nem o livro nem o costumer existirem")
+    public void findLoanWithoutMatchesTest() {
+        PageRequest pageRequest = PageRequest.of(0, 10);
+
+        Page<Loan> result = service.find(
+                LoanFilterDTO.builder().isbn("000").costumer("Ninguém").build(), pageRequest);
+
+        assertThat(result.getContent()).isEmpty();
+        verify(repository, never()).findByBook(Mockito.any(), Mockito.any());
+        verify(repository, never()).findByCustomer(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    @DisplayName("Deve salvar um empréstimo sem consultar a base quando o livro não consta como emprestado")
+    public void saveLoanWithoutAvailabilityQueryTest() {
+        Loan loan = createLoanTest();
+        when(repository.save(loan)).thenReturn(loan);
+
+        service.save(loan);
+
+        verify(repository, never()).existsByBookNotReturned(Mockito.any(Book.class));
+        assertThat(loanedBookIndex.isLoaned(loan.getBook().getId())).isTrue();
+    }
+
+    @Test
+    @DisplayName("Deve salvar um empréstimo quando o índice está desatualizado e a base indica o livro disponível")
+    public void saveLoanWithStaleIndexTest() {
+        Loan loan = createLoanTest();
+        loanedBookIndex.reserve(loan.getBook().getId());
+        when(repository.existsByBookNotReturned(loan.getBook())).thenReturn(false);
+        when(repository.save(loan)).thenReturn(loan);
+
+        Loan saved = service.save(loan);
+
+        assertThat(saved).isSameAs(loan);
+    }
+
+    @Test
+    @DisplayName("Deve lançar erro de negócio quando a restrição da base rejeitar um segundo empréstimo")
+    public void concurrentLoanSaveTest() {
+        Loan loan = createLoanTest();
+        when(repository.save(loan)).thenThrow(new DataIntegrityViolationException("ux_loan_open_book"));
+
+        Throwable exception = catchThrowable(() -> service.save(loan));
+
+        assertThat(exception)
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Book already loaned");
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertThat(loanedBookIndex.isLoaned(loan.getBook().getId())).isFalse();
+    }
+
+    @Test
+    @DisplayName("Não deve liberar no índice um livro reservado por outra transação quando o empréstimo falhar")
+    public void failedSaveKeepsForeignReservationTest() {
+        Loan loan = createLoanTest();
+        loanedBookIndex.reserve(loan.getBook().getId());
+        when(repository.existsByBookNotReturned(loan.getBook())).thenReturn(false);
+        when(repository.save(loan)).thenThrow(new IllegalStateException("falha inesperada"));
+
+        Throwable exception = catchThrowable(() -> service.save(loan));
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(exception).isInstanceOf(IllegalStateException.class);
+        assertThat(loanedBookIndex.isLoaned(loan.getBook().getId())).isTrue();
+    }
+
+    @Test
+    @DisplayName("Deve liberar o livro no índice quando a transação do empréstimo falhar ao confirmar")
+    public void rollbackAfterSaveTest() {
+        Loan loan = createLoanTest();
+        when(repository.save(loan)).thenReturn(loan);
+
+        service.save(loan);
+        assertThat(loanedBookIndex.isLoaned(loan.getBook().getId())).isTrue();
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(loanedBookIndex.isLoaned(loan.getBook().getId())).isFalse();
+    }
+
+    @Test
+    @DisplayName("Deve liberar o livro ao registrar a devolução do empréstimo")
+    public void returnLoanTest() {
+        Loan loan = createLoanTest();
+        loan.setId(1L);
+        loanedBookIndex.reserve(loan.getBook().getId());
+        loan.setReturned(true);
+        Book storedBook = Book.builder().id(1L).currentLoanId(1L).build();
+        Loan storedLoan = Loan.builder().id(1L).customer(Customer.builder().id(7L).build()).late(true).build();
+        when(repository.findAllById(List.of(1L))).thenReturn(List.of(storedLoan));
+        when(repository.save(loan)).thenReturn(loan);
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(storedBook));
+
+        Loan updated = service.update(loan);
+
+        assertThat(updated.getReturned()).isTrue();
+        assertThat(storedBook.getCurrentLoanId()).isNull();
+        assertThat(loanedBookIndex.isLoaned(loan.getBook().getId())).isTrue();
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+        assertThat(loanedBookIndex.isLoaned(loan.getBook().getId())).isFalse();
+        verify(notificationOutboxRepository).updateStatusByLoan(
+                1L, NotificationOutbox.Status.PENDING, NotificationOutbox.Status.CANCELLED);
+        verify(customerRepository).returnLoans(7L, 1L, 1L);
+    }
+
+    @Test
+    @DisplayName("Não deve descontar dos contadores do costumer um empréstimo já devolvido")
+    public void returnReturnedLoanTest() {
+        Loan loan = createLoanTest();
+        loan.setId(1L);
+        loan.setReturned(true);
+        Loan storedLoan = Loan.builder().id(1L).customer(Customer.builder().id(7L).build()).returned(true).build();
+        when(repository.findAllById(List.of(1L))).thenReturn(List.of(storedLoan));
+        when(repository.save(loan)).thenReturn(loan);
+
+        service.update(loan);
+
+        verify(customerRepository, never()).returnLoans(Mockito.anyLong(), Mockito.anyLong(), Mockito.anyLong());
+    }
+
+    @Test
+    @DisplayName("Deve lançar erro de negócio ao tentar reabrir um empréstimo já devolvido")
+    public void reopenReturnedLoanTest() {
+        Loan loan = createLoanTest();
+        loan.setId(1L);
+        loan.setReturned(false);
+        Loan storedLoan = Loan.builder().id(1L).customer(Customer.builder().id(7L).build()).returned(true).build();
+        when(repository.findAllById(List.of(1L))).thenReturn(List.of(storedLoan));
+
+        Throwable exception = catchThrowable(() -> service.update(loan));
+
+        assertThat(exception)
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Returned loan cannot be reopened");
+        verify(repository, never()).save(loan);
+        verify(customerRepository, never()).addLoans(Mockito.anyLong(), Mockito.anyLong());
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar todo o lote de devoluções quando um dos empréstimos já devolvido for reaberto")
+    public void reopenReturnedLoanUpdateAllTest() {
+        Loan returning = Loan.builder().id(1L).book(Book.builder().id(1L).build()).returned(true).build();
+        Loan reopening = Loan.builder().id(2L).book(Book.builder().id(2L).build()).returned(false).build();
+        when(repository.findAllById(List.of(1L, 2L))).thenReturn(List.of(
+                Loan.builder().id(1L).customer(Customer.builder().id(7L).build()).build(),
+                Loan.builder().id(2L).customer(Customer.builder().id(7L).build()).returned(true).build()));
+
+        Throwable exception = catchThrowable(() -> service.updateAll(List.of(returning, reopening)));
+
+        assertThat(exception)
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Returned loan cannot be reopened");
+        verify(repository, never()).saveAll(anyList());
+    }
+
+    @Test
+    @DisplayName("Deve marcar como atrasados apenas os empréstimos ainda abertos e somar aos seus costumers")
+    public void markLateTest() {
+        Customer fulano = Customer.builder().id(7L).build();
+        Customer ciclano = Customer.builder().id(8L).build();
+        Loan first = Loan.builder().id(1L).customer(fulano).build();
+        Loan second = Loan.builder().id(2L).customer(fulano).build();
+        Loan third = Loan.builder().id(3L).customer(ciclano).build();
+        when(repository.findOpenNotLateByIdIn(List.of(1L, 2L, 3L))).thenReturn(List.of(first, second));
+
+        int marked = service.markLate(List.of(first, second, third));
+
+        assertThat(marked).isEqualTo(2);
+        assertThat(first.getLate()).isTrue();
+        assertThat(third.getLate()).isFalse();
+        verify(customerRepository).addLateLoans(7L, 2L);
+        verify(customerRepository, never()).addLateLoans(Mockito.eq(8L), Mockito.anyLong());
+    }
+
+    /**
+     * Ends the transaction the service ran in, as the transaction manager
+     * would.
+     */
+    private void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        if (status == TransactionSynchronization.STATUS_COMMITTED) {
+            TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+        }
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, status);
+    }
+
     public static Loan createLoanTest() {
         Book book = Book.builder()
                 .id(1L)
                 .build();
 
         return Loan.builder()
-                .costumer("Fulano")
-                .costumerEmail("costumer@teste.com")
+                .customer(Customer.builder().name("Fulano").email("costumer@teste.com").build())
                 .book(book)
                 .loanDate(LocalDate.now())
                 .build();
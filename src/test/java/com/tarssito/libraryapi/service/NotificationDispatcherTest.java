@@ -0,0 +1,138 @@
+package com.tarssito.libraryapi.service;
+
+import com.tarssito.libraryapi.exception.MailDeliveryException;
+import com.tarssito.libraryapi.model.entity.NotificationOutbox;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class NotificationDispatcherTest {
+
+    @MockBean
+    NotificationService notificationService;
+
+    @MockBean
+    EmailService emailService;
+
+    MeterRegistry meterRegistry;
+    NotificationDispatcher dispatcher;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        dispatcher = new NotificationDispatcher(notificationService, emailService, meterRegistry);
+        ReflectionTestUtils.setField(dispatcher, "workers", 1);
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 2);
+        ReflectionTestUtils.setField(dispatcher, "sendTimeoutMillis", 5000L);
+        ReflectionTestUtils.setField(dispatcher, "dispatchTimeoutMillis", 5000L);
+        dispatcher.init();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    @DisplayName("Deve enviar os emails reivindicados e marcá-los como enviados")
+    public void dispatchTest() {
+        NotificationOutbox first = notification(1L, "fulano@email.com");
+        NotificationOutbox second = notification(2L, "ciclano@email.com");
+        NotificationOutbox third = notification(3L, "beltrano@email.com");
+        when(notificationService.claim(2))
+                .thenReturn(Arrays.asList(first, second))
+                .thenReturn(Collections.singletonList(third));
+        when(emailService.sendMails(eq("Atenção!"), anyList())).thenReturn(CompletableFuture.completedFuture(null));
+
+        dispatcher.dispatch();
+
+        verify(emailService).sendMails("Atenção!", Arrays.asList("fulano@email.com", "ciclano@email.com"));
+        verify(emailService).sendMails("Atenção!", Collections.singletonList("beltrano@email.com"));
+        verify(notificationService).markSent(Arrays.asList(first, second));
+        verify(notificationService).markSent(Collections.singletonList(third));
+        verify(notificationService, never()).markFailed(anyList(), any());
+        verify(notificationService, times(2)).claim(anyInt());
+        assertThat(meterRegistry.counter("library.notifications", "result", "sent").count()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Deve marcar como falha apenas os emails não entregues")
+    public void partialFailureTest() {
+        NotificationOutbox delivered = notification(1L, "fulano@email.com");
+        NotificationOutbox undelivered = notification(2L, "ciclano@email.com");
+        when(notificationService.claim(2)).thenReturn(Arrays.asList(delivered, undelivered), List.of());
+        when(emailService.sendMails(eq("Atenção!"), anyList())).thenReturn(CompletableFuture.failedFuture(
+                new MailDeliveryException("1 mails could not be delivered", List.of("ciclano@email.com"))));
+
+        dispatcher.dispatch();
+
+        verify(notificationService).markSent(Collections.singletonList(delivered));
+        verify(notificationService).markFailed(Collections.singletonList(undelivered), "1 mails could not be delivered");
+        assertThat(meterRegistry.counter("library.notifications", "result", "failed").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve deixar reivindicáveis os emails cuja entrega não terminou no prazo")
+    public void sendTimeoutTest() {
+        ReflectionTestUtils.setField(dispatcher, "sendTimeoutMillis", 50L);
+        NotificationOutbox notification = notification(1L, "fulano@email.com");
+        when(notificationService.claim(2)).thenReturn(Arrays.asList(notification, notification(2L, "ciclano@email.com")));
+        when(emailService.sendMails(eq("Atenção!"), anyList())).thenReturn(new CompletableFuture<>());
+
+        dispatcher.dispatch();
+
+        verify(notificationService, times(1)).claim(anyInt());
+        verify(notificationService, never()).markSent(anyList());
+        verify(notificationService, never()).markFailed(anyList(), any());
+        assertThat(meterRegistry.counter("library.notifications", "result", "timeout").count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve liberar o agendador enquanto os workers ainda drenam a fila")
+    public void dispatchTimeoutTest() {
+        ReflectionTestUtils.setField(dispatcher, "dispatchTimeoutMillis", 50L);
+        CompletableFuture<Void> delivery = new CompletableFuture<>();
+        NotificationOutbox notification = notification(1L, "fulano@email.com");
+        when(notificationService.claim(2)).thenReturn(Collections.singletonList(notification));
+        when(emailService.sendMails(eq("Atenção!"), anyList())).thenReturn(delivery);
+
+        dispatcher.dispatch();
+        dispatcher.dispatch();
+
+        verify(notificationService, times(1)).claim(anyInt());
+        delivery.complete(null);
+        verify(notificationService, timeout(5000)).markSent(Collections.singletonList(notification));
+    }
+
+    private NotificationOutbox notification(Long id, String recipient) {
+        return NotificationOutbox.builder()
+                .id(id)
+                .loanId(id)
+                .recipient(recipient)
+                .message("Atenção!")
+                .status(NotificationOutbox.Status.PENDING)
+                .attempts(1)
+                .build();
+    }
+}
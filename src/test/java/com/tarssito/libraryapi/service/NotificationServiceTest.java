@@ -0,0 +1,100 @@
+package com.tarssito.libraryapi.service;
+
+import com.tarssito.libraryapi.model.entity.Customer;
+import com.tarssito.libraryapi.model.entity.Loan;
+import com.tarssito.libraryapi.model.entity.NotificationOutbox;
+import com.tarssito.libraryapi.model.repository.NotificationOutboxRepository;
+import com.tarssito.libraryapi.service.impl.NotificationServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class NotificationServiceTest {
+
+    @MockBean
+    NotificationOutboxRepository repository;
+
+    NotificationService service;
+
+    @BeforeEach
+    public void setUp() {
+        service = new NotificationServiceImpl(repository);
+        ReflectionTestUtils.setField(service, "lateLoanMessage", "Atenção!");
+        ReflectionTestUtils.setField(service, "leaseMillis", 60000L);
+        ReflectionTestUtils.setField(service, "maxAttempts", 3);
+        ReflectionTestUtils.setField(service, "backoffMillis", 1000L);
+    }
+
+    @Test
+    @DisplayName("Deve enfileirar emails apenas para empréstimos ainda não notificados na data de devolução")
+    @SuppressWarnings("unchecked")
+    public void enqueueLateLoansTest() {
+        Loan notified = Loan.builder().id(1L).customer(Customer.builder().email("fulano@email.com").build()).build();
+        Loan fresh = Loan.builder().id(2L).customer(Customer.builder().email("ciclano@email.com").build()).build();
+        Loan withoutEmail = Loan.builder().id(3L).build();
+        LocalDate dueDate = LocalDate.now().minusDays(3);
+        when(repository.findNotifiedLoanIds(eq(NotificationOutbox.Type.LATE_LOAN), eq(dueDate), anyCollection()))
+                .thenReturn(Collections.singleton(1L));
+
+        int enqueued = service.enqueueLateLoans(Arrays.asList(notified, fresh, withoutEmail), dueDate);
+
+        ArgumentCaptor<List<NotificationOutbox>> captor = ArgumentCaptor.forClass(List.class);
+        verify(repository).saveAll(captor.capture());
+        assertThat(enqueued).isEqualTo(1);
+        assertThat(captor.getValue()).hasSize(1);
+        assertThat(captor.getValue().get(0).getLoanId()).isEqualTo(2L);
+        assertThat(captor.getValue().get(0).getRecipient()).isEqualTo("ciclano@email.com");
+        assertThat(captor.getValue().get(0).getReferenceDate()).isEqualTo(dueDate);
+        assertThat(captor.getValue().get(0).getStatus()).isEqualTo(NotificationOutbox.Status.PENDING);
+    }
+
+    @Test
+    @DisplayName("Deve reivindicar notificações incrementando as tentativas e estendendo o prazo")
+    public void claimTest() {
+        NotificationOutbox notification = NotificationOutbox.builder().id(1L).attempts(0).build();
+        when(repository.findClaimable(eq(NotificationOutbox.Status.PENDING), any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(Collections.singletonList(notification));
+
+        List<NotificationOutbox> claimed = service.claim(10);
+
+        assertThat(claimed).containsExactly(notification);
+        assertThat(notification.getAttempts()).isEqualTo(1);
+        assertThat(notification.getAvailableAt()).isAfter(LocalDateTime.now().plusSeconds(50));
+    }
+
+    @Test
+    @DisplayName("Deve reagendar falhas e desistir ao atingir o máximo de tentativas")
+    public void markFailedTest() {
+        NotificationOutbox retry = NotificationOutbox.builder().id(1L).attempts(1).build();
+        NotificationOutbox exhausted = NotificationOutbox.builder().id(2L).attempts(3).build();
+
+        service.markFailed(Arrays.asList(retry, exhausted), "smtp indisponível");
+
+        verify(repository).reschedule(eq(Collections.singletonList(1L)), eq(NotificationOutbox.Status.PENDING),
+                eq(NotificationOutbox.Status.PENDING), any(LocalDateTime.class), eq("smtp indisponível"));
+        verify(repository).reschedule(eq(Collections.singletonList(2L)), eq(NotificationOutbox.Status.PENDING),
+                eq(NotificationOutbox.Status.FAILED), any(LocalDateTime.class), anyString());
+    }
+}
@@ -0,0 +1,123 @@
+package com.tarssito.libraryapi.service;
+
+import com.tarssito.libraryapi.model.entity.JobWatermark;
+import com.tarssito.libraryapi.model.entity.Customer;
+import com.tarssito.libraryapi.model.entity.Loan;
+import com.tarssito.libraryapi.model.repository.JobWatermarkRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class ScheduleServiceTest {
+
+    @MockBean
+    LoanService loanService;
+
+    @MockBean
+    NotificationService notificationService;
+
+    @MockBean
+    JobWatermarkRepository watermarkRepository;
+
+    MeterRegistry meterRegistry;
+    ScheduleService service;
+    LocalDate today = LocalDate.now();
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        service = new ScheduleService(loanService, notificationService, watermarkRepository, meterRegistry,
+                Clock.systemDefaultZone());
+        ReflectionTestUtils.setField(service, "pageSize", 2);
+        when(watermarkRepository.save(any(JobWatermark.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    @DisplayName("Deve paginar os empréstimos de cada data de devolução e enfileirar os emails de cada página")
+    public void enqueueLateLoanMailsTest() {
+        LocalDate yesterday = today.minusDays(1);
+        List<Loan> loans = lateLoans(3);
+        when(watermarkRepository.findById(ScheduleService.LATE_LOANS_JOB)).thenReturn(Optional.of(watermark(today.minusDays(2))));
+        when(loanService.getNextDueDate(today.minusDays(2), today)).thenReturn(Optional.of(yesterday));
+        when(loanService.getNextDueDate(yesterday, today)).thenReturn(Optional.of(today));
+        when(loanService.getNextDueDate(today, today)).thenReturn(Optional.empty());
+        when(loanService.getLoansDueOn(yesterday, 0L, 2)).thenReturn(loans.subList(0, 2));
+        when(loanService.getLoansDueOn(yesterday, 2L, 2)).thenReturn(List.of());
+        when(loanService.getLoansDueOn(today, 0L, 2)).thenReturn(loans.subList(2, 3));
+        when(notificationService.enqueueLateLoans(anyList(), any(LocalDate.class))).thenAnswer(invocation ->
+                invocation.<List<Loan>>getArgument(0).size());
+
+        service.enqueueLateLoanMails();
+
+        verify(notificationService).enqueueLateLoans(loans.subList(0, 2), yesterday);
+        verify(notificationService).enqueueLateLoans(loans.subList(2, 3), today);
+        verify(loanService).markLate(loans.subList(0, 2));
+        verify(loanService).markLate(loans.subList(2, 3));
+        assertThat(meterRegistry.counter("library.lateloans.loans").count()).isEqualTo(3);
+        assertThat(meterRegistry.counter("library.lateloans.enqueued").count()).isEqualTo(3);
+        assertThat(meterRegistry.timer("library.lateloans.job").count()).isEqualTo(1);
+
+        ArgumentCaptor<JobWatermark> saved = ArgumentCaptor.forClass(JobWatermark.class);
+        verify(watermarkRepository, times(2)).save(saved.capture());
+        assertThat(saved.getValue().getWatermark()).isEqualTo(today);
+    }
+
+    @Test
+    @DisplayName("Deve começar do início quando o job nunca rodou e gravar a marca de hoje")
+    public void firstRunTest() {
+        when(watermarkRepository.findById(ScheduleService.LATE_LOANS_JOB)).thenReturn(Optional.empty());
+        when(loanService.getNextDueDate(LocalDate.EPOCH, today)).thenReturn(Optional.empty());
+
+        service.enqueueLateLoanMails();
+
+        verify(notificationService, never()).enqueueLateLoans(anyList(), any());
+        ArgumentCaptor<JobWatermark> saved = ArgumentCaptor.forClass(JobWatermark.class);
+        verify(watermarkRepository).save(saved.capture());
+        assertThat(saved.getValue().getName()).isEqualTo(ScheduleService.LATE_LOANS_JOB);
+        assertThat(saved.getValue().getWatermark()).isEqualTo(today);
+    }
+
+    @Test
+    @DisplayName("Não deve visitar empréstimos nem regravar a marca quando o job já rodou hoje")
+    public void alreadyRunTodayTest() {
+        when(watermarkRepository.findById(ScheduleService.LATE_LOANS_JOB)).thenReturn(Optional.of(watermark(today)));
+        when(loanService.getNextDueDate(today, today)).thenReturn(Optional.empty());
+
+        service.enqueueLateLoanMails();
+
+        verify(loanService, never()).getLoansDueOn(any(), any(), anyInt());
+        verify(watermarkRepository, never()).save(any());
+    }
+
+    private JobWatermark watermark(LocalDate day) {
+        return JobWatermark.builder().name(ScheduleService.LATE_LOANS_JOB).watermark(day).version(0L).build();
+    }
+
+    private List<Loan> lateLoans(int count) {
+        return LongStream.rangeClosed(1, count)
+                .mapToObj(id -> Loan.builder().id(id).customer(Customer.builder().email("cliente-" + id + "@email.com").build()).build())
+                .collect(Collectors.toList());
+    }
+}
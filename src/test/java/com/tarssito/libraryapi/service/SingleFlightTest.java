@@ -0,0 +1,160 @@
+package com.tarssito.libraryapi.service;
+
+import com.tarssito.libraryapi.exception.BusinessException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    MeterRegistry meterRegistry;
+    SingleFlight singleFlight;
+    ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        singleFlight = new SingleFlight(meterRegistry, Set.of("book"));
+        executor = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Deve compartilhar uma única carga entre chamadas concorrentes da mesma chave")
+    public void coalesceConcurrentCallsTest() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = callConcurrently("book", 1L, () -> {
+            loads.incrementAndGet();
+            await(release);
+            return "livro";
+        });
+        awaitInFlight();
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("livro");
+        }
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(count("leader")).isEqualTo(1);
+        assertThat(count("shared")).isEqualTo(CALLERS - 1);
+    }
+
+    @Test
+    @DisplayName("Deve repassar a exceção da carga a todas as chamadas que a compartilharam")
+    public void shareExceptionTest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = callConcurrently("book", 1L, () -> {
+            await(release);
+            throw new BusinessException("Falhou");
+        });
+        awaitInFlight();
+        release.countDown();
+
+        for (Future<String> result : results) {
+            Throwable exception = catchThrowable(() -> result.get(5, TimeUnit.SECONDS));
+            assertThat(exception).isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(BusinessException.class);
+        }
+        assertThat(count("leader")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve carregar de novo depois que a carga anterior terminou")
+    public void loadAgainAfterCompletionTest() {
+        AtomicInteger loads = new AtomicInteger();
+
+        singleFlight.execute("book", 1L, loads::incrementAndGet);
+        singleFlight.execute("book", 1L, loads::incrementAndGet);
+        singleFlight.execute("book", 2L, loads::incrementAndGet);
+
+        assertThat(loads.get()).isEqualTo(3);
+        assertThat(count("shared")).isZero();
+    }
+
+    @Test
+    @DisplayName("Não deve coalescer chaves fora dos espaços configurados")
+    public void unconfiguredKeySpaceTest() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = callConcurrently("book-loans", 1L, () -> {
+            if (loads.incrementAndGet() < CALLERS) {
+                await(release);
+            } else {
+                release.countDown();
+            }
+            return "emprestimos";
+        });
+
+        for (Future<String> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("emprestimos");
+        }
+        assertThat(loads.get()).isEqualTo(CALLERS);
+        assertThat(meterRegistry.find("library.single-flight.calls").tag("key_space", "book-loans").counter())
+                .isNull();
+    }
+
+    private List<Future<String>> callConcurrently(String keySpace, Object key, Supplier<String> loader) {
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> singleFlight.execute(keySpace, key, loader)));
+        }
+        return results;
+    }
+
+    /**
+     * Waits until every caller is in flight: the first one running the
+     * loader and the others waiting on it.
+     */
+    private void awaitInFlight() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (count("leader") + count("shared") < CALLERS && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("library.single-flight.calls").tags("key_space", "book", "result", result)
+                .counter().count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}